@@ -0,0 +1,49 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a validation is not admitted, because too many validations are running and
+ * waiting already. Clients should retry after a while.
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+  /**
+   * Why the validation was not admitted, also used as the tag of the rejection metric.
+   */
+  public enum Reason {
+    QUEUE_FULL,
+    WAIT_TIMEOUT,
+  }
+
+  private final Reason reason;
+
+  public AdmissionRejectedException(Reason reason, String message) {
+    super(message);
+    this.reason = reason;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+
+/**
+ * The outcome of validating one feed of a batch, written to the response of POST
+ * /validate/batch as soon as the feed is done.
+ *
+ * @param index the position of the feed in the request
+ * @param feedUrl the feed's discovery URL
+ * @param status whether the feed was validated
+ * @param result the validation result, if the feed was validated
+ * @param error why the feed was not validated, otherwise
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchValidationItem(
+  int index,
+  String feedUrl,
+  Status status,
+  ValidationResult result,
+  String error
+) {
+  public enum Status {
+    SUCCEEDED,
+    FAILED,
+    TIMED_OUT,
+    REJECTED,
+  }
+
+  /**
+   * @param throwable the exception the feed's validation completed with, or null if it succeeded
+   */
+  static BatchValidationItem of(
+    int index,
+    String feedUrl,
+    ValidationResult result,
+    Throwable throwable
+  ) {
+    if (throwable == null) {
+      return new BatchValidationItem(
+        index,
+        feedUrl,
+        Status.SUCCEEDED,
+        result,
+        null
+      );
+    }
+    Throwable cause = throwable;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    Status status;
+    if (cause instanceof TimeoutException) {
+      status = Status.TIMED_OUT;
+    } else if (cause instanceof RejectedExecutionException) {
+      status = Status.REJECTED;
+    } else {
+      status = Status.FAILED;
+    }
+    return new BatchValidationItem(
+      index,
+      feedUrl,
+      status,
+      null,
+      cause.getMessage() != null
+        ? cause.getMessage()
+        : cause.getClass().getSimpleName()
+    );
+  }
+}
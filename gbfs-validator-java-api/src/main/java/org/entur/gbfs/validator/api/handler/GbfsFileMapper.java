@@ -0,0 +1,269 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.entur.gbfs.validation.GbfsValidator;
+import org.entur.gbfs.validation.GbfsValidatorFactory;
+import org.entur.gbfs.validation.model.FileValidationError;
+import org.entur.gbfs.validation.model.FileValidationResult;
+import org.entur.gbfs.validation.model.ValidatorError;
+import org.entur.gbfs.validator.api.model.FetchStats;
+import org.entur.gbfs.validator.api.model.FileError;
+import org.entur.gbfs.validator.api.model.GbfsFile;
+import org.entur.gbfs.validator.api.model.SystemError;
+import org.entur.gbfs.validator.api.model.ValidatePostRequest;
+import org.entur.gbfs.validator.api.model.ValidationView;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.entur.gbfs.validator.loader.LoaderError;
+import org.openapitools.jackson.nullable.JsonNullable;
+
+/**
+ * Maps a loaded file and its validation result to the API representation. Shared by the
+ * regular and the streaming validation so both report files exactly the same way.
+ */
+final class GbfsFileMapper {
+
+  private final SchemaStore schemaStore;
+  private final ValidationView view;
+  private final boolean compact;
+
+  /**
+   * @param schemaStore stores the schemas files were validated against, so they can be
+   *                    referred to by URL
+   * @param view the fields to map, fields left out of the view are not computed at all
+   * @param compact whether to leave out the schema text and only refer to the schema
+   */
+  GbfsFileMapper(
+    SchemaStore schemaStore,
+    ValidationView view,
+    boolean compact
+  ) {
+    this.schemaStore = schemaStore;
+    this.view = view;
+    this.compact = compact;
+  }
+
+  /**
+   * @return a mapper for the view and schema mode the request asks for
+   */
+  static GbfsFileMapper forRequest(
+    SchemaStore schemaStore,
+    ValidatePostRequest validatePostRequest
+  ) {
+    return new GbfsFileMapper(
+      schemaStore,
+      view(validatePostRequest),
+      Boolean.TRUE.equals(validatePostRequest.getCompact())
+    );
+  }
+
+  /**
+   * @return a validator computing only what this mapper maps, so that the text of files and of
+   *         their schemas is only built for the full view
+   */
+  GbfsValidator validator() {
+    return GbfsValidatorFactory.getGbfsJsonValidator(
+      view == ValidationView.FULL
+    );
+  }
+
+  /**
+   * @return the view the request asks for, full unless given
+   */
+  static ValidationView view(ValidatePostRequest validatePostRequest) {
+    return validatePostRequest.getView() != null
+      ? validatePostRequest.getView()
+      : ValidationView.FULL;
+  }
+
+  /**
+   * @param loadedFile the file as returned from the loader
+   * @param validationResult the validation result of the file, or null if it was not validated
+   * @param language the language of the file's group, or null for the default group
+   * @return the file with its loader and validator errors, and the validation errors,
+   *         language, schema and fetch stats if the view includes them
+   */
+  GbfsFile map(
+    LoadedFile loadedFile,
+    FileValidationResult validationResult,
+    String language
+  ) {
+    GbfsFile apiFile = new GbfsFile();
+    apiFile.setName(loadedFile.fileName());
+    apiFile.setUrl(loadedFile.url());
+
+    List<SystemError> combinedApiSystemErrors = new ArrayList<>();
+
+    List<LoaderError> loaderSystemErrors = loadedFile.loaderErrors();
+    if (loaderSystemErrors != null && !loaderSystemErrors.isEmpty()) {
+      combinedApiSystemErrors.addAll(
+        mapLoaderSystemErrorsToApi(loaderSystemErrors)
+      );
+    }
+
+    boolean withErrors = view != ValidationView.SUMMARY;
+    boolean full = view == ValidationView.FULL;
+
+    if (validationResult != null) {
+      apiFile.setVersion(validationResult.version());
+      apiFile.setErrorsCount(validationResult.errorsCount());
+      apiFile.setErrors(
+        withErrors ? mapFileValidationErrors(validationResult.errors()) : null
+      );
+      if (full) {
+        mapSchema(apiFile, validationResult);
+      }
+
+      List<ValidatorError> validatorSystemErrors =
+        validationResult.validatorErrors();
+      if (validatorSystemErrors != null && !validatorSystemErrors.isEmpty()) {
+        combinedApiSystemErrors.addAll(
+          mapValidatorSystemErrorsToApi(validatorSystemErrors)
+        );
+      }
+    } else {
+      apiFile.setErrorsCount(0);
+      apiFile.setErrors(withErrors ? new ArrayList<>() : null);
+    }
+
+    apiFile.setSystemErrors(combinedApiSystemErrors);
+    if (full) {
+      apiFile.setFetchStats(mapFetchStats(loadedFile.fetchStats()));
+    }
+
+    if (
+      !withErrors ||
+      loadedFile.fileName().equals("gbfs.json") ||
+      loadedFile.fileName().equals("gbfs")
+    ) {
+      apiFile.setLanguage(null);
+    } else {
+      apiFile.setLanguage(JsonNullable.of(language));
+    }
+    return apiFile;
+  }
+
+  /**
+   * Sets the schema text, or in compact mode the hash and URL of schemas as published. Schemas
+   * patched by custom rules are inlined in compact mode too, since they have no URL.
+   */
+  private void mapSchema(
+    GbfsFile apiFile,
+    FileValidationResult validationResult
+  ) {
+    String schema = validationResult.schema();
+    String hash = null;
+    if (compact && schema != null && validationResult.version() != null) {
+      hash =
+        schemaStore.publishedHash(
+          validationResult.version(),
+          validationResult.file(),
+          schema
+        );
+    }
+    if (hash == null) {
+      apiFile.setSchema(schema);
+    } else {
+      apiFile.setSchemaHash(hash);
+      apiFile.setSchemaUrl(
+        SchemaStore.url(
+          validationResult.version(),
+          validationResult.file(),
+          hash
+        )
+      );
+    }
+  }
+
+  private static FetchStats mapFetchStats(
+    org.entur.gbfs.validator.loader.FetchStats loaderFetchStats
+  ) {
+    if (loaderFetchStats == null) {
+      return null;
+    }
+    FetchStats apiFetchStats = new FetchStats();
+    apiFetchStats.setQueueWaitMillis(loaderFetchStats.queueWaitMillis());
+    apiFetchStats.setConnectMillis(loaderFetchStats.connectMillis());
+    apiFetchStats.setTimeToFirstByteMillis(
+      loaderFetchStats.timeToFirstByteMillis()
+    );
+    apiFetchStats.setDownloadMillis(loaderFetchStats.downloadMillis());
+    apiFetchStats.setStatusCode(loaderFetchStats.statusCode());
+    apiFetchStats.setHeaders(loaderFetchStats.headers());
+    apiFetchStats.setBytes(loaderFetchStats.bytes());
+    return apiFetchStats;
+  }
+
+  private static List<SystemError> mapLoaderSystemErrorsToApi(
+    List<LoaderError> loaderSystemErrors
+  ) {
+    if (loaderSystemErrors == null) {
+      return new ArrayList<>();
+    }
+    return loaderSystemErrors
+      .stream()
+      .map(loaderError -> {
+        SystemError apiError = new SystemError();
+        apiError.setError(loaderError.error());
+        apiError.setMessage(loaderError.message());
+        return apiError;
+      })
+      .toList();
+  }
+
+  private static List<SystemError> mapValidatorSystemErrorsToApi(
+    List<ValidatorError> validatorSystemErrors
+  ) {
+    if (validatorSystemErrors == null) {
+      return new ArrayList<>();
+    }
+    return validatorSystemErrors
+      .stream()
+      .map(validatorError -> {
+        SystemError apiError = new SystemError();
+        apiError.setError(validatorError.error());
+        apiError.setMessage(validatorError.message());
+        return apiError;
+      })
+      .toList();
+  }
+
+  private static List<FileError> mapFileValidationErrors(
+    List<FileValidationError> errors
+  ) {
+    if (errors == null) {
+      return new ArrayList<>();
+    }
+    return errors
+      .stream()
+      .map(error -> {
+        var mapped = new FileError();
+        mapped.setMessage(error.message());
+        mapped.setInstancePath(error.violationPath());
+        mapped.setSchemaPath(error.schemaPath());
+        mapped.setKeyword(error.keyword());
+        return mapped;
+      })
+      .toList();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the language groups of a validation concurrently, on a bounded pool shared by all
+ * validations. When every thread is busy, a group runs on the thread that submitted it
+ * instead of waiting, so a validation is never slower than validating its groups one by one.
+ */
+@Component
+public class LanguageGroupExecutor implements Executor {
+
+  private final ThreadPoolExecutor executor;
+
+  public LanguageGroupExecutor(ValidationProperties properties) {
+    int threads = Math.max(1, properties.getLanguageGroupThreads());
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+      new ThreadPoolExecutor(
+        0,
+        threads,
+        60,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(
+            runnable,
+            "gbfs-validation-language-group-" + threadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy()
+      );
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    executor.execute(command);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import org.entur.gbfs.validation.GbfsValidator;
+import org.entur.gbfs.validation.IncrementalValidation;
+import org.entur.gbfs.validation.model.FileValidationResult;
+import org.entur.gbfs.validation.model.ValidationResult;
+import org.entur.gbfs.validator.loader.FeedReference;
+import org.entur.gbfs.validator.loader.LoadListener;
+import org.entur.gbfs.validator.loader.LoadedFile;
+
+/**
+ * Validates files while the loader is still fetching the rest of the feed. Files are grouped
+ * by language like in a regular validation, with one incremental validation per language.
+ * Each file is parsed once, by the validation of its own language group, and the groups are
+ * finished concurrently.
+ */
+class LanguageGroupedValidation implements LoadListener {
+
+  static final String DEFAULT_LANGUAGE_KEY = "default_lang";
+
+  private final GbfsValidator validator;
+  private final Executor executor;
+  private final BiConsumer<String, FileValidationResult> onFileValidated;
+  private final Map<String, IncrementalValidation> validations =
+    new ConcurrentHashMap<>();
+
+  LanguageGroupedValidation(GbfsValidator validator, Executor executor) {
+    this(validator, executor, (languageKey, fileValidationResult) -> {});
+  }
+
+  /**
+   * @param validator the validator to start the incremental validations with
+   * @param executor runs the language groups when the validation is finished
+   * @param onFileValidated receives the language key and result of each file as soon as the
+   *                        file has been validated, from the thread that validated it
+   */
+  LanguageGroupedValidation(
+    GbfsValidator validator,
+    Executor executor,
+    BiConsumer<String, FileValidationResult> onFileValidated
+  ) {
+    this.validator = validator;
+    this.executor = executor;
+    this.onFileValidated = onFileValidated;
+  }
+
+  static String languageKey(LoadedFile loadedFile) {
+    return loadedFile.language() != null
+      ? loadedFile.language()
+      : DEFAULT_LANGUAGE_KEY;
+  }
+
+  @Override
+  public void onFeedsDiscovered(List<FeedReference> feeds) {
+    Map<String, Set<String>> expectedFilesByLanguage = new HashMap<>();
+    for (FeedReference feed : feeds) {
+      expectedFilesByLanguage
+        .computeIfAbsent(
+          feed.language() != null ? feed.language() : DEFAULT_LANGUAGE_KEY,
+          key -> new HashSet<>()
+        )
+        .add(feed.name());
+    }
+    expectedFilesByLanguage.forEach((languageKey, expectedFiles) ->
+      validations.put(languageKey, startValidation(languageKey, expectedFiles))
+    );
+  }
+
+  @Override
+  public void onFileLoaded(LoadedFile loadedFile) {
+    validations
+      .computeIfAbsent(
+        languageKey(loadedFile),
+        key -> startValidation(key, Set.of())
+      )
+      .accept(loadedFile.fileName(), loadedFile.fileContents());
+  }
+
+  private IncrementalValidation startValidation(
+    String languageKey,
+    Set<String> expectedFiles
+  ) {
+    return validator.startValidation(
+      expectedFiles,
+      fileValidationResult ->
+        onFileValidated.accept(languageKey, fileValidationResult)
+    );
+  }
+
+  /**
+   * Finishes the validation of every language group, once the loader has returned. The groups
+   * are finished concurrently.
+   *
+   * @return the validation results keyed by language, see {@link #languageKey(LoadedFile)}
+   */
+  Map<String, ValidationResult> finish() {
+    Map<String, CompletableFuture<ValidationResult>> finishing =
+      new HashMap<>();
+    validations.forEach((languageKey, validation) ->
+      finishing.put(
+        languageKey,
+        CompletableFuture.supplyAsync(validation::finish, executor)
+      )
+    );
+
+    Map<String, ValidationResult> results = new HashMap<>();
+    finishing.forEach((languageKey, result) -> {
+      try {
+        results.put(languageKey, result.join());
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw e;
+      }
+    });
+    return results;
+  }
+}
@@ -20,7 +20,9 @@
 
 package org.entur.gbfs.validator.api.handler;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.entur.gbfs.validator.loader.Loader;
+import org.entur.gbfs.validator.loader.LoaderOptions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -28,14 +30,45 @@ import org.springframework.context.annotation.Configuration;
 public class LoaderConfiguration {
 
   @Bean
-  public Loader loader(LoaderProperties properties) {
-    return new Loader(
+  public Loader loader(
+    LoaderProperties properties,
+    MeterRegistry meterRegistry
+  ) {
+    MicrometerLoaderMetrics metrics = new MicrometerLoaderMetrics(
+      meterRegistry
+    );
+    LoaderOptions options = new LoaderOptions();
+    options.setExecutionMode(properties.getThreadPool().getMode());
+    options.setMaxConcurrentRequests(
+      properties.getThreadPool().getMaxConcurrentRequests()
+    );
+    options.setMaxConcurrentRequestsPerHost(
+      properties.getThreadPool().getMaxConcurrentRequestsPerHost()
+    );
+    options.setMaxRequestsPerSecondPerHost(
+      properties.getThreadPool().getMaxRequestsPerSecondPerHost()
+    );
+    options.setListenerThreads(properties.getThreadPool().getListenerThreads());
+    options.setHostLimits(properties.getHosts());
+    options.setRetryPolicy(properties.getRetry());
+    options.setCircuitBreaker(properties.getCircuitBreaker());
+    options.setCoalesceRequests(properties.getHttp().isCoalesceRequests());
+    options.setMaxBodySizeBytes(properties.getHttp().getMaxBodySizeBytes());
+    options.setSpillThresholdBytes(
+      properties.getHttp().getSpillThresholdBytes()
+    );
+    options.setMetrics(metrics);
+
+    Loader loader = new Loader(
       properties.getHttp().getMaxTotalConnections(),
       properties.getHttp().getMaxConnectionsPerRoute(),
       properties.getHttp().getConnectTimeoutSeconds(),
       properties.getHttp().getResponseTimeoutSeconds(),
       properties.getThreadPool().getSize(),
-      properties.getHttp().getHeaders()
+      properties.getHttp().getHeaders(),
+      options
     );
+    metrics.bindConnectionPool(loader);
+    return loader;
   }
 }
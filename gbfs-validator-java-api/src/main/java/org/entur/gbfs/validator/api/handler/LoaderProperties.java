@@ -22,6 +22,10 @@ package org.entur.gbfs.validator.api.handler;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.entur.gbfs.validator.loader.CircuitBreakerPolicy;
+import org.entur.gbfs.validator.loader.ExecutionMode;
+import org.entur.gbfs.validator.loader.HostLimits;
+import org.entur.gbfs.validator.loader.RetryPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -31,6 +35,9 @@ public class LoaderProperties {
 
   private Http http = new Http();
   private ThreadPool threadPool = new ThreadPool();
+  private Map<String, HostLimits> hosts = new HashMap<>();
+  private RetryPolicy retry = new RetryPolicy();
+  private CircuitBreakerPolicy circuitBreaker = new CircuitBreakerPolicy();
 
   public Http getHttp() {
     return http;
@@ -48,6 +55,30 @@ public class LoaderProperties {
     this.threadPool = threadPool;
   }
 
+  public Map<String, HostLimits> getHosts() {
+    return hosts;
+  }
+
+  public void setHosts(Map<String, HostLimits> hosts) {
+    this.hosts = hosts;
+  }
+
+  public RetryPolicy getRetry() {
+    return retry;
+  }
+
+  public void setRetry(RetryPolicy retry) {
+    this.retry = retry;
+  }
+
+  public CircuitBreakerPolicy getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void setCircuitBreaker(CircuitBreakerPolicy circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
   public static class Http {
 
     private int maxTotalConnections = 50;
@@ -55,6 +86,9 @@ public class LoaderProperties {
     private int connectTimeoutSeconds = 5;
     private int responseTimeoutSeconds = 5;
     private Map<String, String> headers = new HashMap<>();
+    private boolean coalesceRequests = false;
+    private long maxBodySizeBytes = 0;
+    private long spillThresholdBytes = 0;
 
     public int getMaxTotalConnections() {
       return maxTotalConnections;
@@ -95,11 +129,40 @@ public class LoaderProperties {
     public void setHeaders(Map<String, String> headers) {
       this.headers = headers;
     }
+
+    public boolean isCoalesceRequests() {
+      return coalesceRequests;
+    }
+
+    public void setCoalesceRequests(boolean coalesceRequests) {
+      this.coalesceRequests = coalesceRequests;
+    }
+
+    public long getMaxBodySizeBytes() {
+      return maxBodySizeBytes;
+    }
+
+    public void setMaxBodySizeBytes(long maxBodySizeBytes) {
+      this.maxBodySizeBytes = maxBodySizeBytes;
+    }
+
+    public long getSpillThresholdBytes() {
+      return spillThresholdBytes;
+    }
+
+    public void setSpillThresholdBytes(long spillThresholdBytes) {
+      this.spillThresholdBytes = spillThresholdBytes;
+    }
   }
 
   public static class ThreadPool {
 
     private int size = 20;
+    private ExecutionMode mode = ExecutionMode.THREAD_POOL;
+    private int maxConcurrentRequests = 50;
+    private int maxConcurrentRequestsPerHost = 20;
+    private double maxRequestsPerSecondPerHost = 0;
+    private int listenerThreads = 0;
 
     public int getSize() {
       return size;
@@ -108,5 +171,49 @@ public class LoaderProperties {
     public void setSize(int size) {
       this.size = size;
     }
+
+    public ExecutionMode getMode() {
+      return mode;
+    }
+
+    public void setMode(ExecutionMode mode) {
+      this.mode = mode;
+    }
+
+    public int getMaxConcurrentRequests() {
+      return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+      this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public int getMaxConcurrentRequestsPerHost() {
+      return maxConcurrentRequestsPerHost;
+    }
+
+    public void setMaxConcurrentRequestsPerHost(
+      int maxConcurrentRequestsPerHost
+    ) {
+      this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+    }
+
+    public double getMaxRequestsPerSecondPerHost() {
+      return maxRequestsPerSecondPerHost;
+    }
+
+    public void setMaxRequestsPerSecondPerHost(
+      double maxRequestsPerSecondPerHost
+    ) {
+      this.maxRequestsPerSecondPerHost = maxRequestsPerSecondPerHost;
+    }
+
+    public int getListenerThreads() {
+      return listenerThreads;
+    }
+
+    public void setListenerThreads(int listenerThreads) {
+      this.listenerThreads = listenerThreads;
+    }
   }
 }
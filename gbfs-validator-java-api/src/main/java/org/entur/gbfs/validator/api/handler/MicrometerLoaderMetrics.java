@@ -0,0 +1,148 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import org.entur.gbfs.validator.loader.ConnectionPoolStats;
+import org.entur.gbfs.validator.loader.Loader;
+import org.entur.gbfs.validator.loader.LoaderMetrics;
+
+/**
+ * Publishes the Loader's request latencies, loader errors and connection pool usage to
+ * Micrometer, so they are available from the Actuator metrics endpoint.
+ */
+public class MicrometerLoaderMetrics implements LoaderMetrics {
+
+  private final MeterRegistry registry;
+  private final Set<String> boundRoutes = ConcurrentHashMap.newKeySet();
+  private volatile Loader loader;
+
+  public MicrometerLoaderMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Registers gauges for the loader's connection pool. Gauges of a single route are added
+   * once the route is first used.
+   */
+  public void bindConnectionPool(Loader loader) {
+    this.loader = loader;
+    registerPoolGauges(Tags.empty(), loader::getConnectionPoolStats);
+  }
+
+  @Override
+  public void requestCompleted(
+    String route,
+    int statusCode,
+    long durationNanos
+  ) {
+    Timer
+      .builder("gbfs.loader.requests")
+      .description("HTTP requests sent by the loader, including retries")
+      .tag("route", route)
+      .tag("status", statusCode == 0 ? "NONE" : String.valueOf(statusCode))
+      .publishPercentileHistogram()
+      .register(registry)
+      .record(durationNanos, TimeUnit.NANOSECONDS);
+
+    Loader boundLoader = loader;
+    if (boundLoader != null && boundRoutes.add(route)) {
+      registerPoolGauges(
+        Tags.of("route", route),
+        () -> boundLoader.getConnectionPoolStatsPerRoute().get(route)
+      );
+    }
+  }
+
+  @Override
+  public void fileFailed(String route, String error) {
+    Counter
+      .builder("gbfs.loader.errors")
+      .description("Files the loader failed to fetch, by loader error type")
+      .tag("route", route)
+      .tag("error", error)
+      .register(registry)
+      .increment();
+  }
+
+  private void registerPoolGauges(
+    Tags tags,
+    Supplier<ConnectionPoolStats> stats
+  ) {
+    registerPoolGauge(
+      "gbfs.loader.connections.leased",
+      "Connections currently used by requests",
+      tags,
+      stats,
+      ConnectionPoolStats::leased
+    );
+    registerPoolGauge(
+      "gbfs.loader.connections.available",
+      "Idle connections kept open for reuse",
+      tags,
+      stats,
+      ConnectionPoolStats::available
+    );
+    registerPoolGauge(
+      "gbfs.loader.connections.pending",
+      "Requests waiting for a connection",
+      tags,
+      stats,
+      ConnectionPoolStats::pending
+    );
+    registerPoolGauge(
+      "gbfs.loader.connections.max",
+      "Maximum number of connections",
+      tags,
+      stats,
+      ConnectionPoolStats::max
+    );
+  }
+
+  private void registerPoolGauge(
+    String name,
+    String description,
+    Tags tags,
+    Supplier<ConnectionPoolStats> stats,
+    ToIntFunction<ConnectionPoolStats> value
+  ) {
+    Gauge
+      .builder(
+        name,
+        () -> {
+          ConnectionPoolStats current = stats.get();
+          return current != null ? value.applyAsInt(current) : 0;
+        }
+      )
+      .description(description)
+      .tags(tags)
+      .register(registry);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes results to a streamed response as they become available, either as newline-delimited
+ * JSON or as server-sent events. Results may be written from several threads. Once writing
+ * fails, e.g. because the client has gone away, further results are dropped and the failure is
+ * rethrown when the stream is done.
+ */
+class ResultStreamWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(
+    ResultStreamWriter.class
+  );
+
+  private final OutputStream outputStream;
+  private final boolean eventStream;
+  private final ObjectMapper objectMapper;
+  private IOException failure;
+
+  /**
+   * @param eventStream whether to write server-sent events rather than newline-delimited JSON
+   */
+  ResultStreamWriter(
+    OutputStream outputStream,
+    boolean eventStream,
+    ObjectMapper objectMapper
+  ) {
+    this.outputStream = outputStream;
+    this.eventStream = eventStream;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * @param accept the Accept header of the request, or null
+   * @return whether the client asked for server-sent events
+   */
+  static boolean isEventStream(String accept) {
+    return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+  }
+
+  static MediaType contentType(boolean eventStream) {
+    return eventStream
+      ? MediaType.TEXT_EVENT_STREAM
+      : MediaType.APPLICATION_NDJSON;
+  }
+
+  /**
+   * Writes a result as one line of JSON, or as an event of the given name.
+   */
+  synchronized void write(String event, Object result) {
+    if (failure != null) {
+      return;
+    }
+    try {
+      writeEvent(event, objectMapper.writeValueAsString(result));
+    } catch (IOException e) {
+      logger.debug("Failed to write {}, dropping the rest", event, e);
+      failure = e;
+    }
+  }
+
+  /**
+   * Ends the stream, with a "done" event holding the given value for an event stream.
+   *
+   * @throws IOException if writing any of the results failed
+   */
+  synchronized void done(Object value) throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+    if (eventStream) {
+      writeEvent("done", objectMapper.writeValueAsString(value));
+    }
+  }
+
+  private void writeEvent(String event, String json) throws IOException {
+    String frame = eventStream
+      ? "event: " + event + "\ndata: " + json + "\n\n"
+      : json + "\n";
+    outputStream.write(frame.getBytes(StandardCharsets.UTF_8));
+    outputStream.flush();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.entur.gbfs.validation.validator.versions.Version;
+import org.entur.gbfs.validation.validator.versions.VersionFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identifies the schemas of each file type as published by the SHA-256 hash of their text, so
+ * that responses can refer to a schema by its URL instead of inlining it. Files of most types
+ * are validated against the schema of their version as published, but custom rules patch the
+ * schemas of some types with values from the feed's other files, so those schemas can differ
+ * from feed to feed. Such variants have no URL, since any instance must be able to serve a
+ * schema for as long as results referring to it are kept, so they are inlined instead.
+ */
+@Component
+public class SchemaStore {
+
+  private final Map<String, StoredSchema> baseSchemas =
+    new ConcurrentHashMap<>();
+
+  /**
+   * @param version the GBFS version of the file
+   * @param file the name of the file
+   * @param schema the text of the schema the file was validated against
+   * @return the hash identifying the schema, or null if it is not the schema as published
+   */
+  public String publishedHash(String version, String file, String schema) {
+    StoredSchema base = getBaseSchema(version, file);
+    return base != null && base.schema().equals(schema) ? base.hash() : null;
+  }
+
+  /**
+   * @param version the GBFS version of the file
+   * @param file the name of the file
+   * @param hash the hash of the schema, or null for the schema as published
+   * @return the schema as published, or null if the version or the file is unknown, or the hash
+   *         is not that of the schema as published
+   */
+  public StoredSchema get(String version, String file, String hash) {
+    StoredSchema base = getBaseSchema(version, file);
+    return hash == null || (base != null && base.hash().equals(hash))
+      ? base
+      : null;
+  }
+
+  /**
+   * @return the URL the schema is served from, see {@link SchemasApiDelegateHandler}
+   */
+  public static String url(String version, String file, String hash) {
+    return "/schemas/" + version + "/" + file + "?hash=" + hash;
+  }
+
+  /**
+   * The schema of a file type as published, loaded once per version and file. Unknown
+   * versions and files are not remembered, since they come from request paths.
+   */
+  private StoredSchema getBaseSchema(String version, String file) {
+    String key = version + "/" + file;
+    StoredSchema base = baseSchemas.get(key);
+    if (base == null) {
+      base = loadBaseSchema(version, file);
+      if (base != null) {
+        baseSchemas.putIfAbsent(key, base);
+      }
+    }
+    return base;
+  }
+
+  private static StoredSchema loadBaseSchema(String version, String file) {
+    Version gbfsVersion;
+    try {
+      gbfsVersion = VersionFactory.createVersion(version);
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+    if (!gbfsVersion.getFileNames().contains(file)) {
+      return null;
+    }
+    String schema = gbfsVersion.getSchema(file).toString();
+    return new StoredSchema(version, file, schema, hash(schema));
+  }
+
+  private static String hash(String schema) {
+    return Hashing
+      .sha256()
+      .hashString(schema, StandardCharsets.UTF_8)
+      .toString();
+  }
+
+  /**
+   * A schema with the version and name of the file type it belongs to.
+   */
+  public record StoredSchema(
+    String version,
+    String file,
+    String schema,
+    String hash
+  ) {}
+}
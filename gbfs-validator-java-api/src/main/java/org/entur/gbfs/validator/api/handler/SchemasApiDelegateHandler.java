@@ -0,0 +1,85 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.util.concurrent.TimeUnit;
+import org.entur.gbfs.validator.api.gen.SchemasApiDelegate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+/**
+ * Serves the schemas validated files refer to by their schemaUrl, so that clients of compact
+ * results can fetch each schema once and keep it cached.
+ */
+@Service
+public class SchemasApiDelegateHandler implements SchemasApiDelegate {
+
+  /**
+   * A schema identified by its hash never changes, so it may be cached for as long as caches
+   * keep anything.
+   */
+  private static final CacheControl IMMUTABLE = CacheControl
+    .maxAge(365, TimeUnit.DAYS)
+    .cachePublic()
+    .immutable();
+
+  private final SchemaStore schemaStore;
+  private final CacheControl publishedSchemaCacheControl;
+
+  public SchemasApiDelegateHandler(
+    SchemaStore schemaStore,
+    ValidationProperties properties
+  ) {
+    this.schemaStore = schemaStore;
+    this.publishedSchemaCacheControl =
+      CacheControl
+        .maxAge(properties.getSchemas().getMaxAgeSeconds(), TimeUnit.SECONDS)
+        .cachePublic();
+  }
+
+  /**
+   * Returns a schema with its hash as a strong ETag. Requests with a matching If-None-Match
+   * header are answered with 304 Not Modified by Spring MVC.
+   *
+   * @param version the GBFS version of the file type
+   * @param file the name of the file type, like station_information
+   * @param hash the hash of the schema as in a file's schemaHash, or null for the schema as
+   *             published, which may change when the validator is upgraded
+   * @return the schema, or 404 Not Found if the version, the file or the hash is unknown
+   */
+  @Override
+  public ResponseEntity<String> getSchema(
+    String version,
+    String file,
+    String hash
+  ) {
+    SchemaStore.StoredSchema schema = schemaStore.get(version, file, hash);
+    if (schema == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity
+      .ok()
+      .eTag(schema.hash())
+      .cacheControl(hash != null ? IMMUTABLE : publishedSchemaCacheControl)
+      .body(schema.schema());
+  }
+}
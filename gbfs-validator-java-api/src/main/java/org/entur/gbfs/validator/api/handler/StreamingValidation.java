@@ -0,0 +1,140 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.entur.gbfs.validation.GbfsValidator;
+import org.entur.gbfs.validation.model.FileValidationResult;
+import org.entur.gbfs.validation.model.ValidationResult;
+import org.entur.gbfs.validator.api.model.GbfsFile;
+import org.entur.gbfs.validator.loader.FeedReference;
+import org.entur.gbfs.validator.loader.LoadListener;
+import org.entur.gbfs.validator.loader.LoadedFile;
+
+/**
+ * Passes on each loaded file as soon as it has been validated, instead of collecting the
+ * results of the whole feed. Files without a validation result of their own, like files that
+ * could not be loaded, are passed on when the validation is finished. Every loaded file is
+ * passed on exactly once, mapped like in a regular validation.
+ */
+class StreamingValidation implements LoadListener {
+
+  private final GbfsFileMapper mapper;
+  private final Consumer<GbfsFile> onFile;
+  private final LanguageGroupedValidation validation;
+  private final Map<String, LoadedFile> loadedFiles = new ConcurrentHashMap<>();
+  private final Set<String> passedOnFiles = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param validator the validator to validate the files with
+   * @param executor runs the language groups when the validation is finished
+   * @param mapper maps the files to pass on
+   * @param onFile receives each file with its validation result, possibly from several
+   *               threads at once
+   */
+  StreamingValidation(
+    GbfsValidator validator,
+    Executor executor,
+    GbfsFileMapper mapper,
+    Consumer<GbfsFile> onFile
+  ) {
+    this.mapper = mapper;
+    this.onFile = onFile;
+    this.validation =
+      new LanguageGroupedValidation(validator, executor, this::onValidated);
+  }
+
+  @Override
+  public void onFeedsDiscovered(List<FeedReference> feeds) {
+    validation.onFeedsDiscovered(feeds);
+  }
+
+  @Override
+  public void onFileLoaded(LoadedFile loadedFile) {
+    // Recorded before validation starts, since the file may be validated right away
+    String languageKey = LanguageGroupedValidation.languageKey(loadedFile);
+    loadedFiles.put(fileKey(languageKey, loadedFile.fileName()), loadedFile);
+    validation.onFileLoaded(loadedFile);
+  }
+
+  /**
+   * Finishes the validation and passes on the files that have not been passed on yet, once
+   * the loader has returned.
+   *
+   * @param allLoadedFiles the files returned from the loader
+   */
+  void finish(List<LoadedFile> allLoadedFiles) {
+    Map<String, ValidationResult> validationResultsByLanguage =
+      validation.finish();
+    for (LoadedFile loadedFile : allLoadedFiles) {
+      String languageKey = LanguageGroupedValidation.languageKey(loadedFile);
+      ValidationResult validationResult = validationResultsByLanguage.get(
+        languageKey
+      );
+      passOn(
+        languageKey,
+        loadedFile,
+        validationResult != null
+          ? validationResult.files().get(loadedFile.fileName())
+          : null
+      );
+    }
+  }
+
+  private void onValidated(
+    String languageKey,
+    FileValidationResult fileValidationResult
+  ) {
+    LoadedFile loadedFile = loadedFiles.get(
+      fileKey(languageKey, fileValidationResult.file())
+    );
+    if (loadedFile != null) {
+      passOn(languageKey, loadedFile, fileValidationResult);
+    }
+  }
+
+  private void passOn(
+    String languageKey,
+    LoadedFile loadedFile,
+    FileValidationResult fileValidationResult
+  ) {
+    if (passedOnFiles.add(fileKey(languageKey, loadedFile.fileName()))) {
+      onFile.accept(
+        mapper.map(
+          loadedFile,
+          fileValidationResult,
+          LanguageGroupedValidation.DEFAULT_LANGUAGE_KEY.equals(languageKey)
+            ? null
+            : languageKey
+        )
+      );
+    }
+  }
+
+  private static String fileKey(String languageKey, String fileName) {
+    return languageKey + "/" + fileName;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.io.IOException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when uploaded files cannot be validated, because they exceed the upload limits or
+ * are not a set of GBFS files.
+ */
+public class UploadRejectedException extends IOException {
+
+  private final HttpStatus status;
+
+  public UploadRejectedException(HttpStatus status, String message) {
+    super(message);
+    this.status = status;
+  }
+
+  /**
+   * @return the status to answer the upload with
+   */
+  public HttpStatus getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * The GBFS files of an upload, opened as streams over the uploaded files or the entries of
+ * uploaded ZIP archives, so that the validator reads them without their contents being held
+ * on the heap first. ZIP archives are spooled to temporary files to read their entries, and
+ * the temporary files are deleted when the upload is closed.
+ * Files are named after their path without directories and the .json extension, so an archive
+ * of a feed directory can be uploaded as is. Entries that are not JSON files are ignored.
+ */
+class UploadedFiles implements Closeable {
+
+  private static final String ZIP_CONTENT_TYPE = "application/zip";
+
+  private final ValidationProperties.Upload limits;
+  private final Map<String, InputStream> files = new LinkedHashMap<>();
+  private final List<LoadedFile> loadedFiles = new ArrayList<>();
+  private final Deque<Closeable> resources = new ArrayDeque<>();
+  private long uploadedBytes;
+  private long fileBytes;
+  private volatile UploadRejectedException readRejection;
+
+  UploadedFiles(ValidationProperties.Upload limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * Adds a file of a multipart upload, or the files of a ZIP archive.
+   *
+   * @throws UploadRejectedException if the upload exceeds the limits or the file has no name
+   */
+  void addMultipartFile(MultipartFile file) throws IOException {
+    String path = file.getOriginalFilename();
+    if (path == null || path.isBlank()) {
+      throw new UploadRejectedException(
+        HttpStatus.BAD_REQUEST,
+        "Uploaded file has no file name"
+      );
+    }
+    countUploadedBytes(file.getSize());
+    if (
+      ZIP_CONTENT_TYPE.equals(file.getContentType()) ||
+      path.toLowerCase(Locale.ROOT).endsWith(".zip")
+    ) {
+      Path zip = createTempFile();
+      file.transferTo(zip);
+      addZip(zip);
+    } else {
+      add(path, file.getSize(), file::getInputStream);
+    }
+  }
+
+  /**
+   * @return the files to validate, keyed by file name
+   */
+  Map<String, InputStream> files() {
+    return Collections.unmodifiableMap(files);
+  }
+
+  /**
+   * @return the files as if loaded, to report them like files of a loaded feed
+   */
+  List<LoadedFile> loadedFiles() {
+    return Collections.unmodifiableList(loadedFiles);
+  }
+
+  /**
+   * @return the size of the uploaded files, uncompressed where known
+   */
+  long size() {
+    return fileBytes;
+  }
+
+  /**
+   * Sizes of ZIP entries may be unknown or wrong, so the maximum file size is enforced while
+   * files are read too. The validator reports a file failing to read as a read error, so the
+   * upload is checked once validated, to reject it as a whole instead.
+   *
+   * @throws UploadRejectedException if a file turned out to exceed the maximum file size
+   */
+  void checkReadLimits() throws UploadRejectedException {
+    if (readRejection != null) {
+      throw readRejection;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    while (!resources.isEmpty()) {
+      try {
+        resources.pop().close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void addZip(Path zip) throws IOException {
+    ZipFile zipFile = new ZipFile(zip.toFile());
+    resources.push(zipFile);
+    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    while (entries.hasMoreElements()) {
+      ZipEntry entry = entries.nextElement();
+      if (isGbfsFile(entry)) {
+        add(
+          entry.getName(),
+          entry.getSize(),
+          () -> zipFile.getInputStream(entry)
+        );
+      }
+    }
+  }
+
+  private void add(String path, long size, Source source)
+    throws IOException {
+    String fileName = fileName(path);
+    if (files.containsKey(fileName)) {
+      throw new UploadRejectedException(
+        HttpStatus.BAD_REQUEST,
+        "More than one file named " + fileName
+      );
+    }
+    if (files.size() >= limits.getMaxFiles()) {
+      throw new UploadRejectedException(
+        HttpStatus.PAYLOAD_TOO_LARGE,
+        "More than " + limits.getMaxFiles() + " files uploaded"
+      );
+    }
+    if (size > limits.getMaxFileSizeBytes()) {
+      throw fileTooLarge(path);
+    }
+    SizeLimitedInputStream contents = new SizeLimitedInputStream(source, path);
+    resources.push(contents);
+    files.put(fileName, contents);
+    loadedFiles.add(new LoadedFile(fileName, path, null));
+    fileBytes += Math.max(size, 0);
+  }
+
+  private void countUploadedBytes(long bytes) throws UploadRejectedException {
+    uploadedBytes += bytes;
+    if (uploadedBytes > limits.getMaxUploadSizeBytes()) {
+      throw new UploadRejectedException(
+        HttpStatus.PAYLOAD_TOO_LARGE,
+        "Upload exceeds " + limits.getMaxUploadSizeBytes() + " bytes"
+      );
+    }
+  }
+
+  private UploadRejectedException fileTooLarge(String path) {
+    return new UploadRejectedException(
+      HttpStatus.PAYLOAD_TOO_LARGE,
+      path + " exceeds " + limits.getMaxFileSizeBytes() + " bytes"
+    );
+  }
+
+  private Path createTempFile() throws IOException {
+    Path file = Files.createTempFile("gbfs-upload", ".zip");
+    resources.push(() -> Files.deleteIfExists(file));
+    return file;
+  }
+
+  private static boolean isGbfsFile(ZipEntry entry) {
+    String name = entry.getName();
+    return (
+      !entry.isDirectory() &&
+      name.toLowerCase(Locale.ROOT).endsWith(".json") &&
+      !name.startsWith("__MACOSX/") &&
+      !fileName(name).startsWith(".")
+    );
+  }
+
+  private static String fileName(String path) {
+    String name = path.substring(path.lastIndexOf('/') + 1);
+    return name.toLowerCase(Locale.ROOT).endsWith(".json")
+      ? name.substring(0, name.length() - ".json".length())
+      : name;
+  }
+
+  /**
+   * Opens an uploaded file from its start, from the multipart request or the ZIP archive.
+   */
+  private interface Source {
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * Fails reading a file once it exceeds the maximum file size, see {@link #checkReadLimits()}.
+   * Supports mark and reset by opening the file again, so the validator parses it straight
+   * from the stream instead of reading it into a string first, and only reads it again to
+   * report the contents of a file that failed to parse.
+   */
+  private class SizeLimitedInputStream extends FilterInputStream {
+
+    private final Source source;
+    private final String path;
+    private long position;
+    private long markedPosition;
+
+    private SizeLimitedInputStream(Source source, String path)
+      throws IOException {
+      super(source.open());
+      this.source = source;
+      this.path = path;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      markedPosition = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+      in.close();
+      in = source.open();
+      in.skipNBytes(markedPosition);
+      position = markedPosition;
+    }
+
+    private void count(long bytes) throws UploadRejectedException {
+      position += bytes;
+      if (position > limits.getMaxFileSizeBytes()) {
+        UploadRejectedException e = fileTooLarge(path);
+        if (readRejection == null) {
+          readRejection = e;
+        }
+        throw e;
+      }
+    }
+  }
+}
@@ -20,37 +20,43 @@
 
 package org.entur.gbfs.validator.api.handler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.entur.gbfs.validation.GbfsValidator;
-import org.entur.gbfs.validation.GbfsValidatorFactory;
-import org.entur.gbfs.validation.model.FileValidationError;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import org.entur.gbfs.validation.model.FileValidationResult;
 import org.entur.gbfs.validation.model.ValidationResult;
-import org.entur.gbfs.validation.model.ValidatorError;
 import org.entur.gbfs.validator.api.gen.ValidateApiDelegate;
-import org.entur.gbfs.validator.api.model.FileError;
+import org.entur.gbfs.validator.api.handler.ValidationResultCache.CachedValidationResult;
+import org.entur.gbfs.validator.api.model.BatchValidationRequest;
 import org.entur.gbfs.validator.api.model.GbfsFile;
-import org.entur.gbfs.validator.api.model.SystemError;
 import org.entur.gbfs.validator.api.model.ValidatePostRequest;
 import org.entur.gbfs.validator.api.model.ValidatePostRequestAuth;
+import org.entur.gbfs.validator.api.model.ValidationJob;
 import org.entur.gbfs.validator.api.model.ValidationResultSummary;
+import org.entur.gbfs.validator.api.model.ValidationView;
 import org.entur.gbfs.validator.loader.LoadedFile;
 import org.entur.gbfs.validator.loader.Loader;
-import org.entur.gbfs.validator.loader.LoaderError;
 import org.entur.gbfs.validator.loader.auth.Authentication;
-import org.openapitools.jackson.nullable.JsonNullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Service implementation for GBFS validation API operations.
@@ -63,21 +69,71 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
     ValidateApiDelegateHandler.class
   );
 
+  /**
+   * Response header telling whether the result was served from the result cache.
+   */
+  static final String CACHE_STATUS_HEADER = "X-Cache";
+
   private final Loader loader;
   private final VersionProvider versionProvider;
+  private final ValidationResultCache resultCache;
+  private final ValidationJobs validationJobs;
+  private final ValidationBatches validationBatches;
+  private final ValidationAdmission admission;
+  private final LanguageGroupExecutor languageGroupExecutor;
+  private final SchemaStore schemaStore;
+  private final ObjectMapper objectMapper;
+  private final NativeWebRequest request;
+  private final ValidationProperties.Upload uploadLimits;
+  private final int jobRetryAfterSeconds;
+  private final int admissionRetryAfterSeconds;
+  private final ValidationCoalescer inFlightValidations;
 
   /**
    * Creates a new validation handler.
    *
    * @param loader the GBFS file loader to use
    * @param versionProvider provides access to application version information
+   * @param resultCache caches validation results of recently validated feeds
+   * @param validationJobs runs asynchronous validation jobs
+   * @param validationBatches validates the feeds of batches
+   * @param admission limits the validations running at once
+   * @param languageGroupExecutor validates the language groups of a feed concurrently
+   * @param schemaStore stores the schemas files were validated against
+   * @param properties validation settings
+   * @param objectMapper writes the files of streamed results
+   * @param request the request being handled, a proxy resolving to the current request
    */
   public ValidateApiDelegateHandler(
     Loader loader,
-    VersionProvider versionProvider
+    VersionProvider versionProvider,
+    ValidationResultCache resultCache,
+    ValidationJobs validationJobs,
+    ValidationBatches validationBatches,
+    ValidationAdmission admission,
+    LanguageGroupExecutor languageGroupExecutor,
+    SchemaStore schemaStore,
+    ValidationProperties properties,
+    ObjectMapper objectMapper,
+    NativeWebRequest request
   ) {
     this.loader = loader;
     this.versionProvider = versionProvider;
+    this.resultCache = resultCache;
+    this.validationJobs = validationJobs;
+    this.validationBatches = validationBatches;
+    this.admission = admission;
+    this.languageGroupExecutor = languageGroupExecutor;
+    this.schemaStore = schemaStore;
+    this.objectMapper = objectMapper;
+    this.request = request;
+    this.uploadLimits = properties.getUpload();
+    this.jobRetryAfterSeconds = properties.getJobs().getRetryAfterSeconds();
+    this.admissionRetryAfterSeconds =
+      properties.getAdmission().getRetryAfterSeconds();
+    this.inFlightValidations = new ValidationCoalescer(
+      Duration.ofSeconds(properties.getCoalescedWaitSeconds())
+    );
   }
 
   /**
@@ -97,9 +153,14 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
 
   /**
    * Validates a GBFS feed by loading all files and running validation.
+   * A result cached from an earlier validation of the same feed with the same credentials is
+   * returned instead, unless the request asks to bypass the cache. The Age header tells how
+   * many seconds old the result is. Identical requests arriving while the feed is being
+   * validated share that validation.
    *
    * @param validatePostRequest the validation request containing feed URL and optional authentication
-   * @return validation results with file-level errors and system errors
+   * @return validation results with file-level errors and system errors, or 429 Too Many
+   *         Requests if the server is too busy to validate the feed
    */
   @Override
   public ResponseEntity<org.entur.gbfs.validator.api.model.ValidationResult> validatePost(
@@ -109,72 +170,479 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
       "Received request for url: {}",
       validatePostRequest.getFeedUrl()
     );
+    String cacheKey = cacheKey(validatePostRequest);
+    CachedValidationResult cached = getCachedResult(
+      validatePostRequest,
+      cacheKey
+    );
+    if (cached != null) {
+      return ResponseEntity
+        .ok()
+        .header(HttpHeaders.AGE, String.valueOf(cached.ageSeconds()))
+        .header(CACHE_STATUS_HEADER, "HIT")
+        .body(cached.result());
+    }
+
     try {
-      Authentication loaderAuth = getAuthentication(validatePostRequest);
+      org.entur.gbfs.validator.api.model.ValidationResult result =
+        validateShared(validatePostRequest, cacheKey);
+      return ResponseEntity
+        .ok()
+        .header(HttpHeaders.AGE, "0")
+        .header(CACHE_STATUS_HEADER, "MISS")
+        .body(result);
+    } catch (AdmissionRejectedException e) {
+      logger.warn("Validation not admitted: {}", e.getMessage());
+      return tooManyRequests();
+    } catch (IOException e) {
+      logger.error("IOException during validation process", e);
+      throw new RuntimeException(e);
+    }
+  }
 
-      List<LoadedFile> allLoadedFiles = loader.load(
-        validatePostRequest.getFeedUrl(),
-        loaderAuth
-      );
+  /**
+   * Validates a GBFS feed, writing each file to the response as soon as it has been
+   * validated. The files are written as newline-delimited JSON, or as server-sent events when
+   * the client accepts text/event-stream. Results are neither cached nor shared with other
+   * requests, but the validation has to be admitted like for validatePost.
+   *
+   * @param validatePostRequest the validation request containing feed URL and optional authentication
+   * @return the stream of validated files, or 429 Too Many Requests if the server is too busy
+   *         to validate the feed
+   */
+  @Override
+  public ResponseEntity<StreamingResponseBody> validateStream(
+    ValidatePostRequest validatePostRequest
+  ) {
+    logger.debug(
+      "Received stream request for url: {}",
+      validatePostRequest.getFeedUrl()
+    );
+    boolean eventStream = ResultStreamWriter.isEventStream(
+      request.getHeader(HttpHeaders.ACCEPT)
+    );
 
-      logger.debug("Loaded files: {}", allLoadedFiles.size());
+    // Admitted before the response starts, so that a rejection can still be a 429
+    ValidationAdmission.Permit permit;
+    try {
+      permit = admission.admit(validatePostRequest.getFeedUrl());
+    } catch (AdmissionRejectedException e) {
+      logger.warn("Stream validation not admitted: {}", e.getMessage());
+      return tooManyRequests();
+    }
 
-      Multimap<String, LoadedFile> filesByLanguage = MultimapBuilder
-        .hashKeys()
-        .arrayListValues()
-        .build();
-      for (LoadedFile loadedFile : allLoadedFiles) {
-        String langKey = loadedFile.language() != null
-          ? loadedFile.language()
-          : "default_lang";
-        filesByLanguage.put(langKey, loadedFile);
+    StreamingResponseBody body = outputStream -> {
+      try (permit) {
+        ResultStreamWriter writer = new ResultStreamWriter(
+          outputStream,
+          eventStream,
+          objectMapper
+        );
+        GbfsFileMapper mapper = GbfsFileMapper.forRequest(
+          schemaStore,
+          validatePostRequest
+        );
+        StreamingValidation validation = new StreamingValidation(
+          mapper.validator(),
+          languageGroupExecutor,
+          mapper,
+          file -> writer.write("file", file)
+        );
+        List<LoadedFile> allLoadedFiles = loader.load(
+          validatePostRequest.getFeedUrl(),
+          getAuthentication(validatePostRequest),
+          validation
+        );
+        permit.loaded(allLoadedFiles);
+        validation.finish(allLoadedFiles);
+        writer.done(Map.of("validatorVersion", versionProvider.getVersion()));
       }
+    };
 
-      GbfsValidator validator = GbfsValidatorFactory.getGbfsJsonValidator();
-      List<org.entur.gbfs.validator.api.model.ValidationResult> resultsPerLanguage =
-        new ArrayList<>();
-
-      filesByLanguage
-        .asMap()
-        .forEach((languageKey, loadedFilesForLang) -> {
-          logger.debug("Processing language group: {}", languageKey);
-          Map<String, InputStream> validatorInputMap = new HashMap<>();
-          List<LoadedFile> currentLanguageLoadedFiles = new ArrayList<>(
-            loadedFilesForLang
-          );
-
-          for (LoadedFile file : currentLanguageLoadedFiles) {
-            if (file.fileContents() != null) {
-              validatorInputMap.put(file.fileName(), file.fileContents());
-            }
-          }
+    return ResponseEntity
+      .ok()
+      .contentType(ResultStreamWriter.contentType(eventStream))
+      .cacheControl(CacheControl.noStore())
+      .body(body);
+  }
 
-          ValidationResult internalValidationResult = validator.validate(
-            validatorInputMap
-          );
+  /**
+   * Validates a batch of GBFS feeds. The feeds are validated concurrently, on a pool shared by
+   * all batches, and like validatePost they use the result cache and share identical
+   * validations in flight. Each line of newline-delimited JSON, or each "result" event of an
+   * event stream, holds the {@link BatchValidationItem} of one feed, in the order the feeds are
+   * done.
+   *
+   * @param batchValidationRequest the feeds to validate
+   * @return the stream of feed results, or 400 Bad Request if the batch is empty or too large
+   */
+  @Override
+  public ResponseEntity<StreamingResponseBody> validateBatch(
+    BatchValidationRequest batchValidationRequest
+  ) {
+    List<ValidatePostRequest> feeds = batchValidationRequest.getFeeds();
+    if (
+      feeds == null ||
+      feeds.isEmpty() ||
+      feeds.size() > validationBatches.getMaxFeeds()
+    ) {
+      return ResponseEntity.badRequest().build();
+    }
+    logger.debug("Received batch of {} feeds", feeds.size());
+    boolean eventStream = ResultStreamWriter.isEventStream(
+      request.getHeader(HttpHeaders.ACCEPT)
+    );
 
-          resultsPerLanguage.add(
-            mapValidationResult(
-              internalValidationResult,
-              currentLanguageLoadedFiles,
-              "default_lang".equals(languageKey) ? null : languageKey
+    StreamingResponseBody body = outputStream -> {
+      ResultStreamWriter writer = new ResultStreamWriter(
+        outputStream,
+        eventStream,
+        objectMapper
+      );
+      // Feeds are written from this thread in the order they are done
+      BlockingQueue<BatchValidationItem> done = new LinkedBlockingQueue<>();
+      for (int i = 0; i < feeds.size(); i++) {
+        int index = i;
+        ValidatePostRequest feed = feeds.get(i);
+        validationBatches
+          .submit(() -> getOrValidate(feed))
+          .whenComplete((result, throwable) ->
+            done.add(
+              BatchValidationItem.of(
+                index,
+                feed.getFeedUrl(),
+                result,
+                throwable
+              )
             )
           );
-          logger.debug(
-            "Processed {} files for language group: {}",
-            currentLanguageLoadedFiles.size(),
-            languageKey
+      }
+      for (int i = 0; i < feeds.size(); i++) {
+        try {
+          writer.write("result", done.take());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException(
+            "Interrupted while validating batch"
           );
-        });
+        }
+      }
+      writer.done(Map.of("validatorVersion", versionProvider.getVersion()));
+    };
+
+    return ResponseEntity
+      .ok()
+      .contentType(ResultStreamWriter.contentType(eventStream))
+      .cacheControl(CacheControl.noStore())
+      .body(body);
+  }
 
-      return ResponseEntity.ok(mergeValidationResults(resultsPerLanguage));
+  /**
+   * Validates uploaded GBFS files without fetching anything, so that feeds can be validated
+   * before they are published. Each part is a GBFS file or a ZIP archive of GBFS files, read as
+   * a stream by the validator, see {@link UploadedFiles}. Results are neither cached nor shared
+   * with other requests, but the validation has to be admitted like for validatePost.
+   *
+   * @param files the uploaded GBFS files and ZIP archives of GBFS files
+   * @param view the fields of each file to include in the result
+   * @param compact whether to leave out the schema of each file
+   * @return the validation result, 400 Bad Request if no GBFS files were uploaded or two
+   *         have the same name, 413 Payload Too Large if the upload exceeds the limits, or
+   *         429 Too Many Requests if the server is too busy to validate the files
+   */
+  @Override
+  public ResponseEntity<org.entur.gbfs.validator.api.model.ValidationResult> validateUpload(
+    List<MultipartFile> files,
+    ValidationView view,
+    Boolean compact
+  ) {
+    GbfsFileMapper mapper = new GbfsFileMapper(
+      schemaStore,
+      view != null ? view : ValidationView.FULL,
+      Boolean.TRUE.equals(compact)
+    );
+    try (UploadedFiles uploadedFiles = new UploadedFiles(uploadLimits)) {
+      for (MultipartFile file : files) {
+        uploadedFiles.addMultipartFile(file);
+      }
+      if (uploadedFiles.files().isEmpty()) {
+        logger.warn("Upload holds no GBFS files");
+        return ResponseEntity.badRequest().build();
+      }
+      try (
+        ValidationAdmission.Permit permit = admission.admitUpload(
+          uploadedFiles.size()
+        )
+      ) {
+        ValidationResult validationResult = mapper
+          .validator()
+          .validate(uploadedFiles.files());
+        uploadedFiles.checkReadLimits();
+        return ResponseEntity.ok(
+          mapValidationResult(
+            validationResult,
+            uploadedFiles.loadedFiles(),
+            mapper,
+            null
+          )
+        );
+      }
+    } catch (UploadRejectedException e) {
+      logger.warn("Upload rejected: {}", e.getMessage());
+      return ResponseEntity.status(e.getStatus()).build();
+    } catch (AdmissionRejectedException e) {
+      logger.warn("Upload validation not admitted: {}", e.getMessage());
+      return tooManyRequests();
     } catch (IOException e) {
-      logger.error("IOException during validation process", e);
+      logger.error("IOException during upload validation", e);
       throw new RuntimeException(e);
     }
   }
 
-  private static Authentication getAuthentication(
+  /**
+   * Queues the feed for validation in the background and returns the job at once. The job
+   * uses the result cache and shares identical in-flight validations like validatePost does.
+   *
+   * @param validatePostRequest the validation request containing feed URL and optional authentication
+   * @return the queued job, or 429 Too Many Requests if the job queue is full
+   */
+  @Override
+  public ResponseEntity<ValidationJob> submitValidationJob(
+    ValidatePostRequest validatePostRequest
+  ) {
+    logger.debug(
+      "Received job for url: {}",
+      validatePostRequest.getFeedUrl()
+    );
+    ValidationJob job;
+    try {
+      job = validationJobs.submit(() -> getOrValidate(validatePostRequest));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Validation job queue is full, rejecting job");
+      return ResponseEntity
+        .status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(jobRetryAfterSeconds))
+        .build();
+    }
+    return ResponseEntity
+      .status(HttpStatus.ACCEPTED)
+      .header(HttpHeaders.LOCATION, "/validate/jobs/" + job.getId())
+      .body(job);
+  }
+
+  /**
+   * Returns the status of a validation job, and its result once it has succeeded.
+   *
+   * @param id the job id returned when the job was submitted
+   * @return the job, or 404 Not Found if the job is unknown or has expired
+   */
+  @Override
+  public ResponseEntity<ValidationJob> getValidationJob(String id) {
+    ValidationJob job = validationJobs.get(id);
+    if (job == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(job);
+  }
+
+  /**
+   * Returns the cached result of the feed, or validates it, sharing the validation with
+   * identical requests in flight. Used by the endpoints that do not report whether the result
+   * was cached.
+   *
+   * @param validatePostRequest the validation request containing feed URL and optional authentication
+   * @return the validation result
+   * @throws IOException if the feed could not be validated
+   */
+  private org.entur.gbfs.validator.api.model.ValidationResult getOrValidate(
+    ValidatePostRequest validatePostRequest
+  ) throws IOException {
+    String cacheKey = cacheKey(validatePostRequest);
+    CachedValidationResult cached = getCachedResult(
+      validatePostRequest,
+      cacheKey
+    );
+    return cached != null
+      ? cached.result()
+      : validateShared(validatePostRequest, cacheKey);
+  }
+
+  /**
+   * @return 429 Too Many Requests, asking the client to retry once running validations have
+   *         had time to finish
+   */
+  private <T> ResponseEntity<T> tooManyRequests() {
+    return ResponseEntity
+      .status(HttpStatus.TOO_MANY_REQUESTS)
+      .header(
+        HttpHeaders.RETRY_AFTER,
+        String.valueOf(admissionRetryAfterSeconds)
+      )
+      .build();
+  }
+
+  /**
+   * Results leave out the fields their view or compact mode does not ask for, so each view is
+   * cached apart from the others. Only full results include schemas, so only those are kept
+   * apart by compact mode.
+   */
+  private static String cacheKey(ValidatePostRequest validatePostRequest) {
+    String key = ValidationResultCache.key(
+      validatePostRequest.getFeedUrl(),
+      validatePostRequest.getAuth()
+    );
+    ValidationView view = GbfsFileMapper.view(validatePostRequest);
+    if (view != ValidationView.FULL) {
+      return key + " " + view.getValue();
+    }
+    return Boolean.TRUE.equals(validatePostRequest.getCompact())
+      ? key + " compact"
+      : key;
+  }
+
+  /**
+   * @return the cached result of the requested feed, or null if there is none or the request
+   *         asks to bypass the cache
+   */
+  private CachedValidationResult getCachedResult(
+    ValidatePostRequest validatePostRequest,
+    String cacheKey
+  ) {
+    if (Boolean.TRUE.equals(validatePostRequest.getBypassCache())) {
+      return null;
+    }
+    CachedValidationResult cached = resultCache.get(cacheKey);
+    if (cached != null) {
+      logger.debug(
+        "Returning cached result for url: {}",
+        validatePostRequest.getFeedUrl()
+      );
+    }
+    return cached;
+  }
+
+  /**
+   * Validates the feed, sharing the validation with identical requests in flight.
+   */
+  private org.entur.gbfs.validator.api.model.ValidationResult validateShared(
+    ValidatePostRequest validatePostRequest,
+    String cacheKey
+  ) throws IOException {
+    return inFlightValidations.validate(
+      cacheKey,
+      () -> validate(validatePostRequest, cacheKey)
+    );
+  }
+
+  /**
+   * Validates the feed once admitted, see {@link ValidationAdmission}.
+   *
+   * @throws AdmissionRejectedException if the server is too busy to validate the feed
+   */
+  private org.entur.gbfs.validator.api.model.ValidationResult validate(
+    ValidatePostRequest validatePostRequest,
+    String cacheKey
+  ) throws IOException {
+    try (
+      ValidationAdmission.Permit permit = admission.admit(
+        validatePostRequest.getFeedUrl()
+      )
+    ) {
+      return loadAndValidate(validatePostRequest, cacheKey, permit);
+    }
+  }
+
+  /**
+   * Loads and validates the feed, and caches the result if every file could be loaded.
+   */
+  private org.entur.gbfs.validator.api.model.ValidationResult loadAndValidate(
+    ValidatePostRequest validatePostRequest,
+    String cacheKey,
+    ValidationAdmission.Permit permit
+  ) throws IOException {
+    Authentication loaderAuth = getAuthentication(validatePostRequest);
+
+    GbfsFileMapper mapper = GbfsFileMapper.forRequest(
+      schemaStore,
+      validatePostRequest
+    );
+
+    // Files are validated as they arrive, so validation overlaps with loading
+    LanguageGroupedValidation validation = new LanguageGroupedValidation(
+      mapper.validator(),
+      languageGroupExecutor
+    );
+    List<LoadedFile> allLoadedFiles = loader.load(
+      validatePostRequest.getFeedUrl(),
+      loaderAuth,
+      validation
+    );
+    permit.loaded(allLoadedFiles);
+    Map<String, ValidationResult> validationResultsByLanguage =
+      validation.finish();
+
+    logger.debug("Loaded files: {}", allLoadedFiles.size());
+
+    // Groups keep the order of the loaded files, so the merged result is deterministic
+    Multimap<String, LoadedFile> filesByLanguage = MultimapBuilder
+      .linkedHashKeys()
+      .arrayListValues()
+      .build();
+    for (LoadedFile loadedFile : allLoadedFiles) {
+      filesByLanguage.put(
+        LanguageGroupedValidation.languageKey(loadedFile),
+        loadedFile
+      );
+    }
+
+    List<org.entur.gbfs.validator.api.model.ValidationResult> resultsPerLanguage =
+      new ArrayList<>();
+
+    filesByLanguage
+      .asMap()
+      .forEach((languageKey, loadedFilesForLang) -> {
+        logger.debug("Processing language group: {}", languageKey);
+        List<LoadedFile> currentLanguageLoadedFiles = new ArrayList<>(
+          loadedFilesForLang
+        );
+
+        resultsPerLanguage.add(
+          mapValidationResult(
+            validationResultsByLanguage.get(languageKey),
+            currentLanguageLoadedFiles,
+            mapper,
+            isDefaultLanguage(languageKey) ? null : languageKey
+          )
+        );
+        logger.debug(
+          "Processed {} files for language group: {}",
+          currentLanguageLoadedFiles.size(),
+          languageKey
+        );
+      });
+
+    org.entur.gbfs.validator.api.model.ValidationResult result =
+      mergeValidationResults(resultsPerLanguage);
+    // Failed fetches may be transient, so only results of complete loads are cached
+    if (isCompleteLoad(allLoadedFiles)) {
+      resultCache.put(cacheKey, result);
+    }
+    return result;
+  }
+
+  private static boolean isCompleteLoad(List<LoadedFile> loadedFiles) {
+    return loadedFiles
+      .stream()
+      .allMatch(file ->
+        file.loaderErrors() == null || file.loaderErrors().isEmpty()
+      );
+  }
+
+  private static boolean isDefaultLanguage(String languageKey) {
+    return LanguageGroupedValidation.DEFAULT_LANGUAGE_KEY.equals(languageKey);
+  }
+
+  static Authentication getAuthentication(
     ValidatePostRequest validatePostRequest
   ) {
     Authentication loaderAuth = null;
@@ -252,6 +720,7 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
   private org.entur.gbfs.validator.api.model.ValidationResult mapValidationResult(
     ValidationResult internalValidationResult,
     List<LoadedFile> loadedFilesForLanguage,
+    GbfsFileMapper mapper,
     String language
   ) {
     ValidationResultSummary validationResultSummary =
@@ -262,6 +731,7 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
       mapFiles(
         loadedFilesForLanguage,
         internalValidationResult.files(),
+        mapper,
         language
       )
     );
@@ -275,109 +745,19 @@ public class ValidateApiDelegateHandler implements ValidateApiDelegate {
   private List<GbfsFile> mapFiles(
     List<LoadedFile> loadedFilesForLanguage,
     Map<String, FileValidationResult> validatedFileResultsMap,
+    GbfsFileMapper mapper,
     String language
   ) {
     List<GbfsFile> apiGbfsFiles = new ArrayList<>();
-
     for (LoadedFile loadedFile : loadedFilesForLanguage) {
-      GbfsFile apiFile = new GbfsFile();
-      apiFile.setName(loadedFile.fileName());
-      apiFile.setUrl(loadedFile.url());
-
-      List<SystemError> combinedApiSystemErrors = new ArrayList<>();
-
-      List<LoaderError> loaderSystemErrors = loadedFile.loaderErrors();
-      if (loaderSystemErrors != null && !loaderSystemErrors.isEmpty()) {
-        combinedApiSystemErrors.addAll(
-          mapLoaderSystemErrorsToApi(loaderSystemErrors)
-        );
-      }
-
-      FileValidationResult validationResult = validatedFileResultsMap.get(
-        loadedFile.fileName()
+      apiGbfsFiles.add(
+        mapper.map(
+          loadedFile,
+          validatedFileResultsMap.get(loadedFile.fileName()),
+          language
+        )
       );
-
-      if (validationResult != null) {
-        apiFile.setSchema(validationResult.schema());
-        apiFile.setVersion(validationResult.version());
-        apiFile.setErrors(mapFileValidationErrors(validationResult.errors()));
-
-        List<ValidatorError> validatorSystemErrors =
-          validationResult.validatorErrors();
-        if (validatorSystemErrors != null && !validatorSystemErrors.isEmpty()) {
-          combinedApiSystemErrors.addAll(
-            mapValidatorSystemErrorsToApi(validatorSystemErrors)
-          );
-        }
-      } else {
-        apiFile.setErrors(new ArrayList<>());
-      }
-
-      apiFile.setSystemErrors(combinedApiSystemErrors);
-
-      if (
-        loadedFile.fileName().equals("gbfs.json") ||
-        loadedFile.fileName().equals("gbfs")
-      ) {
-        apiFile.setLanguage(null);
-      } else {
-        apiFile.setLanguage(JsonNullable.of(language));
-      }
-      apiGbfsFiles.add(apiFile);
     }
     return apiGbfsFiles;
   }
-
-  private List<SystemError> mapLoaderSystemErrorsToApi(
-    List<LoaderError> loaderSystemErrors
-  ) {
-    if (loaderSystemErrors == null) {
-      return new ArrayList<>();
-    }
-    return loaderSystemErrors
-      .stream()
-      .map(loaderError -> {
-        SystemError apiError = new SystemError();
-        apiError.setError(loaderError.error());
-        apiError.setMessage(loaderError.message());
-        return apiError;
-      })
-      .toList();
-  }
-
-  private List<SystemError> mapValidatorSystemErrorsToApi(
-    List<ValidatorError> validatorSystemErrors
-  ) {
-    if (validatorSystemErrors == null) {
-      return new ArrayList<>();
-    }
-    return validatorSystemErrors
-      .stream()
-      .map(validatorError -> {
-        SystemError apiError = new SystemError();
-        apiError.setError(validatorError.error());
-        apiError.setMessage(validatorError.message());
-        return apiError;
-      })
-      .toList();
-  }
-
-  private List<FileError> mapFileValidationErrors(
-    List<FileValidationError> errors
-  ) {
-    if (errors == null) {
-      return new ArrayList<>();
-    }
-    return errors
-      .stream()
-      .map(error -> {
-        var mapped = new FileError();
-        mapped.setMessage(error.message());
-        mapped.setInstancePath(error.violationPath());
-        mapped.setSchemaPath(error.schemaPath());
-        mapped.setKeyword(error.keyword());
-        return mapped;
-      })
-      .toList();
-  }
 }
@@ -0,0 +1,258 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.entur.gbfs.validator.api.handler.AdmissionRejectedException.Reason;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the validations running at once, so that a burst of requests cannot load and parse
+ * more feeds than fit in the heap. A validation is admitted while fewer than the maximum number
+ * of validations are running and the feed's estimated size fits in what is left of the memory
+ * budget. The estimate is the number of bytes fetched the last time the feed was validated, or
+ * a default for feeds not seen before. A validation running alone is always admitted, however
+ * large its feed.
+ * Validations that cannot be admitted wait in a bounded queue for a limited time, and are
+ * rejected with an {@link AdmissionRejectedException} when the queue is full or their wait
+ * times out. Running, queued and rejected validations are published as
+ * gbfs.validation.admission.* metrics.
+ */
+@Component
+public class ValidationAdmission {
+
+  private final int maxConcurrentValidations;
+  private final int queueCapacity;
+  private final long maxWaitNanos;
+  private final long memoryBudgetBytes;
+  private final long defaultFeedSizeBytes;
+  private final Cache<String, Long> feedSizes;
+  private final Map<Reason, Counter> rejections = new EnumMap<>(Reason.class);
+
+  private int running;
+  private int queued;
+  private long reservedBytes;
+
+  public ValidationAdmission(
+    ValidationProperties properties,
+    MeterRegistry meterRegistry
+  ) {
+    ValidationProperties.Admission config = properties.getAdmission();
+    this.maxConcurrentValidations = config.getMaxConcurrentValidations();
+    this.queueCapacity = config.getQueueCapacity();
+    this.maxWaitNanos =
+      TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+    this.memoryBudgetBytes = config.getMemoryBudgetBytes();
+    this.defaultFeedSizeBytes = config.getDefaultFeedSizeBytes();
+    this.feedSizes = CacheBuilder.newBuilder().maximumSize(10_000).build();
+
+    Gauge
+      .builder(
+        "gbfs.validation.admission.running",
+        this,
+        ValidationAdmission::getRunning
+      )
+      .description("Validations currently running")
+      .register(meterRegistry);
+    Gauge
+      .builder(
+        "gbfs.validation.admission.queued",
+        this,
+        ValidationAdmission::getQueued
+      )
+      .description("Validations waiting to be admitted")
+      .register(meterRegistry);
+    Gauge
+      .builder(
+        "gbfs.validation.admission.reserved.bytes",
+        this,
+        ValidationAdmission::getReservedBytes
+      )
+      .description("Estimated size of the feeds currently being validated")
+      .register(meterRegistry);
+    for (Reason reason : Reason.values()) {
+      rejections.put(
+        reason,
+        Counter
+          .builder("gbfs.validation.admission.rejected")
+          .description("Validations rejected because the server was busy")
+          .tag("reason", reason.name())
+          .register(meterRegistry)
+      );
+    }
+  }
+
+  /**
+   * Admits the validation of a feed, waiting for running validations to finish if needed.
+   *
+   * @param feedUrl the URL of the feed, used to estimate its size
+   * @return the permit to close once the validation has finished
+   * @throws AdmissionRejectedException if the validation was not admitted
+   */
+  public Permit admit(String feedUrl) {
+    Long knownSize = feedUrl != null ? feedSizes.getIfPresent(feedUrl) : null;
+    return admit(
+      feedUrl,
+      knownSize != null ? knownSize : defaultFeedSizeBytes
+    );
+  }
+
+  /**
+   * Admits the validation of uploaded files, whose size is known up front.
+   *
+   * @param uploadedBytes the size of the uploaded files
+   * @return the permit to close once the validation has finished
+   * @throws AdmissionRejectedException if the validation was not admitted
+   */
+  public Permit admitUpload(long uploadedBytes) {
+    return admit(null, uploadedBytes);
+  }
+
+  private Permit admit(String feedUrl, long estimatedBytes) {
+    synchronized (this) {
+      if (queued == 0 && canAdmit(estimatedBytes)) {
+        return admitted(feedUrl, estimatedBytes);
+      }
+      if (queued >= queueCapacity) {
+        throw rejected(
+          Reason.QUEUE_FULL,
+          "Too many validations waiting"
+        );
+      }
+
+      queued++;
+      try {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (!canAdmit(estimatedBytes)) {
+          long remainingNanos = deadline - System.nanoTime();
+          if (remainingNanos <= 0) {
+            throw rejected(
+              Reason.WAIT_TIMEOUT,
+              "Timed out waiting for running validations to finish"
+            );
+          }
+          TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return admitted(feedUrl, estimatedBytes);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw rejected(
+          Reason.WAIT_TIMEOUT,
+          "Interrupted while waiting to be admitted"
+        );
+      } finally {
+        queued--;
+      }
+    }
+  }
+
+  public synchronized int getRunning() {
+    return running;
+  }
+
+  public synchronized int getQueued() {
+    return queued;
+  }
+
+  public synchronized long getReservedBytes() {
+    return reservedBytes;
+  }
+
+  private boolean canAdmit(long estimatedBytes) {
+    if (running == 0) {
+      return true;
+    }
+    if (maxConcurrentValidations > 0 && running >= maxConcurrentValidations) {
+      return false;
+    }
+    return (
+      memoryBudgetBytes <= 0 ||
+      reservedBytes + estimatedBytes <= memoryBudgetBytes
+    );
+  }
+
+  private Permit admitted(String feedUrl, long estimatedBytes) {
+    running++;
+    reservedBytes += estimatedBytes;
+    return new Permit(feedUrl, estimatedBytes);
+  }
+
+  private AdmissionRejectedException rejected(
+    Reason reason,
+    String message
+  ) {
+    rejections.get(reason).increment();
+    return new AdmissionRejectedException(reason, message);
+  }
+
+  private synchronized void release(long reservedBytes) {
+    running--;
+    this.reservedBytes -= reservedBytes;
+    notifyAll();
+  }
+
+  /**
+   * A running validation. Closing the permit lets waiting validations in.
+   */
+  public class Permit implements AutoCloseable {
+
+    private final String feedUrl;
+    private final long estimatedBytes;
+    private boolean closed;
+
+    private Permit(String feedUrl, long estimatedBytes) {
+      this.feedUrl = feedUrl;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Records the number of bytes fetched for the feed, as its estimated size for later
+     * validations.
+     */
+    public void loaded(List<LoadedFile> loadedFiles) {
+      long fetchedBytes = loadedFiles
+        .stream()
+        .filter(loadedFile -> loadedFile.fetchStats() != null)
+        .mapToLong(loadedFile -> loadedFile.fetchStats().bytes())
+        .sum();
+      if (feedUrl != null && fetchedBytes > 0) {
+        feedSizes.put(feedUrl, fetchedBytes);
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!closed) {
+        closed = true;
+        release(estimatedBytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the feeds of batch validations on a bounded pool shared by all batches, so that a batch
+ * of hundreds of feeds validates a limited number of them at a time. Each feed has a timeout,
+ * counted from when its validation starts, so one slow feed does not hold up the rest of its
+ * batch. A feed that times out is not interrupted, but finishes in the background.
+ */
+@Component
+public class ValidationBatches {
+
+  private final ThreadPoolExecutor executor;
+  private final int maxFeeds;
+  private final long feedTimeoutSeconds;
+
+  public ValidationBatches(ValidationProperties properties) {
+    ValidationProperties.Batch config = properties.getBatch();
+    int threads = Math.max(1, config.getThreads());
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+      new ThreadPoolExecutor(
+        threads,
+        threads,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+        runnable -> {
+          Thread thread = new Thread(
+            runnable,
+            "gbfs-validation-batch-" + threadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        }
+      );
+    this.maxFeeds = config.getMaxFeeds();
+    this.feedTimeoutSeconds = config.getFeedTimeoutSeconds();
+  }
+
+  /**
+   * @return the maximum number of feeds in one batch
+   */
+  public int getMaxFeeds() {
+    return maxFeeds;
+  }
+
+  /**
+   * Queues the validation of one feed of a batch.
+   *
+   * @param validation validates the feed and returns the result
+   * @return completes with the result, or exceptionally with a TimeoutException if the
+   *         validation did not finish in time, a RejectedExecutionException if the queue is
+   *         full, or the exception the validation failed with
+   */
+  public CompletableFuture<ValidationResult> submit(
+    Callable<ValidationResult> validation
+  ) {
+    CompletableFuture<ValidationResult> result = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        if (feedTimeoutSeconds > 0) {
+          result.orTimeout(feedTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        try {
+          result.complete(validation.call());
+        } catch (Exception e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+
+/**
+ * Lets identical concurrent validation requests share a single load and validation. The first
+ * request for a key validates the feed, and requests arriving while it is in flight wait for
+ * its result instead of loading the feed again. All of them receive the same result instance.
+ * A request waits at most a bounded time for the in-flight validation, and validates the feed
+ * on its own once that time has passed, so a stuck validation does not hold up its waiters.
+ */
+class ValidationCoalescer {
+
+  @FunctionalInterface
+  interface Validation {
+    ValidationResult get() throws IOException;
+  }
+
+  private final Map<String, CompletableFuture<ValidationResult>> inFlight =
+    new ConcurrentHashMap<>();
+  private final Duration maxWait;
+
+  /**
+   * @param maxWait how long a request waits for an identical in-flight validation before
+   *                validating the feed on its own
+   */
+  ValidationCoalescer(Duration maxWait) {
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * @param key identifies the validation: the feed URL, the authentication identity and any
+   *            request options that change the result
+   * @param validation validates the feed when no identical validation is in flight
+   * @return the result of this or of the identical in-flight validation, or of a validation
+   *         of its own if the in-flight validation did not complete within the maximum wait
+   */
+  ValidationResult validate(String key, Validation validation)
+    throws IOException {
+    CompletableFuture<ValidationResult> flight = new CompletableFuture<>();
+    CompletableFuture<ValidationResult> existing = inFlight.putIfAbsent(
+      key,
+      flight
+    );
+    if (existing != null) {
+      try {
+        return await(existing);
+      } catch (TimeoutException e) {
+        // Not shared with later requests, which join the in-flight validation instead
+        return validation.get();
+      }
+    }
+
+    try {
+      ValidationResult result = validation.get();
+      flight.complete(result);
+      return result;
+    } catch (IOException | RuntimeException e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  private ValidationResult await(CompletableFuture<ValidationResult> flight)
+    throws IOException, TimeoutException {
+    try {
+      return flight.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+        "Interrupted while waiting for an identical validation"
+      );
+    }
+  }
+}
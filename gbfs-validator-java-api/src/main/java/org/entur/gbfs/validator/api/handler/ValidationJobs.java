@@ -0,0 +1,204 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PreDestroy;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.entur.gbfs.validator.api.model.ValidationJob;
+import org.entur.gbfs.validator.api.model.ValidationJobStatus;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs validation jobs in the background on a bounded pool, so that validating a large system
+ * does not hold a servlet thread and the client's connection for its whole duration.
+ * Jobs beyond the pool's queue capacity are rejected. A job is kept for the configured ttl after
+ * its last status change, and the oldest jobs are evicted once the maximum number of jobs is
+ * reached.
+ */
+@Component
+public class ValidationJobs {
+
+  private static final Logger logger = LoggerFactory.getLogger(
+    ValidationJobs.class
+  );
+
+  private final ThreadPoolExecutor executor;
+  private final Cache<String, Job> jobs;
+
+  public ValidationJobs(ValidationProperties properties) {
+    ValidationProperties.Jobs config = properties.getJobs();
+    int threads = Math.max(1, config.getThreads());
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+      new ThreadPoolExecutor(
+        threads,
+        threads,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+        runnable -> {
+          Thread thread = new Thread(
+            runnable,
+            "gbfs-validation-job-" + threadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        }
+      );
+    this.jobs =
+      CacheBuilder
+        .newBuilder()
+        .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+        .maximumSize(config.getMaximumJobs())
+        .build();
+  }
+
+  /**
+   * Queues a validation job.
+   *
+   * @param validation validates the feed and returns the result
+   * @return the queued job
+   * @throws RejectedExecutionException if the job queue is full
+   */
+  public ValidationJob submit(Callable<ValidationResult> validation) {
+    Job job = new Job(
+      UUID.randomUUID().toString(),
+      ValidationJobStatus.QUEUED,
+      OffsetDateTime.now(),
+      null,
+      null,
+      null,
+      null
+    );
+    jobs.put(job.id(), job);
+    try {
+      executor.execute(() -> run(job, validation));
+    } catch (RejectedExecutionException e) {
+      jobs.invalidate(job.id());
+      throw e;
+    }
+    return job.toApiModel();
+  }
+
+  /**
+   * @return the job with the given id, or null if it is unknown or has expired
+   */
+  public ValidationJob get(String id) {
+    Job job = jobs.getIfPresent(id);
+    return job != null ? job.toApiModel() : null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void run(Job queued, Callable<ValidationResult> validation) {
+    Job running = queued.started();
+    if (!update(running)) {
+      // Evicted while queued, nobody can ask for the result anymore
+      return;
+    }
+    try {
+      update(running.succeeded(validation.call()));
+    } catch (Exception e) {
+      logger.error("Validation job {} failed", running.id(), e);
+      update(running.failed(e));
+    }
+  }
+
+  /**
+   * Replaces the job's state, unless it has already been evicted. Replacing restarts its ttl.
+   */
+  private boolean update(Job job) {
+    return jobs.asMap().replace(job.id(), job) != null;
+  }
+
+  private record Job(
+    String id,
+    ValidationJobStatus status,
+    OffsetDateTime submittedAt,
+    OffsetDateTime startedAt,
+    OffsetDateTime completedAt,
+    ValidationResult result,
+    String error
+  ) {
+    Job started() {
+      return new Job(
+        id,
+        ValidationJobStatus.RUNNING,
+        submittedAt,
+        OffsetDateTime.now(),
+        null,
+        null,
+        null
+      );
+    }
+
+    Job succeeded(ValidationResult result) {
+      return new Job(
+        id,
+        ValidationJobStatus.SUCCEEDED,
+        submittedAt,
+        startedAt,
+        OffsetDateTime.now(),
+        result,
+        null
+      );
+    }
+
+    Job failed(Exception e) {
+      return new Job(
+        id,
+        ValidationJobStatus.FAILED,
+        submittedAt,
+        startedAt,
+        OffsetDateTime.now(),
+        null,
+        e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()
+      );
+    }
+
+    ValidationJob toApiModel() {
+      ValidationJob job = new ValidationJob();
+      job.setId(id);
+      job.setStatus(status);
+      job.setSubmittedAt(submittedAt);
+      job.setStartedAt(startedAt);
+      job.setCompletedAt(completedAt);
+      job.setResult(result);
+      job.setError(error);
+      return job;
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "validation")
+public class ValidationProperties {
+
+  private Cache cache = new Cache();
+  private Jobs jobs = new Jobs();
+  private Batch batch = new Batch();
+  private Admission admission = new Admission();
+  private Schemas schemas = new Schemas();
+  private Upload upload = new Upload();
+  private int languageGroupThreads = 4;
+  private long coalescedWaitSeconds = 30;
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  public Jobs getJobs() {
+    return jobs;
+  }
+
+  public void setJobs(Jobs jobs) {
+    this.jobs = jobs;
+  }
+
+  public Batch getBatch() {
+    return batch;
+  }
+
+  public void setBatch(Batch batch) {
+    this.batch = batch;
+  }
+
+  public Admission getAdmission() {
+    return admission;
+  }
+
+  public void setAdmission(Admission admission) {
+    this.admission = admission;
+  }
+
+  public Schemas getSchemas() {
+    return schemas;
+  }
+
+  public void setSchemas(Schemas schemas) {
+    this.schemas = schemas;
+  }
+
+  public Upload getUpload() {
+    return upload;
+  }
+
+  public void setUpload(Upload upload) {
+    this.upload = upload;
+  }
+
+  public int getLanguageGroupThreads() {
+    return languageGroupThreads;
+  }
+
+  public void setLanguageGroupThreads(int languageGroupThreads) {
+    this.languageGroupThreads = languageGroupThreads;
+  }
+
+  public long getCoalescedWaitSeconds() {
+    return coalescedWaitSeconds;
+  }
+
+  public void setCoalescedWaitSeconds(long coalescedWaitSeconds) {
+    this.coalescedWaitSeconds = coalescedWaitSeconds;
+  }
+
+  public static class Cache {
+
+    private long ttlSeconds = 0;
+    private long maximumSize = 100;
+
+    public long getTtlSeconds() {
+      return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+      this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getMaximumSize() {
+      return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+  }
+
+  public static class Jobs {
+
+    private int threads = 4;
+    private int queueCapacity = 100;
+    private long ttlSeconds = 3600;
+    private long maximumJobs = 1000;
+    private int retryAfterSeconds = 10;
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public long getTtlSeconds() {
+      return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+      this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getMaximumJobs() {
+      return maximumJobs;
+    }
+
+    public void setMaximumJobs(long maximumJobs) {
+      this.maximumJobs = maximumJobs;
+    }
+
+    public int getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+      this.retryAfterSeconds = retryAfterSeconds;
+    }
+  }
+
+  public static class Batch {
+
+    private int threads = 8;
+    private int queueCapacity = 500;
+    private int maxFeeds = 200;
+    private long feedTimeoutSeconds = 60;
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxFeeds() {
+      return maxFeeds;
+    }
+
+    public void setMaxFeeds(int maxFeeds) {
+      this.maxFeeds = maxFeeds;
+    }
+
+    public long getFeedTimeoutSeconds() {
+      return feedTimeoutSeconds;
+    }
+
+    public void setFeedTimeoutSeconds(long feedTimeoutSeconds) {
+      this.feedTimeoutSeconds = feedTimeoutSeconds;
+    }
+  }
+
+  public static class Admission {
+
+    private int maxConcurrentValidations = 16;
+    private int queueCapacity = 32;
+    private long maxWaitMillis = 5000;
+    private long memoryBudgetBytes = 0;
+    private long defaultFeedSizeBytes = 10485760;
+    private int retryAfterSeconds = 5;
+
+    public int getMaxConcurrentValidations() {
+      return maxConcurrentValidations;
+    }
+
+    public void setMaxConcurrentValidations(int maxConcurrentValidations) {
+      this.maxConcurrentValidations = maxConcurrentValidations;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public long getMaxWaitMillis() {
+      return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+      this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public long getMemoryBudgetBytes() {
+      return memoryBudgetBytes;
+    }
+
+    public void setMemoryBudgetBytes(long memoryBudgetBytes) {
+      this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    public long getDefaultFeedSizeBytes() {
+      return defaultFeedSizeBytes;
+    }
+
+    public void setDefaultFeedSizeBytes(long defaultFeedSizeBytes) {
+      this.defaultFeedSizeBytes = defaultFeedSizeBytes;
+    }
+
+    public int getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+      this.retryAfterSeconds = retryAfterSeconds;
+    }
+  }
+
+  public static class Schemas {
+
+    private long maxAgeSeconds = 86400;
+
+    public long getMaxAgeSeconds() {
+      return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+      this.maxAgeSeconds = maxAgeSeconds;
+    }
+  }
+
+  public static class Upload {
+
+    private long maxUploadSizeBytes = 209715200;
+    private long maxFileSizeBytes = 104857600;
+    private int maxFiles = 100;
+
+    public long getMaxUploadSizeBytes() {
+      return maxUploadSizeBytes;
+    }
+
+    public void setMaxUploadSizeBytes(long maxUploadSizeBytes) {
+      this.maxUploadSizeBytes = maxUploadSizeBytes;
+    }
+
+    public long getMaxFileSizeBytes() {
+      return maxFileSizeBytes;
+    }
+
+    public void setMaxFileSizeBytes(long maxFileSizeBytes) {
+      this.maxFileSizeBytes = maxFileSizeBytes;
+    }
+
+    public int getMaxFiles() {
+      return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+      this.maxFiles = maxFiles;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.api.handler;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.entur.gbfs.validator.api.model.ValidatePostRequestAuth;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches validation results by feed URL and authentication, so that a feed validated again
+ * within the ttl, by the same or another user, is answered without loading and validating it
+ * again. Credentials are only kept as part of a SHA-256 hash in the cache key.
+ */
+@Component
+public class ValidationResultCache {
+
+  private final Cache<String, CachedValidationResult> cache;
+
+  public ValidationResultCache(ValidationProperties properties) {
+    ValidationProperties.Cache config = properties.getCache();
+    if (config.getTtlSeconds() > 0 && config.getMaximumSize() > 0) {
+      cache =
+        CacheBuilder
+          .newBuilder()
+          .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+          .maximumSize(config.getMaximumSize())
+          .build();
+    } else {
+      cache = null;
+    }
+  }
+
+  /**
+   * @return the cached result, or null if there is none or caching is disabled
+   */
+  public CachedValidationResult get(String key) {
+    return cache != null ? cache.getIfPresent(key) : null;
+  }
+
+  public void put(String key, ValidationResult result) {
+    if (cache != null) {
+      cache.put(key, new CachedValidationResult(result, System.nanoTime()));
+    }
+  }
+
+  /**
+   * Builds the cache key of a feed validated with the given authentication. Requests share a
+   * key only if they use the same feed URL and the same credentials.
+   */
+  public static String key(String feedUrl, ValidatePostRequestAuth auth) {
+    if (auth == null) {
+      return feedUrl;
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (String field : new String[] {
+      auth.getAuthType(),
+      auth.getUsername(),
+      auth.getPassword(),
+      auth.getToken(),
+      auth.getClientId(),
+      auth.getClientSecret(),
+      auth.getTokenUrl(),
+    }) {
+      hasher.putString(Strings.nullToEmpty(field), StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0);
+    }
+    return feedUrl + " " + hasher.hash();
+  }
+
+  /**
+   * A cached validation result. The result is shared by every response served from the cache
+   * and must not be modified.
+   */
+  public record CachedValidationResult(
+    ValidationResult result,
+    long createdNanos
+  ) {
+    public long ageSeconds() {
+      return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - createdNanos);
+    }
+  }
+}
@@ -1,12 +1,27 @@
 package org.entur.gbfs.validator.api;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.entur.gbfs.validator.api.handler.BatchValidationItem;
 import org.entur.gbfs.validator.api.handler.OpenApiGeneratorApplication;
 import org.entur.gbfs.validator.api.model.*;
 import org.junit.jupiter.api.BeforeAll;
@@ -16,7 +31,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @SpringBootTest(classes = OpenApiGeneratorApplication.class)
 @AutoConfigureMockMvc
@@ -96,7 +113,10 @@ public class ValidateIntegrationTest {
           .content(objectMapper.writeValueAsString(request))
       )
       .andExpect(status().isOk())
-      .andExpect(jsonPath("$.summary").exists());
+      .andExpect(jsonPath("$.summary").exists())
+      .andExpect(jsonPath("$.summary.files[0].fetchStats.bytes").isNumber())
+      // Only compact results refer to the schema by its hash
+      .andExpect(jsonPath("$.summary.files[0].schemaHash").doesNotExist());
   }
 
   @Test
@@ -199,4 +219,349 @@ public class ValidateIntegrationTest {
       .andExpect(jsonPath("$.summary").exists())
       .andExpect(jsonPath("$.summary.files").isNotEmpty());
   }
+
+  @Test
+  void testValidate_RepeatedRequest_ServedFromCache() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+
+    // A token not used by other tests, so the first request is not cached yet
+    ValidatePostRequestAuth bearerAuth = new ValidatePostRequestAuth();
+    bearerAuth.setAuthType("bearerToken");
+    bearerAuth.setToken("cache-test-token");
+    request.setAuth(bearerAuth);
+
+    mockMvc
+      .perform(
+        post("/validate")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Cache", "MISS"))
+      .andExpect(header().string("Age", "0"));
+
+    mockMvc
+      .perform(
+        post("/validate")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Cache", "HIT"))
+      .andExpect(header().exists("Age"))
+      .andExpect(jsonPath("$.summary.files").isNotEmpty());
+
+    request.setBypassCache(true);
+    mockMvc
+      .perform(
+        post("/validate")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Cache", "MISS"));
+  }
+
+  @Test
+  void testValidate_Compact_RefersToCacheableSchema() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+    request.setCompact(true);
+
+    MvcResult result = mockMvc
+      .perform(
+        post("/validate")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.summary.files[0].schema").doesNotExist())
+      .andExpect(jsonPath("$.summary.files[0].schemaHash").isString())
+      .andReturn();
+
+    GbfsFile file = objectMapper
+      .readValue(
+        result.getResponse().getContentAsString(),
+        ValidationResult.class
+      )
+      .getSummary()
+      .getFiles()
+      .get(0);
+    String eTag = "\"" + file.getSchemaHash() + "\"";
+
+    mockMvc
+      .perform(get(file.getSchemaUrl()))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", eTag))
+      .andExpect(
+        header().string("Cache-Control", "max-age=31536000, public, immutable")
+      )
+      .andExpect(jsonPath("$.properties").exists());
+
+    mockMvc
+      .perform(get(file.getSchemaUrl()).header("If-None-Match", eTag))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  void testValidate_SummaryView_OnlyCountsErrors() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+    request.setView(ValidationView.SUMMARY);
+
+    mockMvc
+      .perform(
+        post("/validate")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isOk())
+      .andExpect(
+        jsonPath("$.summary.files[1].name").value("system_information")
+      )
+      .andExpect(jsonPath("$.summary.files[1].errorsCount").isNumber())
+      .andExpect(jsonPath("$.summary.files[1].errors").doesNotExist())
+      .andExpect(jsonPath("$.summary.files[1].schema").doesNotExist())
+      .andExpect(jsonPath("$.summary.files[1].schemaHash").doesNotExist())
+      .andExpect(jsonPath("$.summary.files[1].fetchStats").doesNotExist());
+  }
+
+  @Test
+  void testGetSchema_UnknownVersion_NotFound() throws Exception {
+    mockMvc
+      .perform(get("/schemas/0.9/system_information"))
+      .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void testValidationJob_SubmitAndPoll_ReturnsResult() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+
+    String submitted = mockMvc
+      .perform(
+        post("/validate/jobs")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(status().isAccepted())
+      .andExpect(header().exists("Location"))
+      .andExpect(jsonPath("$.id").isNotEmpty())
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+    String jobId = objectMapper.readTree(submitted).get("id").asText();
+
+    ValidationJob job = null;
+    for (int i = 0; i < 100; i++) {
+      String polled = mockMvc
+        .perform(get("/validate/jobs/" + jobId))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+      job = objectMapper.readValue(polled, ValidationJob.class);
+      if (
+        job.getStatus() == ValidationJobStatus.SUCCEEDED ||
+        job.getStatus() == ValidationJobStatus.FAILED
+      ) {
+        break;
+      }
+      Thread.sleep(100);
+    }
+
+    assertEquals(ValidationJobStatus.SUCCEEDED, job.getStatus());
+    assertEquals(2, job.getResult().getSummary().getFiles().size());
+  }
+
+  @Test
+  void testValidationJob_UnknownId_NotFound() throws Exception {
+    mockMvc
+      .perform(get("/validate/jobs/unknown"))
+      .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void testValidateStream_Ndjson_WritesOneFilePerLine() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+
+    MvcResult started = mockMvc
+      .perform(
+        post("/validate/stream")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_NDJSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    String body = mockMvc
+      .perform(asyncDispatch(started))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+
+    List<String> lines = body.lines().toList();
+    assertEquals(2, lines.size());
+    List<String> fileNames = new ArrayList<>();
+    for (String line : lines) {
+      fileNames.add(objectMapper.readValue(line, GbfsFile.class).getName());
+    }
+    assertTrue(fileNames.contains("gbfs"));
+    assertTrue(fileNames.contains("system_information"));
+  }
+
+  @Test
+  void testValidateStream_EventStream_EndsWithDoneEvent() throws Exception {
+    ValidatePostRequest request = new ValidatePostRequest();
+    request.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+
+    MvcResult started = mockMvc
+      .perform(
+        post("/validate/stream")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.TEXT_EVENT_STREAM)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    String body = mockMvc
+      .perform(asyncDispatch(started))
+      .andExpect(status().isOk())
+      .andExpect(
+        content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+      )
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+
+    assertEquals(2, body.split("event: file\n", -1).length - 1);
+    assertTrue(body.contains("event: done\ndata: "));
+  }
+
+  @Test
+  void testValidateBatch_WritesOneResultPerFeed() throws Exception {
+    ValidatePostRequest feed = new ValidatePostRequest();
+    feed.setFeedUrl(
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath()
+    );
+    ValidatePostRequest missingFeed = new ValidatePostRequest();
+    missingFeed.setFeedUrl(
+      "file://" + testFeedDir.resolve("missing.json").toAbsolutePath()
+    );
+    BatchValidationRequest request = new BatchValidationRequest(
+      List.of(feed, missingFeed)
+    );
+
+    MvcResult started = mockMvc
+      .perform(
+        post("/validate/batch")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_NDJSON)
+          .content(objectMapper.writeValueAsString(request))
+      )
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    String body = mockMvc
+      .perform(asyncDispatch(started))
+      .andExpect(status().isOk())
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+
+    List<String> lines = body.lines().toList();
+    assertEquals(2, lines.size());
+    for (String line : lines) {
+      BatchValidationItem item = objectMapper.readValue(
+        line,
+        BatchValidationItem.class
+      );
+      assertEquals(BatchValidationItem.Status.SUCCEEDED, item.status());
+      assertEquals(
+        request.getFeeds().get(item.index()).getFeedUrl(),
+        item.feedUrl()
+      );
+    }
+  }
+
+  @Test
+  void testValidateUpload_Multipart_ValidatesUploadedFiles() throws Exception {
+    mockMvc
+      .perform(
+        multipart("/validate/upload")
+          .file(
+            new MockMultipartFile(
+              "files",
+              "system_information.json",
+              MediaType.APPLICATION_JSON_VALUE,
+              Files.readAllBytes(testFeedDir.resolve("system_information.json"))
+            )
+          )
+          .param("view", "errors")
+      )
+      .andExpect(status().isOk())
+      .andExpect(
+        jsonPath("$.summary.files[0].name").value("system_information")
+      )
+      .andExpect(jsonPath("$.summary.files[0].version").value("2.2"))
+      .andExpect(jsonPath("$.summary.files[0].errors").exists());
+  }
+
+  @Test
+  void testValidateUpload_ZipWithoutGbfsFiles_BadRequest() throws Exception {
+    ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+      zip.putNextEntry(new ZipEntry("README.md"));
+      zip.write("Not a GBFS file".getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+    }
+
+    mockMvc
+      .perform(
+        multipart("/validate/upload")
+          .file(
+            new MockMultipartFile(
+              "files",
+              "feed.zip",
+              "application/zip",
+              zipBytes.toByteArray()
+            )
+          )
+      )
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testValidateBatch_EmptyBatch_BadRequest() throws Exception {
+    mockMvc
+      .perform(
+        post("/validate/batch")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_NDJSON)
+          .content(
+            objectMapper.writeValueAsString(
+              new BatchValidationRequest(List.of())
+            )
+          )
+      )
+      .andExpect(status().isBadRequest());
+  }
 }
@@ -0,0 +1,126 @@
+package org.entur.gbfs.validator.api.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.entur.gbfs.validation.GbfsValidator;
+import org.entur.gbfs.validation.IncrementalValidation;
+import org.entur.gbfs.validation.model.FileValidationResult;
+import org.entur.gbfs.validation.model.ValidationResult;
+import org.entur.gbfs.validator.loader.FeedReference;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class LanguageGroupedValidationTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Records the files passed to each incremental validation, and finishes a validation only
+   * once all validations are finishing at the same time.
+   */
+  private static class ConcurrentFinishValidator implements GbfsValidator {
+
+    private final CountDownLatch finishing;
+
+    ConcurrentFinishValidator(int validations) {
+      this.finishing = new CountDownLatch(validations);
+    }
+
+    @Override
+    public ValidationResult validate(Map<String, InputStream> fileMap) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FileValidationResult validateFile(
+      String fileName,
+      InputStream file
+    ) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IncrementalValidation startValidation(
+      Set<String> expectedFiles,
+      Consumer<FileValidationResult> onFileValidated
+    ) {
+      Map<String, FileValidationResult> files = new HashMap<>();
+      return new IncrementalValidation() {
+        @Override
+        public void accept(String fileName, InputStream file) {
+          files.put(fileName, null);
+        }
+
+        @Override
+        public ValidationResult finish() {
+          finishing.countDown();
+          try {
+            assertTrue(finishing.await(5, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new ValidationResult(null, files);
+        }
+      };
+    }
+  }
+
+  private static LoadedFile file(String name, String language) {
+    return new LoadedFile(
+      name,
+      "file://" + name,
+      new ByteArrayInputStream(new byte[0]),
+      language
+    );
+  }
+
+  @Test
+  void testFinish_LanguageGroupsFinishConcurrently() {
+    LanguageGroupedValidation validation = new LanguageGroupedValidation(
+      new ConcurrentFinishValidator(3),
+      executor
+    );
+    validation.onFeedsDiscovered(
+      List.of(
+        new FeedReference("system_information", "file://en", "en"),
+        new FeedReference("system_information", "file://nb", "nb")
+      )
+    );
+    validation.onFileLoaded(file("gbfs", null));
+    validation.onFileLoaded(file("system_information", "en"));
+    validation.onFileLoaded(file("system_information", "nb"));
+
+    Map<String, ValidationResult> results = validation.finish();
+
+    assertEquals(
+      Set.of(LanguageGroupedValidation.DEFAULT_LANGUAGE_KEY, "en", "nb"),
+      results.keySet()
+    );
+    // The discovery file is validated once, in the default group only
+    ValidationResult defaultGroup = results.get(
+      LanguageGroupedValidation.DEFAULT_LANGUAGE_KEY
+    );
+    assertEquals(Set.of("gbfs"), defaultGroup.files().keySet());
+    assertEquals(
+      Set.of("system_information"),
+      results.get("en").files().keySet()
+    );
+  }
+}
@@ -0,0 +1,46 @@
+package org.entur.gbfs.validator.api.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.entur.gbfs.validation.validator.versions.VersionFactory;
+import org.junit.jupiter.api.Test;
+
+public class SchemaStoreTest {
+
+  private final SchemaStore schemaStore = new SchemaStore();
+
+  private final String publishedSchema = VersionFactory
+    .createVersion("3.0")
+    .getSchema("system_information")
+    .toString();
+
+  @Test
+  void testPublishedHash_SchemaAsPublished_CanBeServedByHash() {
+    String hash = schemaStore.publishedHash(
+      "3.0",
+      "system_information",
+      publishedSchema
+    );
+
+    assertNotNull(hash);
+    assertEquals(
+      publishedSchema,
+      schemaStore.get("3.0", "system_information", hash).schema()
+    );
+  }
+
+  @Test
+  void testPublishedHash_PatchedSchema_HasNoHash() {
+    String patchedSchema = publishedSchema.replaceFirst("\\}$", ",\"x\":1}");
+
+    assertNotEquals(publishedSchema, patchedSchema);
+    assertNull(
+      schemaStore.publishedHash("3.0", "system_information", patchedSchema)
+    );
+  }
+
+  @Test
+  void testGet_UnknownHash_NotFound() {
+    assertNull(schemaStore.get("3.0", "system_information", "unknown"));
+  }
+}
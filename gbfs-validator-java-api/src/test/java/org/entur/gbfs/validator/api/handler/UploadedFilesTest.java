@@ -0,0 +1,167 @@
+package org.entur.gbfs.validator.api.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+
+public class UploadedFilesTest {
+
+  private final ValidationProperties.Upload limits =
+    new ValidationProperties.Upload();
+
+  private static MockMultipartFile zip(String... namesAndContents)
+    throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+        zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+      }
+    }
+    return new MockMultipartFile(
+      "files",
+      "feed.zip",
+      "application/zip",
+      bytes.toByteArray()
+    );
+  }
+
+  @Test
+  void testAddZip_NamesFilesAfterJsonEntries() throws IOException {
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      uploadedFiles.addMultipartFile(
+        zip(
+          "feed/gbfs.json",
+          "{}",
+          "feed/system_information.json",
+          "{\"data\": {}}",
+          "feed/README.md",
+          "readme",
+          "__MACOSX/feed/._gbfs.json",
+          "metadata"
+        )
+      );
+
+      Map<String, InputStream> files = uploadedFiles.files();
+      assertEquals(
+        List.of("gbfs", "system_information"),
+        List.copyOf(files.keySet())
+      );
+      assertEquals(
+        "{\"data\": {}}",
+        new String(
+          files.get("system_information").readAllBytes(),
+          StandardCharsets.UTF_8
+        )
+      );
+      LoadedFile loadedFile = uploadedFiles.loadedFiles().get(1);
+      assertEquals("system_information", loadedFile.fileName());
+      assertEquals("feed/system_information.json", loadedFile.url());
+      assertEquals(14, uploadedFiles.size());
+    }
+  }
+
+  @Test
+  void testFiles_ResetOpensFileAgain() throws IOException {
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      uploadedFiles.addMultipartFile(zip("gbfs.json", "{\"data\": {}}"));
+      uploadedFiles.addMultipartFile(
+        new MockMultipartFile(
+          "files",
+          "system_information.json",
+          "application/json",
+          "{}".getBytes(StandardCharsets.UTF_8)
+        )
+      );
+
+      // Markable streams are parsed as they are read, without reading them into a string first
+      for (InputStream file : uploadedFiles.files().values()) {
+        assertTrue(file.markSupported());
+        file.mark(Integer.MAX_VALUE);
+        byte[] contents = file.readAllBytes();
+        file.reset();
+        assertArrayEquals(contents, file.readAllBytes());
+      }
+    }
+  }
+
+  @Test
+  void testRead_FileLargerThanLimit_RejectedOnceRead() throws IOException {
+    limits.setMaxFileSizeBytes(4);
+    MockMultipartFile file = new MockMultipartFile(
+      "files",
+      "gbfs.json",
+      "application/json",
+      "{\"data\": {}}".getBytes(StandardCharsets.UTF_8)
+    ) {
+      @Override
+      public long getSize() {
+        return 0;
+      }
+    };
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      uploadedFiles.addMultipartFile(file);
+      uploadedFiles.checkReadLimits();
+
+      assertThrows(
+        UploadRejectedException.class,
+        () -> uploadedFiles.files().get("gbfs").readAllBytes()
+      );
+      UploadRejectedException e = assertThrows(
+        UploadRejectedException.class,
+        uploadedFiles::checkReadLimits
+      );
+      assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+    }
+  }
+
+  @Test
+  void testAddZip_DuplicateFileNames_Rejected() throws IOException {
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      UploadRejectedException e = assertThrows(
+        UploadRejectedException.class,
+        () ->
+          uploadedFiles.addMultipartFile(
+            zip("en/gbfs.json", "{}", "fr/gbfs.json", "{}")
+          )
+      );
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+  }
+
+  @Test
+  void testAddZip_FileLargerThanLimit_Rejected() throws IOException {
+    limits.setMaxFileSizeBytes(4);
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      UploadRejectedException e = assertThrows(
+        UploadRejectedException.class,
+        () -> uploadedFiles.addMultipartFile(zip("gbfs.json", "{\"data\": {}}"))
+      );
+      assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+    }
+  }
+
+  @Test
+  void testAddZip_UploadLargerThanLimit_Rejected() throws IOException {
+    limits.setMaxUploadSizeBytes(16);
+    try (UploadedFiles uploadedFiles = new UploadedFiles(limits)) {
+      UploadRejectedException e = assertThrows(
+        UploadRejectedException.class,
+        () -> uploadedFiles.addMultipartFile(zip("gbfs.json", "{}"))
+      );
+      assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package org.entur.gbfs.validator.api.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.entur.gbfs.validator.loader.FetchStats;
+import org.entur.gbfs.validator.loader.LoadedFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ValidationAdmissionTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private ValidationAdmission admission(
+    int maxConcurrentValidations,
+    int queueCapacity,
+    long memoryBudgetBytes
+  ) {
+    ValidationProperties properties = new ValidationProperties();
+    ValidationProperties.Admission config = properties.getAdmission();
+    config.setMaxConcurrentValidations(maxConcurrentValidations);
+    config.setQueueCapacity(queueCapacity);
+    config.setMaxWaitMillis(200);
+    config.setMemoryBudgetBytes(memoryBudgetBytes);
+    config.setDefaultFeedSizeBytes(100);
+    return new ValidationAdmission(properties, meterRegistry);
+  }
+
+  private double rejections(AdmissionRejectedException.Reason reason) {
+    return meterRegistry
+      .get("gbfs.validation.admission.rejected")
+      .tag("reason", reason.name())
+      .counter()
+      .count();
+  }
+
+  @Test
+  void testAdmit_FullQueueIsRejectedAndWaitingValidationIsAdmittedOnRelease()
+    throws Exception {
+    ValidationAdmission admission = admission(1, 1, 0);
+    ValidationAdmission.Permit running = admission.admit("feed-a");
+
+    Future<ValidationAdmission.Permit> waiting = executor.submit(() ->
+      admission.admit("feed-b")
+    );
+    Thread.sleep(50);
+    assertEquals(1, admission.getQueued());
+
+    AdmissionRejectedException rejected = assertThrows(
+      AdmissionRejectedException.class,
+      () -> admission.admit("feed-c")
+    );
+    assertEquals(
+      AdmissionRejectedException.Reason.QUEUE_FULL,
+      rejected.getReason()
+    );
+    assertEquals(1, rejections(AdmissionRejectedException.Reason.QUEUE_FULL));
+
+    running.close();
+    waiting.get(5, TimeUnit.SECONDS).close();
+    assertEquals(0, admission.getRunning());
+    assertEquals(0, admission.getQueued());
+  }
+
+  @Test
+  void testAdmit_WaitTimesOut() {
+    ValidationAdmission admission = admission(1, 1, 0);
+    admission.admit("feed-a");
+
+    AdmissionRejectedException rejected = assertThrows(
+      AdmissionRejectedException.class,
+      () -> admission.admit("feed-b")
+    );
+    assertEquals(
+      AdmissionRejectedException.Reason.WAIT_TIMEOUT,
+      rejected.getReason()
+    );
+    assertEquals(
+      1,
+      rejections(AdmissionRejectedException.Reason.WAIT_TIMEOUT)
+    );
+  }
+
+  @Test
+  void testAdmit_MemoryBudgetUsesFetchedBytesOfEarlierValidations() {
+    ValidationAdmission admission = admission(10, 0, 250);
+
+    try (ValidationAdmission.Permit permit = admission.admit("large-feed")) {
+      permit.loaded(
+        List.of(
+          new LoadedFile(
+            "gbfs",
+            "large-feed",
+            new ByteArrayInputStream(new byte[0]),
+            null,
+            List.of(),
+            1,
+            new FetchStats(0, 0, 0, 0, 200, null, 200)
+          )
+        )
+      );
+    }
+
+    // Feeds not seen before are estimated at 100 bytes, so two of them fit in the budget
+    ValidationAdmission.Permit first = admission.admit("small-feed-a");
+    ValidationAdmission.Permit second = admission.admit("small-feed-b");
+    assertEquals(200, admission.getReservedBytes());
+    second.close();
+
+    // The large feed needs 200 bytes, which do not fit next to a running 100 byte feed
+    assertThrows(
+      AdmissionRejectedException.class,
+      () -> admission.admit("large-feed")
+    );
+    first.close();
+
+    // Running alone, a feed is admitted however large it is
+    admission.admit("large-feed").close();
+    assertEquals(0, admission.getReservedBytes());
+  }
+}
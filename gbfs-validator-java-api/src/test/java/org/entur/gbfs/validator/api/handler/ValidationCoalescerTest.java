@@ -0,0 +1,135 @@
+package org.entur.gbfs.validator.api.handler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.entur.gbfs.validator.api.model.ValidationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ValidationCoalescerTest {
+
+  private final ValidationCoalescer coalescer = new ValidationCoalescer(
+    Duration.ofSeconds(5)
+  );
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testValidate_ConcurrentIdenticalRequestsShareOneValidation()
+    throws Exception {
+    AtomicInteger validations = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ValidationCoalescer.Validation validation = () -> {
+      validations.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new ValidationResult();
+    };
+
+    List<Future<ValidationResult>> results = new ArrayList<>();
+    results.add(executor.submit(() -> coalescer.validate("feed", validation)));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 10; i++) {
+      results.add(
+        executor.submit(() -> coalescer.validate("feed", validation))
+      );
+    }
+    // Let the waiting requests join the in-flight validation
+    Thread.sleep(100);
+    release.countDown();
+
+    ValidationResult first = results.get(0).get(5, TimeUnit.SECONDS);
+    for (Future<ValidationResult> result : results) {
+      assertSame(first, result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, validations.get());
+
+    // Once completed, the next request validates again
+    coalescer.validate("feed", validation);
+    assertEquals(2, validations.get());
+  }
+
+  @Test
+  void testValidate_FailureIsSharedAndNotRemembered() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<ValidationResult> failing = executor.submit(() ->
+      coalescer.validate(
+        "feed",
+        () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new IOException("Load failed");
+        }
+      )
+    );
+    Thread.sleep(100);
+    Future<ValidationResult> waiting = executor.submit(() ->
+      coalescer.validate("feed", ValidationResult::new)
+    );
+    Thread.sleep(100);
+    release.countDown();
+
+    Exception failure = assertThrows(Exception.class, () -> failing.get());
+    assertEquals("Load failed", failure.getCause().getMessage());
+    Exception sharedFailure = assertThrows(
+      Exception.class,
+      () -> waiting.get()
+    );
+    assertEquals("Load failed", sharedFailure.getCause().getMessage());
+
+    assertNotNull(coalescer.validate("feed", ValidationResult::new));
+  }
+
+  @Test
+  void testValidate_WaiterValidatesOnItsOwnAfterMaxWait() throws Exception {
+    ValidationCoalescer shortWait = new ValidationCoalescer(
+      Duration.ofMillis(100)
+    );
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<ValidationResult> stuck = executor.submit(() ->
+      shortWait.validate(
+        "feed",
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new ValidationResult();
+        }
+      )
+    );
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    ValidationResult own = new ValidationResult();
+    assertSame(own, shortWait.validate("feed", () -> own));
+    assertFalse(stuck.isDone());
+
+    release.countDown();
+    assertNotSame(own, stuck.get(5, TimeUnit.SECONDS));
+  }
+}
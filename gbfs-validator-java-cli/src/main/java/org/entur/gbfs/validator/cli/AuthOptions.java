@@ -1,5 +1,6 @@
 package org.entur.gbfs.validator.cli;
 
+import org.entur.gbfs.validator.loader.auth.ApiKeyAuth;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Option;
 
@@ -7,7 +8,7 @@ public class AuthOptions {
 
   @Option(
     names = { "--auth-type" },
-    description = "Authentication type: basic, bearer, or oauth"
+    description = "Authentication type: basic, bearer, oauth, or api_key"
   )
   AuthType authType;
 
@@ -20,6 +21,9 @@ public class AuthOptions {
   @ArgGroup(exclusive = false)
   OAuthOptions oauthOptions;
 
+  @ArgGroup(exclusive = false)
+  ApiKeyOptions apiKeyOptions;
+
   public static class BasicAuthOptions {
 
     @Option(
@@ -70,4 +74,27 @@ public class AuthOptions {
     )
     String tokenUrl;
   }
+
+  public static class ApiKeyOptions {
+
+    @Option(
+      names = { "--api-key-name" },
+      description = "Header or query parameter name carrying the API key",
+      required = true
+    )
+    String name;
+
+    @Option(
+      names = { "--api-key" },
+      description = "API key",
+      required = true
+    )
+    String value;
+
+    @Option(
+      names = { "--api-key-in" },
+      description = "Send the API key as a header or query parameter"
+    )
+    ApiKeyAuth.Location location = ApiKeyAuth.Location.HEADER;
+  }
 }
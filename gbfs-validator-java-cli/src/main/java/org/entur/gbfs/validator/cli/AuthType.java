@@ -4,4 +4,5 @@ public enum AuthType {
   BASIC,
   BEARER,
   OAUTH,
+  API_KEY,
 }
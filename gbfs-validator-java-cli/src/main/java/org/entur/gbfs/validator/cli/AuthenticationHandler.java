@@ -1,5 +1,6 @@
 package org.entur.gbfs.validator.cli;
 
+import org.entur.gbfs.validator.loader.auth.ApiKeyAuth;
 import org.entur.gbfs.validator.loader.auth.Authentication;
 import org.entur.gbfs.validator.loader.auth.BasicAuth;
 import org.entur.gbfs.validator.loader.auth.BearerTokenAuth;
@@ -44,6 +45,18 @@ public class AuthenticationHandler {
           authOptions.oauthOptions.tokenUrl
         );
       }
+      case API_KEY -> {
+        if (authOptions.apiKeyOptions == null) {
+          throw new IllegalArgumentException(
+            "API key auth selected but --api-key not provided"
+          );
+        }
+        yield new ApiKeyAuth(
+          authOptions.apiKeyOptions.name,
+          authOptions.apiKeyOptions.value,
+          authOptions.apiKeyOptions.location
+        );
+      }
     };
   }
 }
@@ -3,18 +3,27 @@ package org.entur.gbfs.validator.cli;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 import org.entur.gbfs.validation.GbfsValidator;
 import org.entur.gbfs.validation.GbfsValidatorFactory;
+import org.entur.gbfs.validation.IncrementalValidation;
 import org.entur.gbfs.validation.model.ValidationResult;
 import org.entur.gbfs.validator.cli.formatter.ConsoleReportFormatter;
 import org.entur.gbfs.validator.cli.formatter.JsonReportFormatter;
 import org.entur.gbfs.validator.cli.formatter.ReportFormatter;
+import org.entur.gbfs.validator.loader.FeedReference;
+import org.entur.gbfs.validator.loader.LoadListener;
 import org.entur.gbfs.validator.loader.LoadedFile;
 import org.entur.gbfs.validator.loader.Loader;
+import org.entur.gbfs.validator.loader.LoaderOptions;
+import org.entur.gbfs.validator.loader.RequestStatistics;
+import org.entur.gbfs.validator.loader.SnapshotRecorder;
 import org.entur.gbfs.validator.loader.auth.Authentication;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
@@ -36,7 +45,7 @@ public class GbfsValidatorCli implements Callable<Integer> {
 
   @Option(
     names = { "-u", "--url" },
-    description = "URL of the GBFS feed (discovery endpoint)",
+    description = "URL of the GBFS feed (discovery endpoint), a local snapshot directory, or archive:<path> to replay a recorded snapshot",
     required = true
   )
   private String feedUrl;
@@ -60,6 +69,24 @@ public class GbfsValidatorCli implements Callable<Integer> {
   )
   private boolean verbose;
 
+  @Option(
+    names = { "--record" },
+    description = "Record the fetched files to a snapshot archive, which can be replayed with -u archive:<path>"
+  )
+  private File recordFile;
+
+  @Option(
+    names = { "--all-versions" },
+    description = "Validate every version listed in the feed's gbfs_versions file, each against its own version"
+  )
+  private boolean allVersions;
+
+  @Option(
+    names = { "--stats" },
+    description = "Print connection pool usage, request latencies and loader errors per host to standard error"
+  )
+  private boolean printStats;
+
   @Option(
     names = { "--format" },
     description = "Output format: text or json (default: text)",
@@ -73,14 +100,33 @@ public class GbfsValidatorCli implements Callable<Integer> {
   @Override
   public Integer call() throws Exception {
     Loader loader = null;
+    RequestStatistics statistics = printStats ? new RequestStatistics() : null;
 
     try {
       Authentication auth = AuthenticationHandler.buildAuthentication(
         authOptions
       );
 
-      loader = new Loader();
-      List<LoadedFile> loadedFiles = loader.load(feedUrl, auth);
+      LoaderOptions options = new LoaderOptions();
+      options.setMetrics(statistics);
+      loader = new Loader(50, 20, 5, 5, 20, Collections.emptyMap(), options);
+      if (allVersions) {
+        return validateAllVersions(loader, auth);
+      }
+
+      // Files are validated as they arrive, so validation overlaps with loading
+      PipelinedValidation validation = new PipelinedValidation(
+        GbfsValidatorFactory.getGbfsJsonValidator()
+      );
+      List<LoadedFile> loadedFiles;
+      try (
+        SnapshotRecorder recorder = recordFile != null
+          ? new SnapshotRecorder(recordFile.toPath(), validation)
+          : null
+      ) {
+        loadedFiles =
+          loader.load(feedUrl, auth, recorder != null ? recorder : validation);
+      }
 
       boolean hasFatalLoaderErrors = hasFatalLoaderErrors(loadedFiles);
       if (hasFatalLoaderErrors && hasNoValidContent(loadedFiles)) {
@@ -88,10 +134,7 @@ public class GbfsValidatorCli implements Callable<Integer> {
         return 2;
       }
 
-      Map<String, InputStream> fileMap = buildFileMap(loadedFiles);
-
-      GbfsValidator validator = GbfsValidatorFactory.getGbfsJsonValidator();
-      ValidationResult result = validator.validate(fileMap);
+      ValidationResult result = validation.finish();
 
       String report = formatReport(result, loadedFiles);
       outputReport(report);
@@ -105,11 +148,66 @@ public class GbfsValidatorCli implements Callable<Integer> {
       return 2;
     } finally {
       if (loader != null) {
+        if (statistics != null) {
+          System.err.print(
+            StatisticsWriter.formatStatistics(loader, statistics)
+          );
+        }
         loader.close();
       }
     }
   }
 
+  private int validateAllVersions(Loader loader, Authentication auth)
+    throws IOException {
+    if (recordFile != null) {
+      System.err.println(
+        "ERROR: --record cannot be combined with --all-versions"
+      );
+      return 2;
+    }
+
+    Map<String, List<LoadedFile>> loadedVersions = loader.loadAllVersions(
+      feedUrl,
+      auth
+    );
+    List<LoadedFile> allLoadedFiles = loadedVersions
+      .values()
+      .stream()
+      .flatMap(List::stream)
+      .toList();
+    boolean hasFatalLoaderErrors = hasFatalLoaderErrors(allLoadedFiles);
+    if (hasFatalLoaderErrors && hasNoValidContent(allLoadedFiles)) {
+      System.err.println("ERROR: Failed to load any feeds from " + feedUrl);
+      return 2;
+    }
+
+    GbfsValidator validator = GbfsValidatorFactory.getGbfsJsonValidator();
+    ReportFormatter formatter = createFormatter(format);
+    Map<String, String> reports = new LinkedHashMap<>();
+    boolean hasValidationErrors = false;
+    for (var loadedVersion : loadedVersions.entrySet()) {
+      Map<String, InputStream> fileMap = new HashMap<>();
+      for (LoadedFile file : loadedVersion.getValue()) {
+        if (file.fileContents() != null) {
+          fileMap.put(file.fileName(), file.fileContents());
+        }
+      }
+      ValidationResult result = validator.validate(fileMap);
+      hasValidationErrors |= result.summary().errorsCount() > 0;
+      reports.put(
+        loadedVersion.getKey(),
+        formatter.format(result, loadedVersion.getValue(), verbose)
+      );
+    }
+    outputReport(formatter.combine(reports));
+
+    if (hasFatalLoaderErrors) {
+      return 2;
+    }
+    return hasValidationErrors ? 1 : 0;
+  }
+
   private boolean hasFatalLoaderErrors(List<LoadedFile> loadedFiles) {
     return loadedFiles
       .stream()
@@ -122,16 +220,6 @@ public class GbfsValidatorCli implements Callable<Integer> {
     return loadedFiles.stream().noneMatch(file -> file.fileContents() != null);
   }
 
-  private Map<String, InputStream> buildFileMap(List<LoadedFile> loadedFiles) {
-    Map<String, InputStream> fileMap = new HashMap<>();
-    for (LoadedFile file : loadedFiles) {
-      if (file.fileContents() != null) {
-        fileMap.put(file.fileName(), file.fileContents());
-      }
-    }
-    return fileMap;
-  }
-
   private String formatReport(
     ValidationResult result,
     List<LoadedFile> loadedFiles
@@ -177,4 +265,34 @@ public class GbfsValidatorCli implements Callable<Integer> {
     int exitCode = new CommandLine(new GbfsValidatorCli()).execute(args);
     System.exit(exitCode);
   }
+
+  /**
+   * Passes files to an incremental validation as the loader completes them.
+   */
+  private static class PipelinedValidation implements LoadListener {
+
+    private final GbfsValidator validator;
+    private IncrementalValidation validation;
+
+    private PipelinedValidation(GbfsValidator validator) {
+      this.validator = validator;
+    }
+
+    @Override
+    public void onFeedsDiscovered(List<FeedReference> feeds) {
+      validation =
+        validator.startValidation(
+          feeds.stream().map(FeedReference::name).collect(Collectors.toSet())
+        );
+    }
+
+    @Override
+    public void onFileLoaded(LoadedFile file) {
+      validation.accept(file.fileName(), file.fileContents());
+    }
+
+    private ValidationResult finish() {
+      return validation.finish();
+    }
+  }
 }
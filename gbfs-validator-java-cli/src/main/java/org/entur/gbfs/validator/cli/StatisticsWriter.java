@@ -0,0 +1,89 @@
+package org.entur.gbfs.validator.cli;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.entur.gbfs.validator.loader.ConnectionPoolStats;
+import org.entur.gbfs.validator.loader.Loader;
+import org.entur.gbfs.validator.loader.RequestStatistics;
+import org.entur.gbfs.validator.loader.RequestStatistics.RouteStatistics;
+
+public class StatisticsWriter {
+
+  public static String formatStatistics(
+    Loader loader,
+    RequestStatistics statistics
+  ) {
+    StringBuilder sb = new StringBuilder();
+
+    sb
+      .append("Connection pool: ")
+      .append(formatPool(loader.getConnectionPoolStats()))
+      .append("\n");
+    loader
+      .getConnectionPoolStatsPerRoute()
+      .forEach((route, stats) ->
+        sb
+          .append("  ")
+          .append(route)
+          .append(": ")
+          .append(formatPool(stats))
+          .append("\n")
+      );
+
+    sb.append("Requests:\n");
+    Map<String, RouteStatistics> routes = statistics.snapshot();
+    for (var entry : routes.entrySet()) {
+      RouteStatistics route = entry.getValue();
+      sb
+        .append("  ")
+        .append(entry.getKey())
+        .append(": ")
+        .append(route.requests())
+        .append(" requests, p50 ")
+        .append(route.percentileMillis(0.5))
+        .append(" ms, p95 ")
+        .append(route.percentileMillis(0.95))
+        .append(" ms, max ")
+        .append(route.maxMillis())
+        .append(" ms\n");
+      sb
+        .append("    latency: ")
+        .append(
+          route
+            .latencyHistogram()
+            .entrySet()
+            .stream()
+            .filter(bucket -> bucket.getValue() > 0)
+            .map(StatisticsWriter::formatBucket)
+            .collect(Collectors.joining(", "))
+        )
+        .append("\n");
+      sb.append("    status: ").append(route.statusCodes()).append("\n");
+      if (!route.errors().isEmpty()) {
+        sb.append("    errors: ").append(route.errors()).append("\n");
+      }
+    }
+
+    return sb.toString();
+  }
+
+  private static String formatBucket(Map.Entry<Long, Long> bucket) {
+    String bound = bucket.getKey() == Long.MAX_VALUE
+      ? "slower"
+      : "<=" + bucket.getKey() + "ms";
+    return bound + " " + bucket.getValue();
+  }
+
+  private static String formatPool(ConnectionPoolStats stats) {
+    return (
+      "leased=" +
+      stats.leased() +
+      ", available=" +
+      stats.available() +
+      ", pending=" +
+      stats.pending() +
+      ", max=" +
+      stats.max()
+    );
+  }
+}
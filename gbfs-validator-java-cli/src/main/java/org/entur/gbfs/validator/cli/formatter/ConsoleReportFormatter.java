@@ -1,6 +1,7 @@
 package org.entur.gbfs.validator.cli.formatter;
 
 import java.util.List;
+import java.util.Map;
 import org.entur.gbfs.validation.model.FileValidationError;
 import org.entur.gbfs.validation.model.FileValidationResult;
 import org.entur.gbfs.validation.model.ValidationResult;
@@ -129,6 +130,12 @@ public class ConsoleReportFormatter implements ReportFormatter {
     return sb.toString();
   }
 
+  @Override
+  public String combine(Map<String, String> reports) {
+    // Each report already starts with its own header and version
+    return String.join("\n", reports.values());
+  }
+
   private String getFileStatus(FileValidationResult fileResult) {
     if (!fileResult.exists()) {
       return "⚠";
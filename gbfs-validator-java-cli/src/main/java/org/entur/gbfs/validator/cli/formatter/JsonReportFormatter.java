@@ -2,6 +2,7 @@ package org.entur.gbfs.validator.cli.formatter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +56,24 @@ public class JsonReportFormatter implements ReportFormatter {
         report.put("loaderErrors", loaderErrors);
       }
 
+      // Fetch timings and sizes
+      List<Map<String, Object>> fetchStats = loadedFiles
+        .stream()
+        .filter(file -> file.fetchStats() != null)
+        .map(file -> {
+          Map<String, Object> statsMap = new HashMap<>();
+          statsMap.put("fileName", file.fileName());
+          statsMap.put("url", file.url());
+          statsMap.put("attempts", file.attempts());
+          statsMap.put("stats", file.fetchStats());
+          return statsMap;
+        })
+        .collect(Collectors.toList());
+
+      if (!fetchStats.isEmpty()) {
+        report.put("fetchStats", fetchStats);
+      }
+
       return objectMapper.writeValueAsString(report);
     } catch (Exception e) {
       throw new RuntimeException(
@@ -63,4 +82,17 @@ public class JsonReportFormatter implements ReportFormatter {
       );
     }
   }
+
+  @Override
+  public String combine(Map<String, String> reports) {
+    try {
+      ObjectNode combined = objectMapper.createObjectNode();
+      for (var entry : reports.entrySet()) {
+        combined.set(entry.getKey(), objectMapper.readTree(entry.getValue()));
+      }
+      return objectMapper.writeValueAsString(combined);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to combine JSON reports", e);
+    }
+  }
 }
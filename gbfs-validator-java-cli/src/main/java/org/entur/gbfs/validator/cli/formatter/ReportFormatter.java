@@ -1,6 +1,7 @@
 package org.entur.gbfs.validator.cli.formatter;
 
 import java.util.List;
+import java.util.Map;
 import org.entur.gbfs.validation.model.ValidationResult;
 import org.entur.gbfs.validator.loader.LoadedFile;
 
@@ -17,4 +18,11 @@ public interface ReportFormatter {
     List<LoadedFile> loadedFiles,
     boolean verbose
   );
+
+  /**
+   * Combine the reports of several versions of the same system into one report
+   * @param reports Formatted report of each version, keyed by version
+   * @return Combined report string
+   */
+  String combine(Map<String, String> reports);
 }
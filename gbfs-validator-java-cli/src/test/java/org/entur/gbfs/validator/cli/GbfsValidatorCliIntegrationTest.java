@@ -135,6 +135,7 @@ public class GbfsValidatorCliIntegrationTest {
     );
     assertTrue(result.output.contains("\"summary\""));
     assertTrue(result.output.contains("\"files\""));
+    assertTrue(result.output.contains("\"fetchStats\""));
   }
 
   @Test
@@ -176,6 +177,22 @@ public class GbfsValidatorCliIntegrationTest {
     );
   }
 
+  @Test
+  void testCli_StatsFlag_PrintsConnectionPool() {
+    CliResult result = execute(
+      "-u",
+      "file://" + testFeedDir.resolve("gbfs.json").toAbsolutePath(),
+      "--stats"
+    );
+
+    assertTrue(
+      result.exitCode == 0 || result.exitCode == 1,
+      "Expected success or validation error, got: " + result.exitCode
+    );
+    assertTrue(result.output.contains("Connection pool: leased=0"));
+    assertTrue(result.output.contains("Requests:"));
+  }
+
   @Test
   void testCli_MissingUrl_ShowsError() {
     CliResult result = execute();
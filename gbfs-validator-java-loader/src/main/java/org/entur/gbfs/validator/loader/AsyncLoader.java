@@ -0,0 +1,661 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hc.core5.http.impl.EnglishReasonPhraseCatalog;
+import org.entur.gbfs.validator.loader.auth.AuthSession;
+import org.entur.gbfs.validator.loader.auth.Authentication;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Non-blocking alternative to {@link Loader}, built on {@link java.net.http.HttpClient}.
+ * Requests are sent asynchronously and prefer HTTP/2, so all feeds of a system served from
+ * one host are multiplexed over a single connection instead of each holding a thread and a
+ * pooled connection. Produces the same {@link LoadedFile}s and {@link LoaderError}s as
+ * {@link Loader}, including attempts and fetch stats, and shares its retry policy, circuit
+ * breaker, per-host limits, maximum body size and metrics.
+ * The {@link LoaderOptions} this loader does not support are the execution mode, as it always
+ * runs on virtual threads where available, hedging, request coalescing and the spill
+ * threshold. The connect time of fetch stats is not reported, as the client does not expose it.
+ * Thread-safe and designed to be used as a singleton bean.
+ */
+public class AsyncLoader {
+
+  private final HttpClient httpClient;
+  private final ExecutorService executorService;
+  private final HostScheduler hostScheduler;
+  private final RetryPolicy retryPolicy;
+  private final CircuitBreaker circuitBreaker;
+  private final LoaderMetrics metrics;
+  private final long maxBodySize;
+  private final Duration responseTimeout;
+  private final Map<String, String> customHeaders;
+
+  /**
+   * Creates an AsyncLoader with default configuration.
+   * Uses 5 second timeouts and no custom headers.
+   */
+  public AsyncLoader() {
+    this(5, 5, Collections.emptyMap());
+  }
+
+  /**
+   * Creates an AsyncLoader with custom configuration.
+   *
+   * @param connectTimeoutSeconds connection timeout in seconds
+   * @param responseTimeoutSeconds timeout in seconds for each request to complete
+   * @param customHeaders custom HTTP headers to include in all requests
+   */
+  public AsyncLoader(
+    int connectTimeoutSeconds,
+    int responseTimeoutSeconds,
+    Map<String, String> customHeaders
+  ) {
+    this(
+      connectTimeoutSeconds,
+      responseTimeoutSeconds,
+      customHeaders,
+      new LoaderOptions()
+    );
+  }
+
+  /**
+   * Creates an AsyncLoader with custom configuration and additional options.
+   *
+   * @param connectTimeoutSeconds connection timeout in seconds
+   * @param responseTimeoutSeconds timeout in seconds for each request to complete
+   * @param customHeaders custom HTTP headers to include in all requests
+   * @param options additional loader options. Concurrency limits that are not set do not
+   *     limit requests, as there is no connection pool to follow.
+   */
+  public AsyncLoader(
+    int connectTimeoutSeconds,
+    int responseTimeoutSeconds,
+    Map<String, String> customHeaders,
+    LoaderOptions options
+  ) {
+    this.customHeaders =
+      customHeaders != null ? customHeaders : new HashMap<>();
+    this.responseTimeout = Duration.ofSeconds(responseTimeoutSeconds);
+    this.executorService = Loader.newVirtualThreadPerTaskExecutor();
+    this.httpClient =
+      HttpClient
+        .newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+        .executor(executorService)
+        .build();
+
+    this.hostScheduler =
+      new HostScheduler(
+        executorService,
+        options.getMaxConcurrentRequests() > 0
+          ? options.getMaxConcurrentRequests()
+          : Integer.MAX_VALUE,
+        new HostLimits(
+          options.getMaxConcurrentRequestsPerHost() > 0
+            ? options.getMaxConcurrentRequestsPerHost()
+            : Integer.MAX_VALUE,
+          options.getMaxRequestsPerSecondPerHost()
+        ),
+        options.getHostLimits() != null
+          ? options.getHostLimits()
+          : Collections.emptyMap()
+      );
+    this.retryPolicy =
+      options.getRetryPolicy() != null
+        ? options.getRetryPolicy()
+        : new RetryPolicy();
+    this.circuitBreaker =
+      options.getCircuitBreaker().getFailureThreshold() > 0
+        ? new CircuitBreaker(options.getCircuitBreaker())
+        : null;
+    this.metrics =
+      options.getMetrics() != null
+        ? options.getMetrics()
+        : new LoaderMetrics() {};
+    this.maxBodySize = options.getMaxBodySizeBytes();
+  }
+
+  /**
+   * Loads GBFS files from the given discovery file URL without authentication.
+   *
+   * @param discoveryURIString URL or file path to the GBFS discovery file
+   * @return future completing with the loaded files once all of them are loaded
+   */
+  public CompletableFuture<List<LoadedFile>> load(String discoveryURIString) {
+    return load(discoveryURIString, null);
+  }
+
+  /**
+   * Loads GBFS files from the given discovery file URL with authentication.
+   * An OAuth token is fetched once and shared by all requests of the load.
+   *
+   * @param discoveryURIString URL or file path to the GBFS discovery file
+   * @param auth authentication credentials for protected feeds, or null for public feeds
+   * @return future completing with the loaded files once all of them are loaded
+   */
+  public CompletableFuture<List<LoadedFile>> load(
+    String discoveryURIString,
+    Authentication auth
+  ) {
+    URI discoveryURI = URI.create(discoveryURIString);
+
+    return resolveSession(auth)
+      .thenCompose(session ->
+        loadFile(discoveryURI, session)
+          .thenCompose(discoveryLoadedFile ->
+            loadFeedFiles(discoveryLoadedFile, session)
+          )
+      )
+      .exceptionally(throwable -> {
+        List<LoaderError> errors = new ArrayList<>();
+        errors.add(
+          new LoaderError("CONNECTION_ERROR", errorMessage(throwable))
+        );
+        List<LoadedFile> loadedFiles = new ArrayList<>();
+        loadedFiles.add(
+          new LoadedFile(
+            Loader.getFileName(discoveryURI),
+            discoveryURI.toString(),
+            null,
+            null,
+            errors
+          )
+        );
+        return loadedFiles;
+      });
+  }
+
+  private CompletableFuture<List<LoadedFile>> loadFeedFiles(
+    LoadedFile discoveryLoadedFile,
+    AuthSession session
+  ) {
+    List<LoadedFile> loadedFiles = new ArrayList<>();
+
+    if (discoveryLoadedFile.fileContents() == null) {
+      loadedFiles.add(discoveryLoadedFile);
+      return CompletableFuture.completedFuture(loadedFiles);
+    }
+
+    byte[] discoveryFileBytes;
+    try (InputStream discoveryStream = discoveryLoadedFile.fileContents()) {
+      discoveryFileBytes = discoveryStream.readAllBytes();
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    loadedFiles.add(
+      new LoadedFile(
+        DiscoveryFeeds.discoveryFileName(discoveryLoadedFile.fileName()),
+        discoveryLoadedFile.url(),
+        new ByteArrayInputStream(discoveryFileBytes),
+        discoveryLoadedFile.language(),
+        discoveryLoadedFile.loaderErrors(),
+        discoveryLoadedFile.attempts(),
+        discoveryLoadedFile.fetchStats()
+      )
+    );
+
+    List<CompletableFuture<LoadedFile>> futures;
+    try {
+      futures =
+        DiscoveryFeeds
+          .parse(
+            new JSONObject(
+              new JSONTokener(new ByteArrayInputStream(discoveryFileBytes))
+            )
+          )
+          .stream()
+          .map(feed ->
+            loadFile(URI.create(feed.url()), session)
+              .thenApply(loadedFile ->
+                new LoadedFile(
+                  feed.name(),
+                  feed.url(),
+                  loadedFile.fileContents(),
+                  feed.language(),
+                  loadedFile.loaderErrors(),
+                  loadedFile.attempts(),
+                  loadedFile.fetchStats()
+                )
+              )
+          )
+          .toList();
+    } catch (Exception e) {
+      // If we can't parse the discovery file structure, return only the discovery file
+      // so it can be validated and report proper errors
+      return CompletableFuture.completedFuture(loadedFiles);
+    }
+
+    return CompletableFuture
+      .allOf(futures.toArray(new CompletableFuture[0]))
+      .thenApply(ignored -> {
+        futures.forEach(future -> loadedFiles.add(future.join()));
+        return loadedFiles;
+      });
+  }
+
+  private CompletableFuture<LoadedFile> loadFile(
+    URI fileURI,
+    AuthSession session
+  ) {
+    String fileName = Loader.getFileName(fileURI);
+    String url = fileURI.toString();
+
+    if ("file".equals(fileURI.getScheme())) {
+      try {
+        InputStream stream = Loader.getFileInputStream(fileURI);
+        return CompletableFuture.completedFuture(
+          new LoadedFile(fileName, url, stream, null, new ArrayList<>())
+        );
+      } catch (FileNotFoundException e) {
+        return CompletableFuture.completedFuture(
+          errorFile(fileName, url, "FILE_NOT_FOUND", e.getMessage())
+        );
+      }
+    } else if (
+      "https".equals(fileURI.getScheme()) || "http".equals(fileURI.getScheme())
+    ) {
+      HttpRequest request;
+      try {
+        request = buildGetRequest(fileURI, session);
+      } catch (IllegalArgumentException e) {
+        return CompletableFuture.completedFuture(
+          errorFile(fileName, url, "CONNECTION_ERROR", e.getMessage())
+        );
+      }
+
+      FetchRecorder recorder = new FetchRecorder(0);
+      return retryPolicy
+        .retry(() -> submitAttempt(request, recorder), executorService)
+        .handle((body, throwable) -> {
+          if (throwable == null) {
+            return new LoadedFile(
+              fileName,
+              url,
+              new ByteArrayInputStream(body),
+              null,
+              new ArrayList<>(),
+              recorder.attempts(),
+              recorder.stats()
+            );
+          }
+          LoadedFile failedFile = Loader.failedFile(
+            fileName,
+            url,
+            asIOException(throwable),
+            recorder
+          );
+          String route = Loader.getRoute(fileURI);
+          failedFile
+            .loaderErrors()
+            .forEach(error -> metrics.fileFailed(route, error.error()));
+          return failedFile;
+        });
+    }
+
+    return CompletableFuture.completedFuture(
+      errorFile(
+        fileName,
+        url,
+        "UNSUPPORTED_SCHEME",
+        "Scheme not supported: " + fileURI.getScheme()
+      )
+    );
+  }
+
+  /**
+   * Queues a single attempt with the host scheduler. The host's slot is held until the
+   * response has been read, and released while a retry backs off.
+   */
+  private CompletableFuture<byte[]> submitAttempt(
+    HttpRequest request,
+    FetchRecorder recorder
+  ) {
+    String host = request.uri().getHost();
+    long submitted = System.nanoTime();
+    return hostScheduler.submitAsync(
+      host,
+      () -> {
+        recorder.queued(
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted)
+        );
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire(host)) {
+          return CompletableFuture.failedFuture(new CircuitOpenException(host));
+        }
+        return send(request, recorder)
+          .whenComplete((body, throwable) -> {
+            if (circuitBreaker != null) {
+              circuitBreaker.record(
+                host,
+                throwable != null &&
+                CircuitBreaker.isHostFailure(asIOException(throwable))
+              );
+            }
+          });
+      }
+    );
+  }
+
+  private CompletableFuture<byte[]> send(
+    HttpRequest request,
+    FetchRecorder recorder
+  ) {
+    recorder.attemptStarted();
+    long start = System.nanoTime();
+    AtomicLong firstByte = new AtomicLong(start);
+    AtomicReference<BoundedBodySubscriber> boundedBody =
+      new AtomicReference<>();
+    return httpClient
+      .sendAsync(
+        request,
+        responseInfo -> {
+          firstByte.set(System.nanoTime());
+          if (responseInfo.statusCode() >= 300) {
+            return HttpResponse.BodySubscribers.replacing(new byte[0]);
+          }
+          if (maxBodySize <= 0) {
+            return HttpResponse.BodySubscribers.ofByteArray();
+          }
+          boundedBody.set(
+            new BoundedBodySubscriber(
+              maxBodySize,
+              responseInfo
+                .headers()
+                .firstValueAsLong("Content-Length")
+                .orElse(-1)
+            )
+          );
+          return boundedBody.get();
+        }
+      )
+      .handle((response, throwable) -> {
+        long end = System.nanoTime();
+        int statusCode = response != null ? response.statusCode() : 0;
+        metrics.requestCompleted(
+          Loader.getRoute(request.uri()),
+          statusCode,
+          end - start
+        );
+        if (throwable != null) {
+          // The client reports an oversized body as the stream it was cancelled on
+          BoundedBodySubscriber bounded = boundedBody.get();
+          throw new CompletionException(
+            bounded != null && bounded.isTooLarge()
+              ? new BodyTooLargeException(maxBodySize)
+              : asIOException(throwable)
+          );
+        }
+
+        recorder.responseReceived(
+          0,
+          TimeUnit.NANOSECONDS.toMillis(firstByte.get() - start),
+          TimeUnit.NANOSECONDS.toMillis(end - firstByte.get()),
+          statusCode,
+          headersOfInterest(response),
+          statusCode >= 300 ? 0 : response.body().length
+        );
+        if (statusCode >= 300) {
+          throw new CompletionException(
+            new HttpStatusException(
+              statusCode,
+              reasonPhrase(statusCode),
+              RetryPolicy.parseRetryAfter(
+                response.headers().firstValue("Retry-After").orElse(null)
+              )
+            )
+          );
+        }
+        return response.body();
+      });
+  }
+
+  /**
+   * Collects a response body up to the maximum body size. A larger body fails with a
+   * {@link BodyTooLargeException} as soon as its declared length or the bytes received so far
+   * exceed the limit, and the rest of it is not read.
+   */
+  private static class BoundedBodySubscriber
+    implements HttpResponse.BodySubscriber<byte[]> {
+
+    private final long maxBodySize;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+    private volatile boolean tooLarge;
+    private Flow.Subscription subscription;
+
+    private BoundedBodySubscriber(long maxBodySize, long contentLength) {
+      this.maxBodySize = maxBodySize;
+      if (contentLength > maxBodySize) {
+        exceeded();
+      }
+    }
+
+    private void exceeded() {
+      tooLarge = true;
+      body.completeExceptionally(new BodyTooLargeException(maxBodySize));
+    }
+
+    private boolean isTooLarge() {
+      return tooLarge;
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (body.isDone()) {
+        subscription.cancel();
+      } else {
+        subscription.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+      if (body.isDone()) {
+        return;
+      }
+      for (ByteBuffer item : items) {
+        if (buffer.size() + (long) item.remaining() > maxBodySize) {
+          exceeded();
+          subscription.cancel();
+          return;
+        }
+        byte[] bytes = new byte[item.remaining()];
+        item.get(bytes);
+        buffer.write(bytes, 0, bytes.length);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      body.complete(buffer.toByteArray());
+    }
+  }
+
+  private static Map<String, String> headersOfInterest(
+    HttpResponse<?> response
+  ) {
+    Map<String, String> headers = new LinkedHashMap<>();
+    for (String name : Loader.HEADERS_OF_INTEREST) {
+      response
+        .headers()
+        .firstValue(name)
+        .ifPresent(value -> headers.put(name, value));
+    }
+    return headers;
+  }
+
+  private HttpRequest buildGetRequest(URI fileURI, AuthSession session) {
+    HttpRequest.Builder builder = HttpRequest
+      .newBuilder(session.apply(fileURI))
+      .timeout(responseTimeout)
+      .GET();
+    session.getHeaders().forEach(builder::setHeader);
+    return builder.build();
+  }
+
+  /**
+   * Authentications resolve synchronously, so token requests block a thread of the client's
+   * executor once per load rather than the caller.
+   */
+  private CompletableFuture<AuthSession> resolveSession(Authentication auth) {
+    return CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return AuthSession.resolve(auth, customHeaders, this::postForm);
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      },
+      executorService
+    );
+  }
+
+  private String postForm(String url, String formBody) throws IOException {
+    HttpRequest tokenRequest = HttpRequest
+      .newBuilder(URI.create(url))
+      .timeout(responseTimeout)
+      .header("Content-Type", "application/x-www-form-urlencoded")
+      .POST(HttpRequest.BodyPublishers.ofString(formBody))
+      .build();
+
+    HttpResponse<String> response;
+    try {
+      response =
+        httpClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while requesting a token");
+    }
+    if (response.statusCode() >= 300) {
+      throw new IOException(
+        "Token request failed: " +
+        response.statusCode() +
+        " " +
+        reasonPhrase(response.statusCode())
+      );
+    }
+    return response.body();
+  }
+
+  private static LoadedFile errorFile(
+    String fileName,
+    String url,
+    String error,
+    String message
+  ) {
+    List<LoaderError> errors = new ArrayList<>();
+    errors.add(new LoaderError(error, message));
+    return new LoadedFile(fileName, url, null, null, errors);
+  }
+
+  private static String reasonPhrase(int statusCode) {
+    String reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(
+      statusCode,
+      Locale.ENGLISH
+    );
+    return reason != null ? reason : "";
+  }
+
+  private static String errorMessage(Throwable throwable) {
+    Throwable cause = unwrap(throwable);
+    return cause.getMessage() != null
+      ? cause.getMessage()
+      : cause.getClass().getSimpleName();
+  }
+
+  private static IOException asIOException(Throwable throwable) {
+    Throwable cause = unwrap(throwable);
+    return cause instanceof IOException ioException
+      ? ioException
+      : new IOException(errorMessage(cause), cause);
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    if (
+      throwable instanceof CompletionException && throwable.getCause() != null
+    ) {
+      return throwable.getCause();
+    }
+    return throwable;
+  }
+
+  /**
+   * Shuts down the executor used by the HTTP client.
+   * Attempts graceful shutdown with a 5-second timeout before forcing termination.
+   */
+  public void close() {
+    hostScheduler.shutdown();
+    if (!executorService.isShutdown()) {
+      executorService.shutdown();
+      try {
+        if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+          executorService.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        executorService.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads response bodies while enforcing the maximum body size. Bodies up to the spill threshold
+ * are buffered in memory. Larger bodies are written to a temporary file and handed on as a
+ * memory-mapped stream, so they do not take up heap.
+ */
+class BodyReader {
+
+  record Body(InputStream contents, long size) {}
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final long maxBodySize;
+  private final long spillThreshold;
+
+  /**
+   * @param maxBodySize maximum body size in bytes, zero or less for no limit
+   * @param spillThreshold body size in bytes above which the body is spilled to disk, zero or
+   *                       less to always buffer in memory
+   */
+  BodyReader(long maxBodySize, long spillThreshold) {
+    this.maxBodySize = maxBodySize;
+    this.spillThreshold = spillThreshold;
+  }
+
+  /**
+   * @param body the response body
+   * @param contentLength the declared length of the body, or a negative value if unknown
+   */
+  Body read(InputStream body, long contentLength) throws IOException {
+    checkSize(contentLength);
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(
+      contentLength > 0 && contentLength <= CHUNK_SIZE * 16
+        ? (int) contentLength
+        : CHUNK_SIZE
+    );
+    byte[] chunk = new byte[CHUNK_SIZE];
+    long size = 0;
+    int read;
+    while ((read = body.read(chunk)) != -1) {
+      size += read;
+      checkSize(size);
+      buffer.write(chunk, 0, read);
+      if (spillThreshold > 0 && size > spillThreshold) {
+        return spill(buffer, body, size);
+      }
+    }
+    return new Body(new ByteArrayInputStream(buffer.toByteArray()), size);
+  }
+
+  private Body spill(ByteArrayOutputStream buffer, InputStream body, long size)
+    throws IOException {
+    Path file = Files.createTempFile("gbfs-loader-", ".json");
+    try {
+      try (OutputStream out = Files.newOutputStream(file)) {
+        buffer.writeTo(out);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int read;
+        while ((read = body.read(chunk)) != -1) {
+          size += read;
+          checkSize(size);
+          out.write(chunk, 0, read);
+        }
+      }
+      return new Body(ByteBufferInputStream.map(file), size);
+    } finally {
+      try {
+        Files.delete(file);
+      } catch (IOException e) {
+        // Some platforms do not allow deleting a file while it is mapped
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private void checkSize(long size) throws BodyTooLargeException {
+    if (maxBodySize > 0 && size > maxBodySize) {
+      throw new BodyTooLargeException(maxBodySize);
+    }
+  }
+}
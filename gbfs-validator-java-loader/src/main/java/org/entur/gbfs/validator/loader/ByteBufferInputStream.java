@@ -0,0 +1,151 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a sequence of byte buffers, such as the regions of a memory-mapped file, without copying
+ * them onto the heap.
+ */
+class ByteBufferInputStream extends InputStream {
+
+  private final ByteBuffer[] buffers;
+  private final ByteBuffer[] remaining;
+  private int current;
+  private int markedBuffer;
+  private int markedPosition;
+
+  ByteBufferInputStream(ByteBuffer... buffers) {
+    this.buffers = buffers;
+    this.remaining = new ByteBuffer[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      remaining[i] = buffers[i].duplicate();
+    }
+  }
+
+  /**
+   * Maps a file read-only, in regions of at most 2 GB, the largest a single buffer can address.
+   * The mapping stays valid after the file is closed, and after it is deleted.
+   */
+  static ByteBufferInputStream map(Path file) throws IOException {
+    try (
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)
+    ) {
+      long size = channel.size();
+      List<ByteBuffer> regions = new ArrayList<>();
+      for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+        regions.add(
+          channel.map(
+            FileChannel.MapMode.READ_ONLY,
+            position,
+            Math.min(Integer.MAX_VALUE, size - position)
+          )
+        );
+      }
+      return new ByteBufferInputStream(regions.toArray(new ByteBuffer[0]));
+    }
+  }
+
+  /**
+   * @return a new stream over the same buffers, starting from the beginning
+   */
+  ByteBufferInputStream copy() {
+    return new ByteBufferInputStream(buffers);
+  }
+
+  @Override
+  public int read() {
+    ByteBuffer buffer = currentBuffer();
+    return buffer != null ? buffer.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+    ByteBuffer buffer = currentBuffer();
+    if (buffer == null) {
+      return -1;
+    }
+    int count = Math.min(length, buffer.remaining());
+    buffer.get(bytes, offset, count);
+    return count;
+  }
+
+  @Override
+  public long skip(long n) {
+    ByteBuffer buffer = currentBuffer();
+    if (buffer == null || n <= 0) {
+      return 0;
+    }
+    int count = (int) Math.min(n, buffer.remaining());
+    buffer.position(buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  /**
+   * Marks the current position. The buffers are kept in full, so the read limit is ignored.
+   */
+  @Override
+  public void mark(int readLimit) {
+    ByteBuffer buffer = currentBuffer();
+    markedBuffer = current;
+    markedPosition = buffer != null ? buffer.position() : 0;
+  }
+
+  @Override
+  public void reset() {
+    for (int i = markedBuffer; i < remaining.length; i++) {
+      remaining[i].position(
+        i == markedBuffer ? markedPosition : buffers[i].position()
+      );
+    }
+    current = markedBuffer;
+  }
+
+  @Override
+  public int available() {
+    ByteBuffer buffer = currentBuffer();
+    return buffer != null ? buffer.remaining() : 0;
+  }
+
+  private ByteBuffer currentBuffer() {
+    while (current < remaining.length && !remaining[current].hasRemaining()) {
+      current++;
+    }
+    return current < remaining.length ? remaining[current] : null;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks consecutive failures per host and decides whether requests to a host may be sent,
+ * following a {@link CircuitBreakerPolicy}.
+ */
+class CircuitBreaker {
+
+  private final int failureThreshold;
+  private final long openDurationNanos;
+
+  // Guarded by this. Hosts without failures have no entry.
+  private final Map<String, HostCircuit> hosts = new HashMap<>();
+
+  CircuitBreaker(CircuitBreakerPolicy policy) {
+    this.failureThreshold = policy.getFailureThreshold();
+    this.openDurationNanos =
+      TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMillis());
+  }
+
+  /**
+   * @return true if a request to the host may be sent. While the circuit is half-open only
+   *     the first caller gets to send its request as a probe.
+   */
+  synchronized boolean tryAcquire(String host) {
+    HostCircuit circuit = hosts.get(host);
+    if (circuit == null || !circuit.open) {
+      return true;
+    }
+    if (System.nanoTime() - circuit.openedNanos < openDurationNanos) {
+      return false;
+    }
+    if (circuit.probing) {
+      return false;
+    }
+    circuit.probing = true;
+    return true;
+  }
+
+  /**
+   * Records the outcome of a request acquired with {@link #tryAcquire(String)}.
+   */
+  synchronized void record(String host, boolean hostFailed) {
+    if (!hostFailed) {
+      hosts.remove(host);
+      return;
+    }
+    HostCircuit circuit = hosts.computeIfAbsent(host, h -> new HostCircuit());
+    circuit.consecutiveFailures++;
+    if (circuit.probing || circuit.consecutiveFailures >= failureThreshold) {
+      circuit.open = true;
+      circuit.openedNanos = System.nanoTime();
+      circuit.probing = false;
+    }
+  }
+
+  /**
+   * Whether a failed request says the host is unreachable or unhealthy. Other HTTP errors and
+   * oversized bodies are answers from a working host.
+   */
+  static boolean isHostFailure(IOException e) {
+    if (e instanceof HttpStatusException statusException) {
+      return statusException.getStatusCode() >= 500;
+    }
+    return !(e instanceof BodyTooLargeException);
+  }
+
+  private static class HostCircuit {
+
+    private int consecutiveFailures;
+    private boolean open;
+    private long openedNanos;
+    private boolean probing;
+  }
+}
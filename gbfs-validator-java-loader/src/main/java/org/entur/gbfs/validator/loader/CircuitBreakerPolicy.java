@@ -0,0 +1,58 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Controls the Loader's per-host circuit breaker. After a number of consecutive connection
+ * failures, timeouts or 5xx responses from a host, requests to it fail immediately with a
+ * CIRCUIT_OPEN error instead of each waiting for the timeouts. Once the open duration has
+ * passed, a single probe request is let through: success closes the circuit, failure opens it
+ * again. The default policy never opens the circuit.
+ */
+public class CircuitBreakerPolicy {
+
+  private int failureThreshold = 0;
+  private long openDurationMillis = 30000;
+
+  /**
+   * Number of consecutive failed requests that opens a host's circuit. Zero or less disables
+   * the circuit breaker.
+   */
+  public int getFailureThreshold() {
+    return failureThreshold;
+  }
+
+  public void setFailureThreshold(int failureThreshold) {
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * How long an open circuit rejects requests before letting a probe request through.
+   */
+  public long getOpenDurationMillis() {
+    return openDurationMillis;
+  }
+
+  public void setOpenDurationMillis(long openDurationMillis) {
+    this.openDurationMillis = openDurationMillis;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import org.apache.hc.core5.pool.PoolStats;
+
+/**
+ * A snapshot of the Loader's HTTP connection pool, or of the part of it used by one route.
+ *
+ * @param leased connections currently used by requests
+ * @param available idle connections kept open for reuse
+ * @param pending requests waiting for a connection
+ * @param max maximum number of connections
+ */
+public record ConnectionPoolStats(
+  int leased,
+  int available,
+  int pending,
+  int max
+) {
+  static ConnectionPoolStats of(PoolStats stats) {
+    return new ConnectionPoolStats(
+      stats.getLeased(),
+      stats.getAvailable(),
+      stats.getPending(),
+      stats.getMax()
+    );
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reads the list of feeds from a GBFS discovery file. Shared by the blocking and the
+ * asynchronous loader so both discover exactly the same files.
+ */
+final class DiscoveryFeeds {
+
+  /**
+   * Version assumed for discovery files without a version field, as in GBFS v1.0
+   */
+  static final String DEFAULT_VERSION = "1.0";
+
+  /**
+   * Name of the feed listing every version a system publishes
+   */
+  static final String VERSIONS_FEED = "gbfs_versions";
+
+  private DiscoveryFeeds() {}
+
+  /**
+   * Normalize discovery file name to "gbfs" (without extension) for validator compatibility
+   */
+  static String discoveryFileName(String fileName) {
+    return fileName.replaceFirst("\\.json$", "");
+  }
+
+  /**
+   * Lists the feeds of a discovery file. v3 discovery files list feeds directly under data,
+   * while earlier versions group them by language.
+   *
+   * @param discoveryFileJson the parsed discovery file
+   * @return the feeds in the order they appear in the discovery file
+   * @throws RuntimeException if the discovery file does not have the expected structure
+   */
+  static List<FeedReference> parse(JSONObject discoveryFileJson) {
+    String version = version(discoveryFileJson);
+    List<FeedReference> feeds = new ArrayList<>();
+    JSONObject data = discoveryFileJson.getJSONObject("data");
+
+    if (version.matches("^3\\.\\d")) {
+      data
+        .getJSONArray("feeds")
+        .toList()
+        .forEach(feed -> feeds.add(toFeedReference(feed, null)));
+    } else {
+      data
+        .keys()
+        .forEachRemaining(languageKey ->
+          data
+            .getJSONObject(languageKey)
+            .getJSONArray("feeds")
+            .toList()
+            .forEach(feed -> feeds.add(toFeedReference(feed, languageKey)))
+        );
+    }
+
+    return feeds;
+  }
+
+  /**
+   * The version of a discovery file, defaulting to 1.0 when no version field is present
+   */
+  static String version(JSONObject discoveryFileJson) {
+    return discoveryFileJson.optString("version", DEFAULT_VERSION);
+  }
+
+  /**
+   * Lists the versions of a gbfs_versions feed.
+   *
+   * @param versionsFileJson the parsed gbfs_versions feed
+   * @return the discovery file URL of each version, in the order they appear in the feed
+   * @throws RuntimeException if the feed does not have the expected structure
+   */
+  static Map<String, String> parseVersions(JSONObject versionsFileJson) {
+    Map<String, String> versions = new LinkedHashMap<>();
+    JSONArray versionsArray = versionsFileJson
+      .getJSONObject("data")
+      .getJSONArray("versions");
+    for (int i = 0; i < versionsArray.length(); i++) {
+      JSONObject version = versionsArray.getJSONObject(i);
+      versions.put(version.getString("version"), version.getString("url"));
+    }
+    return versions;
+  }
+
+  private static FeedReference toFeedReference(Object feed, String language) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> feedMap = (Map<String, Object>) feed;
+    return new FeedReference(
+      (String) feedMap.get("name"),
+      (String) feedMap.get("url"),
+      language
+    );
+  }
+}
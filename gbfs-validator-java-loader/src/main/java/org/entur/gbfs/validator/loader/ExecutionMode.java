@@ -0,0 +1,40 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Controls how the Loader runs its file fetches.
+ */
+public enum ExecutionMode {
+  /**
+   * Fetches run on a fixed-size pool of platform threads. The pool size caps the number of
+   * in-flight fetches across all concurrent loads.
+   */
+  THREAD_POOL,
+
+  /**
+   * Every fetch runs on its own virtual thread, and the number of in-flight requests is bounded
+   * by the loader's global and per-host limits. Falls back to an unbounded pool of platform threads when
+   * the runtime does not support virtual threads (Java 20 and older).
+   */
+  VIRTUAL_THREADS,
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects what happens while a single file is fetched: how many requests were sent, and the
+ * timings of the last response received. Shared by retried, hedged and coalesced requests.
+ */
+class FetchRecorder {
+
+  private final AtomicLong queueWaitMillis;
+  private final AtomicInteger attempts = new AtomicInteger();
+  private volatile FetchStats lastResponse;
+
+  FetchRecorder(long queueWaitMillis) {
+    this.queueWaitMillis = new AtomicLong(queueWaitMillis);
+  }
+
+  /**
+   * Adds the time an attempt waited for the host scheduler, for fetches whose attempts are
+   * scheduled one by one.
+   */
+  void queued(long waitMillis) {
+    queueWaitMillis.addAndGet(waitMillis);
+  }
+
+  void attemptStarted() {
+    attempts.incrementAndGet();
+  }
+
+  void responseReceived(
+    long connectMillis,
+    long timeToFirstByteMillis,
+    long downloadMillis,
+    int statusCode,
+    Map<String, String> headers,
+    long bytes
+  ) {
+    lastResponse =
+      new FetchStats(
+        queueWaitMillis.get(),
+        connectMillis,
+        timeToFirstByteMillis,
+        downloadMillis,
+        statusCode,
+        headers,
+        bytes
+      );
+  }
+
+  /**
+   * Takes over the attempts and response of a fetch this one waited for, keeping its own
+   * queue wait.
+   */
+  void copyFrom(FetchRecorder other) {
+    attempts.set(other.attempts.get());
+    responseFrom(other);
+  }
+
+  /**
+   * Adds the attempts and takes over the response of a single attempt that was recorded on
+   * its own, keeping this fetch's queue wait.
+   */
+  void merge(FetchRecorder other) {
+    attempts.addAndGet(other.attempts.get());
+    responseFrom(other);
+  }
+
+  /**
+   * Takes over the response of another request, such as the winner of a hedged fetch, keeping
+   * this fetch's attempts and queue wait.
+   */
+  void responseFrom(FetchRecorder other) {
+    FetchStats response = other.lastResponse;
+    if (response != null) {
+      responseReceived(
+        response.connectMillis(),
+        response.timeToFirstByteMillis(),
+        response.downloadMillis(),
+        response.statusCode(),
+        response.headers(),
+        response.bytes()
+      );
+    }
+  }
+
+  int attempts() {
+    return attempts.get();
+  }
+
+  FetchStats stats() {
+    FetchStats response = lastResponse;
+    return response != null
+      ? response
+      : new FetchStats(queueWaitMillis.get(), 0, 0, 0, 0, Map.of(), 0);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.Map;
+
+/**
+ * Timings and sizes recorded while fetching a single file. For retried or hedged requests the
+ * timings are those of the response that was used. Local files only report the queue wait and
+ * their size.
+ *
+ * @param queueWaitMillis time spent waiting for a concurrency or rate-limit slot
+ * @param connectMillis time spent resolving, connecting and completing the TLS handshake, or
+ *                      zero when a pooled connection was reused
+ * @param timeToFirstByteMillis time from sending the request until the response headers
+ *                              arrived, including any connect time
+ * @param downloadMillis time spent reading the response body
+ * @param statusCode HTTP status code of the response, or zero when there was none
+ * @param headers selected response headers, such as caching and content headers
+ * @param bytes size of the response body passed on for validation
+ */
+public record FetchStats(
+  long queueWaitMillis,
+  long connectMillis,
+  long timeToFirstByteMillis,
+  long downloadMillis,
+  int statusCode,
+  Map<String, String> headers,
+  long bytes
+) {}
@@ -0,0 +1,55 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Concurrency and request-rate limits for a single host, overriding the Loader defaults.
+ * A value of zero or less means the default applies.
+ */
+public class HostLimits {
+
+  private int maxConcurrentRequests = 0;
+  private double maxRequestsPerSecond = 0;
+
+  public HostLimits() {}
+
+  public HostLimits(int maxConcurrentRequests, double maxRequestsPerSecond) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  public double getMaxRequestsPerSecond() {
+    return maxRequestsPerSecond;
+  }
+
+  public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Schedules fetches onto the Loader's executor while enforcing a global concurrency limit and
+ * per-host concurrency and request-rate limits.
+ * Every host has its own FIFO queue, and hosts are served round-robin, one task per host per
+ * pass, so a busy or throttled host never delays requests to other hosts. Tasks are only handed
+ * to the executor once they may run, so no thread is blocked waiting for a permit.
+ */
+class HostScheduler {
+
+  private final ExecutorService executor;
+  private final ScheduledExecutorService timer;
+  private final int maxConcurrent;
+  private final HostLimits defaultLimits;
+  private final Map<String, HostLimits> hostLimits;
+
+  // All fields below are guarded by this
+  private final Map<String, HostQueue> hosts = new HashMap<>();
+  private final ArrayDeque<HostQueue> activeHosts = new ArrayDeque<>();
+  private int inFlight;
+
+  /**
+   * @param executor the executor that runs the tasks
+   * @param maxConcurrent maximum number of tasks running at once across all hosts
+   * @param defaultLimits limits for hosts without an override
+   * @param hostLimits per-host overrides, keyed by host name
+   */
+  HostScheduler(
+    ExecutorService executor,
+    int maxConcurrent,
+    HostLimits defaultLimits,
+    Map<String, HostLimits> hostLimits
+  ) {
+    this.executor = executor;
+    this.maxConcurrent = maxConcurrent;
+    this.defaultLimits = defaultLimits;
+    this.hostLimits = hostLimits;
+    this.timer =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gbfs-loader-host-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+  }
+
+  /**
+   * Queues a task against the given host.
+   *
+   * @param host the host the task sends requests to, or null if it does not use the network
+   * @param task the task to run
+   * @return a future completing with the task's result
+   */
+  <T> CompletableFuture<T> submit(String host, Supplier<T> task) {
+    if (host == null) {
+      return CompletableFuture.supplyAsync(task, executor);
+    }
+    return submitAsync(
+      host,
+      () -> CompletableFuture.completedFuture(task.get())
+    );
+  }
+
+  /**
+   * Queues an asynchronous task against the given host. The host's slot is held until the
+   * future returned by the task completes, not just until the task returns, so requests sent
+   * without blocking a thread still count against the host's limits.
+   *
+   * @param host the host the task sends requests to, or null if it does not use the network
+   * @param task starts the work and returns a future of its result
+   * @return a future completing with the result of the task's future
+   */
+  <T> CompletableFuture<T> submitAsync(
+    String host,
+    Supplier<CompletableFuture<T>> task
+  ) {
+    if (host == null) {
+      return CompletableFuture
+        .supplyAsync(task, executor)
+        .thenCompose(started -> started);
+    }
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    synchronized (this) {
+      HostQueue hostQueue = hosts.computeIfAbsent(host, this::newHostQueue);
+      hostQueue.pending.add(() -> {
+        CompletableFuture<T> started;
+        try {
+          started = task.get();
+        } catch (Throwable t) {
+          started = CompletableFuture.failedFuture(t);
+        }
+        started.whenComplete((result, failure) -> {
+          // Release before completing, so work chained onto the future does not hold the host
+          release(hostQueue);
+          if (failure != null) {
+            future.completeExceptionally(failure);
+          } else {
+            future.complete(result);
+          }
+        });
+      });
+      if (!hostQueue.active) {
+        hostQueue.active = true;
+        activeHosts.add(hostQueue);
+      }
+    }
+    dispatch();
+    return future;
+  }
+
+  void shutdown() {
+    timer.shutdownNow();
+  }
+
+  private HostQueue newHostQueue(String host) {
+    HostLimits override = hostLimits.get(host);
+    int hostMaxConcurrent = override != null &&
+      override.getMaxConcurrentRequests() > 0
+      ? override.getMaxConcurrentRequests()
+      : defaultLimits.getMaxConcurrentRequests();
+    double hostMaxRequestsPerSecond = override != null &&
+      override.getMaxRequestsPerSecond() > 0
+      ? override.getMaxRequestsPerSecond()
+      : defaultLimits.getMaxRequestsPerSecond();
+    return new HostQueue(hostMaxConcurrent, hostMaxRequestsPerSecond);
+  }
+
+  private synchronized void release(HostQueue hostQueue) {
+    hostQueue.inFlight--;
+    inFlight--;
+    dispatch();
+  }
+
+  private synchronized void dispatch() {
+    boolean progress = true;
+    while (progress && inFlight < maxConcurrent && !activeHosts.isEmpty()) {
+      progress = false;
+      int hostsInPass = activeHosts.size();
+      for (int i = 0; i < hostsInPass && inFlight < maxConcurrent; i++) {
+        HostQueue hostQueue = activeHosts.poll();
+        if (tryStart(hostQueue)) {
+          progress = true;
+        }
+        if (hostQueue.pending.isEmpty()) {
+          hostQueue.active = false;
+        } else {
+          activeHosts.add(hostQueue);
+        }
+      }
+    }
+  }
+
+  private boolean tryStart(HostQueue hostQueue) {
+    if (hostQueue.inFlight >= hostQueue.maxConcurrent) {
+      return false;
+    }
+
+    long now = System.nanoTime();
+    if (hostQueue.nextStartNanos - now > 0) {
+      scheduleWakeup(hostQueue, hostQueue.nextStartNanos - now);
+      return false;
+    }
+
+    Runnable task = hostQueue.pending.poll();
+    hostQueue.inFlight++;
+    inFlight++;
+    if (hostQueue.intervalNanos > 0) {
+      hostQueue.nextStartNanos = now + hostQueue.intervalNanos;
+    }
+
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      // The loader is closing, run the task here so its future still completes
+      task.run();
+    }
+    return true;
+  }
+
+  private void scheduleWakeup(HostQueue hostQueue, long delayNanos) {
+    if (hostQueue.wakeupScheduled) {
+      return;
+    }
+    hostQueue.wakeupScheduled = true;
+    try {
+      timer.schedule(
+        () -> {
+          synchronized (this) {
+            hostQueue.wakeupScheduled = false;
+            dispatch();
+          }
+        },
+        delayNanos,
+        TimeUnit.NANOSECONDS
+      );
+    } catch (RejectedExecutionException e) {
+      hostQueue.wakeupScheduled = false;
+    }
+  }
+
+  private static class HostQueue {
+
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private final int maxConcurrent;
+    private final long intervalNanos;
+    private long nextStartNanos = System.nanoTime();
+    private int inFlight;
+    private boolean active;
+    private boolean wakeupScheduled;
+
+    private HostQueue(int maxConcurrent, double maxRequestsPerSecond) {
+      this.maxConcurrent = maxConcurrent;
+      this.intervalNanos =
+        maxRequestsPerSecond > 0
+          ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond)
+          : 0;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a file request is answered with a non-success HTTP status.
+ */
+class HttpStatusException extends IOException {
+
+  private final int statusCode;
+  private final long retryAfterMillis;
+
+  HttpStatusException(
+    int statusCode,
+    String reasonPhrase,
+    long retryAfterMillis
+  ) {
+    super("HTTP error fetching file: " + statusCode + " " + reasonPhrase);
+    this.statusCode = statusCode;
+    this.retryAfterMillis = retryAfterMillis;
+  }
+
+  int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * @return the delay requested by the Retry-After header, or -1 if there was none
+   */
+  long getRetryAfterMillis() {
+    return retryAfterMillis;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a sliding window of recent response times per host, used to decide when a request is
+ * slow enough to be hedged.
+ */
+class LatencyTracker {
+
+  private static final int WINDOW_SIZE = 100;
+  private static final int MIN_SAMPLES = 20;
+
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+  void record(String host, long millis) {
+    windows.computeIfAbsent(host, h -> new Window()).add(millis);
+  }
+
+  /**
+   * @return the host's 95th percentile latency in milliseconds, or -1 until enough responses
+   * have been observed
+   */
+  long p95Millis(String host) {
+    Window window = windows.get(host);
+    return window != null ? window.percentile(0.95) : -1;
+  }
+
+  private static class Window {
+
+    private final long[] samples = new long[WINDOW_SIZE];
+    private int count;
+    private int next;
+
+    private synchronized void add(long millis) {
+      samples[next] = millis;
+      next = (next + 1) % WINDOW_SIZE;
+      count = Math.min(count + 1, WINDOW_SIZE);
+    }
+
+    private synchronized long percentile(double percentile) {
+      if (count < MIN_SAMPLES) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.ceil(percentile * count) - 1];
+    }
+  }
+}
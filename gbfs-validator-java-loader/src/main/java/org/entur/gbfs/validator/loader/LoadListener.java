@@ -0,0 +1,51 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.List;
+
+/**
+ * Receives files from {@link Loader#load(String, org.entur.gbfs.validator.loader.auth.Authentication, LoadListener)}
+ * as soon as each of them has been loaded, so they can be processed while the remaining files
+ * are still being fetched.
+ * Feed files are passed to {@link #onFileLoaded(LoadedFile)} on the loader's listener threads,
+ * see {@link LoaderOptions#getListenerThreads()}, never on the threads fetching them. Methods may
+ * be called several at once and must not throw.
+ */
+public interface LoadListener {
+  /**
+   * Called once the discovery file has been read, before any of the listed feeds is passed to
+   * {@link #onFileLoaded(LoadedFile)}.
+   *
+   * @param feeds the feeds listed in the discovery file, empty if it could not be loaded or parsed
+   */
+  default void onFeedsDiscovered(List<FeedReference> feeds) {}
+
+  /**
+   * Called for the discovery file and for every feed file once it has been loaded, whether
+   * loading succeeded or not. Reading the file contents here consumes the stream of the
+   * same LoadedFile returned from load.
+   *
+   * @param file the loaded file
+   */
+  void onFileLoaded(LoadedFile file);
+}
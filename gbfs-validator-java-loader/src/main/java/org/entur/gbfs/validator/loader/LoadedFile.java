@@ -29,8 +29,31 @@ public record LoadedFile(
   String url,
   InputStream fileContents,
   String language,
-  List<LoaderError> loaderErrors
+  List<LoaderError> loaderErrors,
+  int attempts,
+  FetchStats fetchStats
 ) {
+  public LoadedFile(
+    String fileName,
+    String url,
+    InputStream fileContents,
+    String language,
+    List<LoaderError> loaderErrors,
+    int attempts
+  ) {
+    this(fileName, url, fileContents, language, loaderErrors, attempts, null);
+  }
+
+  public LoadedFile(
+    String fileName,
+    String url,
+    InputStream fileContents,
+    String language,
+    List<LoaderError> loaderErrors
+  ) {
+    this(fileName, url, fileContents, language, loaderErrors, 1);
+  }
+
   public LoadedFile(
     String fileName,
     String url,
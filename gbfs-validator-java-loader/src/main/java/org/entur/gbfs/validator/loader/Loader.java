@@ -23,52 +23,121 @@ package org.entur.gbfs.validator.loader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
+import org.entur.gbfs.validator.loader.auth.AuthSession;
 import org.entur.gbfs.validator.loader.auth.Authentication;
-import org.entur.gbfs.validator.loader.auth.BasicAuth;
-import org.entur.gbfs.validator.loader.auth.BearerTokenAuth;
-import org.entur.gbfs.validator.loader.auth.OAuthClientCredentialsGrantAuth;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
 /**
  * Loads GBFS (General Bikeshare Feed Specification) files from HTTP/HTTPS URLs or local file system.
- * Manages HTTP connection pooling and parallel file loading using a thread pool.
+ * Manages HTTP connection pooling and parallel file loading using either a thread pool or
+ * virtual threads, see {@link ExecutionMode}.
  * Thread-safe and designed to be used as a singleton bean.
  */
 public class Loader {
 
+  private static final String CONNECT_NANOS = "gbfs.loader.connect-nanos";
+
+  private static final LoadListener NO_LISTENER = file -> {};
+
+  // Response headers reported in the fetch stats of each file
+  static final List<String> HEADERS_OF_INTEREST = List.of(
+    HttpHeaders.CONTENT_TYPE,
+    HttpHeaders.CONTENT_LENGTH,
+    HttpHeaders.CONTENT_ENCODING,
+    HttpHeaders.CACHE_CONTROL,
+    HttpHeaders.AGE,
+    HttpHeaders.ETAG,
+    HttpHeaders.LAST_MODIFIED,
+    HttpHeaders.RETRY_AFTER
+  );
+
   private final CloseableHttpClient httpClient;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final LoaderMetrics metrics;
   private final ExecutorService executorService;
+  private final HostScheduler hostScheduler;
+  private final RetryPolicy retryPolicy;
+  private final LatencyTracker latencyTracker = new LatencyTracker();
+  private final ExecutorService hedgeExecutor;
+  private final ExecutorService listenerExecutor;
+  private final RequestCoalescer requestCoalescer;
+  private final CircuitBreaker circuitBreaker;
+  private final BodyReader bodyReader;
   private final Map<String, String> customHeaders;
 
-  private String getFileName(URI uri) {
+  /**
+   * The route requests to the URI are sent through, named like the connection pool's routes,
+   * such as https://gbfs.example.com:443
+   */
+  static String getRoute(URI uri) {
+    return getRoute(uri.getScheme(), uri.getHost(), uri.getPort());
+  }
+
+  private static String getRoute(String scheme, String host, int port) {
+    if (port < 0) {
+      port = "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    }
+    return (
+      scheme.toLowerCase(Locale.ROOT) +
+      "://" +
+      host.toLowerCase(Locale.ROOT) +
+      ":" +
+      port
+    );
+  }
+
+  static String getFileName(URI uri) {
     String path = uri.getPath();
     if (path == null || path.isEmpty()) {
       return "unknown_file";
@@ -101,14 +170,76 @@ public class Loader {
     int responseTimeoutSeconds,
     int threadPoolSize,
     Map<String, String> customHeaders
+  ) {
+    this(
+      maxTotalConnections,
+      maxConnectionsPerRoute,
+      connectTimeoutSeconds,
+      responseTimeoutSeconds,
+      threadPoolSize,
+      customHeaders,
+      new LoaderOptions()
+    );
+  }
+
+  /**
+   * Creates a Loader with custom configuration and additional options.
+   *
+   * @param maxTotalConnections maximum number of total HTTP connections in the pool
+   * @param maxConnectionsPerRoute maximum number of connections per route
+   * @param connectTimeoutSeconds connection timeout in seconds
+   * @param responseTimeoutSeconds response timeout in seconds
+   * @param threadPoolSize number of threads for parallel loading, only used in {@link ExecutionMode#THREAD_POOL}
+   * @param customHeaders custom HTTP headers to include in all requests
+   * @param options additional loader options such as the execution mode and per-host limits
+   */
+  public Loader(
+    int maxTotalConnections,
+    int maxConnectionsPerRoute,
+    int connectTimeoutSeconds,
+    int responseTimeoutSeconds,
+    int threadPoolSize,
+    Map<String, String> customHeaders,
+    LoaderOptions options
   ) {
     this.customHeaders =
       customHeaders != null ? customHeaders : new HashMap<>();
 
-    PoolingHttpClientConnectionManager connectionManager =
-      new PoolingHttpClientConnectionManager();
+    int maxConcurrentRequestsPerHost =
+      options.getMaxConcurrentRequestsPerHost() > 0
+        ? options.getMaxConcurrentRequestsPerHost()
+        : maxConnectionsPerRoute;
+    Map<String, HostLimits> hostLimits = options.getHostLimits() != null
+      ? options.getHostLimits()
+      : Collections.emptyMap();
+
+    // Per-host concurrency is enforced by the scheduler, so the pool only needs to allow
+    // enough connections per route for the largest host override
+    int maxHostOverride = hostLimits
+      .values()
+      .stream()
+      .mapToInt(HostLimits::getMaxConcurrentRequests)
+      .max()
+      .orElse(0);
+
+    connectionManager =
+      new PoolingHttpClientConnectionManager() {
+        @Override
+        public void connect(
+          ConnectionEndpoint endpoint,
+          TimeValue timeout,
+          HttpContext context
+        ) throws IOException {
+          // Only called for new connections, so reused connections report no connect time
+          long start = System.nanoTime();
+          super.connect(endpoint, timeout, context);
+          context.setAttribute(CONNECT_NANOS, System.nanoTime() - start);
+        }
+      };
     connectionManager.setMaxTotal(maxTotalConnections);
-    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    connectionManager.setDefaultMaxPerRoute(
+      Math.max(maxConnectionsPerRoute, maxHostOverride)
+    );
 
     RequestConfig requestConfig = RequestConfig
       .custom()
@@ -116,14 +247,135 @@ public class Loader {
       .setResponseTimeout(Timeout.of(responseTimeoutSeconds, TimeUnit.SECONDS))
       .build();
 
-    httpClient =
-      HttpClients
-        .custom()
-        .setConnectionManager(connectionManager)
-        .setDefaultRequestConfig(requestConfig)
-        .build();
+    metrics =
+      options.getMetrics() != null
+        ? options.getMetrics()
+        : new LoaderMetrics() {};
+    retryPolicy =
+      options.getRetryPolicy() != null
+        ? options.getRetryPolicy()
+        : new RetryPolicy();
+
+    HttpClientBuilder httpClientBuilder = HttpClients
+      .custom()
+      .setConnectionManager(connectionManager)
+      .setDefaultRequestConfig(requestConfig);
+    if (retryPolicy.getMaxAttempts() > 1 || retryPolicy.isHedgingEnabled()) {
+      // Responses are retried by the retry policy, so every response counts as an attempt.
+      // The client still transparently resends requests on stale pooled connections.
+      httpClientBuilder.setRetryStrategy(
+        new DefaultHttpRequestRetryStrategy() {
+          @Override
+          public boolean retryRequest(
+            HttpResponse response,
+            int execCount,
+            HttpContext context
+          ) {
+            return false;
+          }
+        }
+      );
+    }
+    httpClient = httpClientBuilder.build();
+
+    int maxConcurrentRequests = options.getMaxConcurrentRequests() > 0
+      ? options.getMaxConcurrentRequests()
+      : maxTotalConnections;
+
+    if (options.getExecutionMode() == ExecutionMode.VIRTUAL_THREADS) {
+      executorService = newVirtualThreadPerTaskExecutor();
+    } else {
+      executorService = Executors.newFixedThreadPool(threadPoolSize);
+      // Never hand the pool more work than it has threads, so queued requests stay in the
+      // scheduler where they are served fairly across hosts
+      maxConcurrentRequests = Math.min(maxConcurrentRequests, threadPoolSize);
+    }
+
+    hostScheduler =
+      new HostScheduler(
+        executorService,
+        maxConcurrentRequests,
+        new HostLimits(
+          maxConcurrentRequestsPerHost,
+          options.getMaxRequestsPerSecondPerHost()
+        ),
+        hostLimits
+      );
+
+    // Both requests of a hedged fetch are awaited by the fetch's thread, so they are sent from
+    // threads of their own
+    hedgeExecutor =
+      retryPolicy.isHedgingEnabled() ? newVirtualThreadPerTaskExecutor() : null;
+    // Listeners may validate what they are passed, so they get threads of their own and never
+    // hold up fetches
+    AtomicInteger listenerThreadCount = new AtomicInteger();
+    listenerExecutor =
+      Executors.newFixedThreadPool(
+        options.getListenerThreads() > 0
+          ? options.getListenerThreads()
+          : Runtime.getRuntime().availableProcessors(),
+        runnable -> {
+          Thread thread = new Thread(
+            runnable,
+            "gbfs-loader-listener-" + listenerThreadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        }
+      );
+    requestCoalescer =
+      options.isCoalesceRequests() ? new RequestCoalescer() : null;
+    circuitBreaker =
+      options.getCircuitBreaker().getFailureThreshold() > 0
+        ? new CircuitBreaker(options.getCircuitBreaker())
+        : null;
+    bodyReader =
+      new BodyReader(
+        options.getMaxBodySizeBytes(),
+        options.getSpillThresholdBytes()
+      );
+  }
+
+  /**
+   * Virtual threads are only available from Java 21, while this library targets Java 17,
+   * so the factory method is looked up at runtime. Older runtimes get an unbounded pool of
+   * platform threads instead; concurrency is bounded by the host scheduler in both cases.
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
 
-    executorService = Executors.newFixedThreadPool(threadPoolSize);
+  /**
+   * @return a snapshot of the connection pool across all routes
+   */
+  public ConnectionPoolStats getConnectionPoolStats() {
+    return ConnectionPoolStats.of(connectionManager.getTotalStats());
+  }
+
+  /**
+   * @return a snapshot of the connection pool of every route that has been used, keyed like
+   *     the routes passed to {@link LoaderMetrics}
+   */
+  public Map<String, ConnectionPoolStats> getConnectionPoolStatsPerRoute() {
+    Map<String, ConnectionPoolStats> routes = new TreeMap<>();
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      HttpHost target = route.getTargetHost();
+      routes.put(
+        getRoute(
+          target.getSchemeName(),
+          target.getHostName(),
+          target.getPort()
+        ),
+        ConnectionPoolStats.of(connectionManager.getStats(route))
+      );
+    }
+    return routes;
   }
 
   /**
@@ -147,10 +399,241 @@ public class Loader {
    */
   public List<LoadedFile> load(String discoveryURIString, Authentication auth)
     throws IOException {
+    return load(discoveryURIString, auth, NO_LISTENER);
+  }
+
+  /**
+   * Loads GBFS files from the given discovery file URL, passing every file to the listener as
+   * soon as it has been loaded.
+   *
+   * @param discoveryURIString URL or file path to the GBFS discovery file
+   * @param auth authentication credentials for protected feeds, or null for public feeds
+   * @param listener receives the discovered feeds and each file as it completes
+   * @return list of loaded files with their content and metadata
+   * @throws IOException if an error occurs during loading
+   */
+  public List<LoadedFile> load(
+    String discoveryURIString,
+    Authentication auth,
+    LoadListener listener
+  ) throws IOException {
     URI discoveryURI = URI.create(discoveryURIString);
-    LoadedFile discoveryLoadedFile = loadFile(discoveryURI, auth);
+    if (SnapshotArchive.SCHEME.equals(discoveryURI.getScheme())) {
+      return loadArchive(discoveryURI, listener);
+    }
+    if (
+      "file".equals(discoveryURI.getScheme()) &&
+      Files.isDirectory(Path.of(discoveryURI))
+    ) {
+      return loadDirectory(Path.of(discoveryURI), listener);
+    }
 
+    AuthSession session;
+    try {
+      session = resolveSession(auth);
+    } catch (IOException e) {
+      return loadFeeds(authenticationFailed(discoveryURI, e), null, listener);
+    }
+    return load(discoveryURI, session, listener);
+  }
+
+  private List<LoadedFile> load(
+    URI discoveryURI,
+    AuthSession session,
+    LoadListener listener
+  ) throws IOException {
+    LoadedFile discoveryLoadedFile = submitLoadFile(discoveryURI, session)
+      .join();
+    return loadFeeds(discoveryLoadedFile, session, listener);
+  }
+
+  /**
+   * Loads every version of a system listed in its gbfs_versions feed, such as a 2.3 and a 3.0
+   * discovery file published side by side. The versions are loaded concurrently over the same
+   * connection pool, so the whole load takes roughly as long as the slowest version.
+   *
+   * @param discoveryURIString URL to the GBFS discovery file of any of the versions
+   * @param auth authentication credentials for protected feeds, or null for public feeds
+   * @return the loaded files of each version, keyed by version in the order of gbfs_versions.
+   *     Only the given version is loaded if the system has no gbfs_versions feed.
+   * @throws IOException if an error occurs during loading
+   */
+  public Map<String, List<LoadedFile>> loadAllVersions(
+    String discoveryURIString,
+    Authentication auth
+  ) throws IOException {
+    URI discoveryURI = URI.create(discoveryURIString);
+    AuthSession session;
+    try {
+      session = resolveSession(auth);
+    } catch (IOException e) {
+      Map<String, List<LoadedFile>> loadedVersions = new LinkedHashMap<>();
+      loadedVersions.put(
+        DiscoveryFeeds.DEFAULT_VERSION,
+        loadFeeds(authenticationFailed(discoveryURI, e), null, NO_LISTENER)
+      );
+      return loadedVersions;
+    }
+    LoadedFile discoveryLoadedFile = submitLoadFile(discoveryURI, session)
+      .join();
     if (discoveryLoadedFile.fileContents() == null) {
+      Map<String, List<LoadedFile>> loadedVersions = new LinkedHashMap<>();
+      loadedVersions.put(
+        DiscoveryFeeds.DEFAULT_VERSION,
+        loadFeeds(discoveryLoadedFile, session, NO_LISTENER)
+      );
+      return loadedVersions;
+    }
+
+    byte[] discoveryFileBytes;
+    try (InputStream fileContents = discoveryLoadedFile.fileContents()) {
+      discoveryFileBytes = fileContents.readAllBytes();
+    }
+    LoadedFile discoveryFile = new LoadedFile(
+      discoveryLoadedFile.fileName(),
+      discoveryLoadedFile.url(),
+      new ByteArrayInputStream(discoveryFileBytes),
+      discoveryLoadedFile.language(),
+      discoveryLoadedFile.loaderErrors(),
+      discoveryLoadedFile.attempts(),
+      discoveryLoadedFile.fetchStats()
+    );
+
+    JSONObject discoveryFileJson;
+    try {
+      discoveryFileJson = new JSONObject(
+        new JSONTokener(new ByteArrayInputStream(discoveryFileBytes))
+      );
+    } catch (Exception e) {
+      // Malformed discovery files are reported when the given version is validated
+      discoveryFileJson = new JSONObject();
+    }
+    String version = DiscoveryFeeds.version(discoveryFileJson);
+    String versionsUrl = versionsFeedUrl(discoveryFileJson);
+
+    // Each version waits on its own feeds, so the versions are coordinated from threads of
+    // their own rather than from the executor that performs the fetches
+    ExecutorService versionExecutor = newVirtualThreadPerTaskExecutor();
+    try {
+      CompletableFuture<List<LoadedFile>> givenVersion =
+        CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              return loadFeeds(discoveryFile, session, NO_LISTENER);
+            } catch (IOException e) {
+              throw new CompletionException(e);
+            }
+          },
+          versionExecutor
+        );
+
+      Map<String, CompletableFuture<List<LoadedFile>>> versionLoads =
+        new LinkedHashMap<>();
+      Map<String, String> versionUrls = versionsUrl == null
+        ? Map.of()
+        : loadVersionUrls(URI.create(versionsUrl), session);
+      if (!versionUrls.containsKey(version)) {
+        versionLoads.put(version, givenVersion);
+      }
+      versionUrls.forEach((otherVersion, url) ->
+        versionLoads.put(
+          otherVersion,
+          otherVersion.equals(version) || url.equals(discoveryURIString)
+            ? givenVersion
+            : CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return load(URI.create(url), session, NO_LISTENER);
+                } catch (IOException e) {
+                  throw new CompletionException(e);
+                }
+              },
+              versionExecutor
+            )
+        )
+      );
+
+      Map<String, List<LoadedFile>> loadedVersions = new LinkedHashMap<>();
+      for (var versionLoad : versionLoads.entrySet()) {
+        try {
+          loadedVersions.put(
+            versionLoad.getKey(),
+            versionLoad.getValue().join()
+          );
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof IOException ioException) {
+            throw ioException;
+          }
+          throw e;
+        }
+      }
+      return loadedVersions;
+    } finally {
+      versionExecutor.shutdown();
+    }
+  }
+
+  private static String versionsFeedUrl(JSONObject discoveryFileJson) {
+    try {
+      return DiscoveryFeeds
+        .parse(discoveryFileJson)
+        .stream()
+        .filter(feed -> DiscoveryFeeds.VERSIONS_FEED.equals(feed.name()))
+        .map(FeedReference::url)
+        .findFirst()
+        .orElse(null);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the versions and their discovery file URLs from a gbfs_versions feed. A feed that
+   * cannot be loaded or parsed lists no versions; it is validated with the version it
+   * belongs to.
+   */
+  private Map<String, String> loadVersionUrls(
+    URI versionsURI,
+    AuthSession session
+  ) {
+    LoadedFile versionsFile = submitLoadFile(versionsURI, session).join();
+    if (versionsFile.fileContents() == null) {
+      return Map.of();
+    }
+    try (InputStream fileContents = versionsFile.fileContents()) {
+      return DiscoveryFeeds.parseVersions(
+        new JSONObject(new JSONTokener(fileContents))
+      );
+    } catch (Exception e) {
+      return Map.of();
+    }
+  }
+
+  private List<LoadedFile> loadFeeds(
+    LoadedFile discoveryLoadedFile,
+    AuthSession session,
+    LoadListener listener
+  ) throws IOException {
+    return loadFeeds(
+      discoveryLoadedFile,
+      session,
+      listener,
+      UnaryOperator.identity()
+    );
+  }
+
+  /**
+   * Loads the discovery file's feeds, each from where {@code locateFeed} maps it to.
+   */
+  private List<LoadedFile> loadFeeds(
+    LoadedFile discoveryLoadedFile,
+    AuthSession session,
+    LoadListener listener,
+    UnaryOperator<FeedReference> locateFeed
+  ) throws IOException {
+    if (discoveryLoadedFile.fileContents() == null) {
+      listener.onFeedsDiscovered(List.of());
+      listener.onFileLoaded(discoveryLoadedFile);
       List<LoadedFile> loadedFiles = new ArrayList<>();
       loadedFiles.add(discoveryLoadedFile);
       return loadedFiles;
@@ -167,163 +650,286 @@ public class Loader {
     JSONObject discoveryFileJson = new JSONObject(
       new JSONTokener(new ByteArrayInputStream(discoveryFileBytes))
     );
-    // Default to version 1.0 if no version field is present (as in GBFS v1.0)
-    String version = discoveryFileJson.optString("version", "1.0");
 
-    List<LoadedFile> loadedFiles = new ArrayList<>();
-    // Normalize discovery file name to "gbfs" (without extension) for validator compatibility
-    String discoveryFileName = discoveryLoadedFile
-      .fileName()
-      .replaceFirst("\\.json$", "");
-    loadedFiles.add(
-      new LoadedFile(
-        discoveryFileName,
-        discoveryLoadedFile.url(),
-        new ByteArrayInputStream(discoveryFileBytes),
-        discoveryLoadedFile.language(),
-        discoveryLoadedFile.loaderErrors()
-      )
+    List<FeedReference> feeds;
+    try {
+      feeds = DiscoveryFeeds.parse(discoveryFileJson);
+      feeds = feeds.stream().map(locateFeed).toList();
+    } catch (Exception e) {
+      // If we can't parse the discovery file structure, load no feeds
+      // so the discovery file itself can be validated and report proper errors
+      feeds = List.of();
+    }
+
+    LoadedFile discoveryFile = new LoadedFile(
+      DiscoveryFeeds.discoveryFileName(discoveryLoadedFile.fileName()),
+      discoveryLoadedFile.url(),
+      new ByteArrayInputStream(discoveryFileBytes),
+      discoveryLoadedFile.language(),
+      discoveryLoadedFile.loaderErrors(),
+      discoveryLoadedFile.attempts(),
+      discoveryLoadedFile.fetchStats()
     );
+    listener.onFeedsDiscovered(feeds);
+    listener.onFileLoaded(discoveryFile);
+
+    List<LoadedFile> loadedFiles = new ArrayList<>();
+    loadedFiles.add(discoveryFile);
+    loadedFiles.addAll(getFeedFiles(feeds, session, listener));
 
-    if (version.matches("^3\\.\\d")) {
-      loadedFiles.addAll(
-        getV3Files(discoveryFileJson, loadedFiles.get(0), auth)
+    return loadedFiles;
+  }
+
+  /**
+   * Replays a snapshot archive written by {@link SnapshotRecorder}, returning the recorded files
+   * with their original URLs, loader errors and fetch stats.
+   */
+  private List<LoadedFile> loadArchive(URI archiveURI, LoadListener listener) {
+    List<LoadedFile> files;
+    try {
+      files = SnapshotArchive.read(SnapshotArchive.path(archiveURI));
+    } catch (IOException | RuntimeException e) {
+      List<LoaderError> errors = new ArrayList<>();
+      errors.add(
+        new LoaderError(
+          e instanceof NoSuchFileException ? "FILE_NOT_FOUND" : "ARCHIVE_ERROR",
+          e instanceof NoSuchFileException
+            ? e.getMessage() + " (No such file or directory)"
+            : e.getMessage()
+        )
       );
-    } else {
-      loadedFiles.addAll(
-        getPreV3Files(discoveryFileJson, loadedFiles.get(0), auth)
+      LoadedFile archiveFile = new LoadedFile(
+        getFileName(archiveURI),
+        archiveURI.toString(),
+        null,
+        null,
+        errors
       );
+      listener.onFeedsDiscovered(List.of());
+      listener.onFileLoaded(archiveFile);
+      List<LoadedFile> loadedFiles = new ArrayList<>();
+      loadedFiles.add(archiveFile);
+      return loadedFiles;
     }
 
-    return loadedFiles;
+    listener.onFeedsDiscovered(
+      files
+        .stream()
+        .skip(1)
+        .map(file ->
+          new FeedReference(file.fileName(), file.url(), file.language())
+        )
+        .toList()
+    );
+    files.forEach(listener::onFileLoaded);
+    return files;
   }
 
-  private List<LoadedFile> getV3Files(
-    JSONObject discoveryFileJson,
-    LoadedFile gbfsLoadedFile,
-    Authentication auth
+  /**
+   * Loads a local snapshot directory: the gbfs.json discovery file, and the feeds it lists from
+   * files named after them instead of their listed URLs. Feeds listed under a language are read
+   * from the subdirectory of that language when it holds them, as in pre-v3 snapshots. Other
+   * files in the directory are ignored, and listed feeds without a file are reported as not
+   * found, as they would be over HTTP.
+   */
+  private List<LoadedFile> loadDirectory(Path directory, LoadListener listener)
+    throws IOException {
+    LoadedFile discoveryFile = submitLoadFile(
+      directory.resolve("gbfs.json").toUri(),
+      null
+    )
+      .join();
+    return loadFeeds(
+      discoveryFile,
+      null,
+      listener,
+      feed ->
+        new FeedReference(
+          feed.name(),
+          localFeedFile(directory, feed).toUri().toString(),
+          feed.language()
+        )
+    );
+  }
+
+  private static Path localFeedFile(Path directory, FeedReference feed) {
+    // Names come from the discovery file, so keep them from reaching outside the directory
+    String fileName = Path.of(feed.name()).getFileName() + ".json";
+    if (feed.language() != null) {
+      Path languageFile = directory
+        .resolve(Path.of(feed.language()).getFileName())
+        .resolve(fileName);
+      if (Files.isRegularFile(languageFile)) {
+        return languageFile;
+      }
+    }
+    return directory.resolve(fileName);
+  }
+
+  private List<LoadedFile> getFeedFiles(
+    List<FeedReference> feeds,
+    AuthSession session,
+    LoadListener listener
   ) {
     List<LoadedFile> loadedFeedFiles = new ArrayList<>();
 
     try {
-      List<CompletableFuture<LoadedFile>> futures = discoveryFileJson
-        .getJSONObject("data")
-        .getJSONArray("feeds")
-        .toList()
+      List<CompletableFuture<LoadedFile>> futures = feeds
         .stream()
-        .map(feed -> {
-          @SuppressWarnings("unchecked")
-          Map<String, Object> feedMap = (Map<String, Object>) feed;
-          String url = (String) feedMap.get("url");
-          String name = (String) feedMap.get("name");
-
-          return CompletableFuture.supplyAsync(
-            () -> {
-              LoadedFile loadedFile = loadFile(URI.create(url), auth);
-              return new LoadedFile(
-                name,
-                url,
-                loadedFile.fileContents(),
-                loadedFile.language(),
-                loadedFile.loaderErrors()
-              );
-            },
-            executorService
-          );
-        })
+        .map(feed ->
+          notifyListener(
+            submitLoadFile(URI.create(feed.url()), session)
+              .thenApply(loadedFile ->
+                new LoadedFile(
+                  feed.name(),
+                  feed.url(),
+                  loadedFile.fileContents(),
+                  feed.language(),
+                  loadedFile.loaderErrors(),
+                  loadedFile.attempts(),
+                  loadedFile.fetchStats()
+                )
+              ),
+            listener
+          )
+        )
         .toList();
       loadedFeedFiles.addAll(
         futures.stream().map(CompletableFuture::join).toList()
       );
     } catch (Exception e) {
-      // If we can't parse the discovery file structure, return empty list
+      // If a feed URL is invalid, return empty list
       // so the discovery file itself can be validated and report proper errors
     }
 
     return loadedFeedFiles;
   }
 
-  private List<LoadedFile> getPreV3Files(
-    JSONObject discoveryFileJson,
-    LoadedFile gbfsLoadedFile,
-    Authentication auth
+  /**
+   * Passes the file to the listener once loaded, on the listener threads, so that a listener
+   * validating files never holds one of the threads fetching them.
+   */
+  private CompletableFuture<LoadedFile> notifyListener(
+    CompletableFuture<LoadedFile> file,
+    LoadListener listener
   ) {
-    List<LoadedFile> loadedFeedFiles = new ArrayList<>();
-    List<CompletableFuture<LoadedFile>> futures = new ArrayList<>();
-
-    try {
-      discoveryFileJson
-        .getJSONObject("data")
-        .keys()
-        .forEachRemaining(languageKey -> {
-          discoveryFileJson
-            .getJSONObject("data")
-            .getJSONObject(languageKey)
-            .getJSONArray("feeds")
-            .toList()
-            .forEach(feed -> {
-              @SuppressWarnings("unchecked")
-              Map<String, Object> feedMap = (Map<String, Object>) feed;
-              String url = (String) feedMap.get("url");
-              String name = (String) feedMap.get("name");
-
-              futures.add(
-                CompletableFuture.supplyAsync(
-                  () -> {
-                    LoadedFile loadedFile = loadFile(URI.create(url), auth);
-                    return new LoadedFile(
-                      name,
-                      url,
-                      loadedFile.fileContents(),
-                      languageKey,
-                      loadedFile.loaderErrors()
-                    );
-                  },
-                  executorService
-                )
-              );
-            });
-        });
+    if (listener == NO_LISTENER) {
+      return file;
+    }
+    return file.thenApplyAsync(
+      loadedFile -> {
+        listener.onFileLoaded(loadedFile);
+        return loadedFile;
+      },
+      listenerExecutor
+    );
+  }
 
-      loadedFeedFiles.addAll(
-        futures.stream().map(CompletableFuture::join).toList()
+  private CompletableFuture<LoadedFile> submitLoadFile(
+    URI fileURI,
+    AuthSession session
+  ) {
+    if (
+      !"https".equals(fileURI.getScheme()) &&
+      !"http".equals(fileURI.getScheme())
+    ) {
+      long submitted = System.nanoTime();
+      return hostScheduler.submit(
+        null,
+        () ->
+          loadFile(
+            fileURI,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted)
+          )
       );
-    } catch (Exception e) {
-      // If we can't parse the discovery file structure, return empty list
-      // so the discovery file itself can be validated and report proper errors
     }
 
-    return loadedFeedFiles;
+    String fileName = getFileName(fileURI);
+    String url = fileURI.toString();
+    FetchRecorder recorder = new FetchRecorder(0);
+    return retryPolicy
+      .retry(
+        () -> submitAttempt(fileURI, session, recorder),
+        executorService
+      )
+      .handle((stream, throwable) -> {
+        LoadedFile loadedFile;
+        if (throwable == null) {
+          loadedFile =
+            new LoadedFile(
+              fileName,
+              url,
+              stream,
+              null,
+              new ArrayList<>(),
+              recorder.attempts(),
+              recorder.stats()
+            );
+        } else {
+          loadedFile = failedFile(fileName, url, throwable, recorder);
+        }
+        String route = getRoute(fileURI);
+        loadedFile
+          .loaderErrors()
+          .forEach(error -> metrics.fileFailed(route, error.error()));
+        return loadedFile;
+      });
   }
 
-  private LoadedFile loadFile(URI fileURI, Authentication auth) {
+  /**
+   * Queues a single attempt to fetch the file with the host scheduler. Retries are queued
+   * again once their backoff has passed, so a host's slot is never held while backing off.
+   */
+  private CompletableFuture<InputStream> submitAttempt(
+    URI fileURI,
+    AuthSession session,
+    FetchRecorder recorder
+  ) {
+    long submitted = System.nanoTime();
+    return hostScheduler.submit(
+      fileURI.getHost(),
+      () -> {
+        recorder.queued(
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted)
+        );
+        try {
+          return getHTTPInputStream(fileURI, session, recorder);
+        } catch (IOException | ParseException e) {
+          throw new CompletionException(e);
+        }
+      }
+    );
+  }
+
+  private LoadedFile loadFile(URI fileURI, long queueWaitMillis) {
     String fileName = getFileName(fileURI);
     String url = fileURI.toString();
 
     if ("file".equals(fileURI.getScheme())) {
       try {
         InputStream stream = getFileInputStream(fileURI);
-        return new LoadedFile(fileName, url, stream, null, new ArrayList<>());
+        return new LoadedFile(
+          fileName,
+          url,
+          stream,
+          null,
+          new ArrayList<>(),
+          1,
+          new FetchStats(
+            queueWaitMillis,
+            0,
+            0,
+            0,
+            0,
+            Map.of(),
+            new File(fileURI).length()
+          )
+        );
       } catch (FileNotFoundException e) {
         List<LoaderError> errors = new ArrayList<>();
         errors.add(new LoaderError("FILE_NOT_FOUND", e.getMessage()));
         return new LoadedFile(fileName, url, null, null, errors);
       }
-    } else if (
-      "https".equals(fileURI.getScheme()) || "http".equals(fileURI.getScheme())
-    ) {
-      try {
-        InputStream stream = getHTTPInputStream(fileURI, auth);
-        return new LoadedFile(fileName, url, stream, null, new ArrayList<>());
-      } catch (IOException e) {
-        List<LoaderError> errors = new ArrayList<>();
-        errors.add(new LoaderError("CONNECTION_ERROR", e.getMessage()));
-        return new LoadedFile(fileName, url, null, null, errors);
-      } catch (ParseException e) { // Catch ParseException from getHTTPInputStream
-        List<LoaderError> errors = new ArrayList<>();
-        errors.add(new LoaderError("PARSE_ERROR", e.getMessage()));
-        return new LoadedFile(fileName, url, null, null, errors);
-      }
     }
 
     List<LoaderError> errors = new ArrayList<>();
@@ -336,98 +942,430 @@ public class Loader {
     return new LoadedFile(fileName, url, null, null, errors);
   }
 
-  private static FileInputStream getFileInputStream(URI fileURI)
+  /**
+   * Reports a failed HTTP fetch as a file without contents, with the attempts and response
+   * stats recorded before it failed.
+   */
+  static LoadedFile failedFile(
+    String fileName,
+    String url,
+    Throwable failure,
+    FetchRecorder recorder
+  ) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    String error;
+    if (failure instanceof CircuitOpenException) {
+      error = "CIRCUIT_OPEN";
+    } else if (failure instanceof BodyTooLargeException) {
+      error = "BODY_TOO_LARGE";
+    } else if (failure instanceof ParseException) {
+      error = "PARSE_ERROR";
+    } else {
+      error = "CONNECTION_ERROR";
+    }
+    List<LoaderError> errors = new ArrayList<>();
+    errors.add(
+      new LoaderError(
+        error,
+        failure.getMessage() != null
+          ? failure.getMessage()
+          : failure.getClass().getSimpleName()
+      )
+    );
+    return new LoadedFile(
+      fileName,
+      url,
+      null,
+      null,
+      errors,
+      recorder.attempts(),
+      recorder.stats()
+    );
+  }
+
+  /**
+   * Opens a local file memory-mapped, so large snapshots are read from the page cache instead
+   * of being copied onto the heap.
+   */
+  static InputStream getFileInputStream(URI fileURI)
     throws FileNotFoundException {
-    return new FileInputStream(new File(fileURI));
+    Path path = Path.of(fileURI);
+    try {
+      if (Files.isDirectory(path)) {
+        throw new FileNotFoundException(path + " (Is a directory)");
+      }
+      return ByteBufferInputStream.map(path);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(path + " (No such file or directory)");
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      FileNotFoundException notReadable = new FileNotFoundException(
+        path + " (" + e.getMessage() + ")"
+      );
+      notReadable.initCause(e);
+      throw notReadable;
+    }
   }
 
-  private InputStream getHTTPInputStream(URI fileURI, Authentication auth)
-    throws IOException, ParseException {
-    HttpGet httpGet = new HttpGet(fileURI);
-
-    customHeaders.forEach(httpGet::setHeader);
-
-    if (auth != null) {
-      if (auth instanceof BasicAuth basicAuth) {
-        String authHeader =
-          "Basic " +
-          Base64
-            .getEncoder()
-            .encodeToString(
-              (
-                basicAuth.getUsername() + ":" + basicAuth.getPassword()
-              ).getBytes()
-            );
-        httpGet.setHeader(HttpHeaders.AUTHORIZATION, authHeader);
-      } else if (auth instanceof BearerTokenAuth bearerAuth) {
-        httpGet.setHeader(
-          HttpHeaders.AUTHORIZATION,
-          "Bearer " + bearerAuth.getToken()
-        );
-      } else if (auth instanceof OAuthClientCredentialsGrantAuth oauth) {
-        try {
-          String token = fetchOAuthToken(
-            oauth.getTokenUrl(),
-            oauth.getClientId(),
-            oauth.getClientSecret()
-          );
-          httpGet.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        } catch (Exception e) {
-          throw new IOException(
-            "OAuth token fetch failed: " + e.getMessage(),
-            e
-          );
-        }
+  private InputStream getHTTPInputStream(
+    URI fileURI,
+    AuthSession session,
+    FetchRecorder recorder
+  ) throws IOException, ParseException {
+    if (requestCoalescer == null) {
+      return executeAttempt(fileURI, session, recorder);
+    }
+    // Attempts are coalesced one by one, so the shared request is recorded separately
+    FetchRecorder attemptRecorder = new FetchRecorder(0);
+    try {
+      return requestCoalescer.fetch(
+        fileURI + " " + session.fingerprint(),
+        attemptRecorder,
+        () -> executeAttempt(fileURI, session, attemptRecorder)
+      );
+    } finally {
+      recorder.merge(attemptRecorder);
+    }
+  }
+
+  /**
+   * Sends a single attempt, hedged if enabled, unless the host's circuit is open. Its outcome
+   * is recorded with the circuit breaker, so retries stop as soon as the circuit opens.
+   */
+  private InputStream executeAttempt(
+    URI fileURI,
+    AuthSession session,
+    FetchRecorder recorder
+  ) throws IOException, ParseException {
+    // Keyed by host name like the scheduler's per-host limits
+    String host = fileURI.getHost();
+    if (circuitBreaker != null && !circuitBreaker.tryAcquire(host)) {
+      throw new CircuitOpenException(host);
+    }
+    boolean hostFailed = false;
+    try {
+      if (hedgeExecutor != null) {
+        return executeHedgedGet(fileURI, session, recorder);
+      }
+      return executeGet(newHttpGet(fileURI, session), recorder);
+    } catch (IOException e) {
+      hostFailed = CircuitBreaker.isHostFailure(e);
+      throw e;
+    } finally {
+      if (circuitBreaker != null) {
+        circuitBreaker.record(host, hostFailed);
       }
     }
+  }
+
+  private HttpGet newHttpGet(URI fileURI, AuthSession session) {
+    HttpGet httpGet = new HttpGet(session.apply(fileURI));
+    session.getHeaders().forEach(httpGet::setHeader);
+    return httpGet;
+  }
+
+  private InputStream executeGet(HttpGet httpGet, FetchRecorder recorder)
+    throws IOException, ParseException {
+    recorder.attemptStarted();
+    HttpClientContext context = HttpClientContext.create();
+    long start = System.nanoTime();
+    int statusCode = 0;
+    try (
+      CloseableHttpResponse response = httpClient.execute(httpGet, context)
+    ) {
+      long firstByte = System.nanoTime();
+      statusCode = response.getCode();
+      latencyTracker.record(
+        httpGet.getAuthority().getHostName(),
+        TimeUnit.NANOSECONDS.toMillis(firstByte - start)
+      );
+      Object connectNanos = context.getAttribute(CONNECT_NANOS);
+      long connectMillis = connectNanos instanceof Long nanos
+        ? TimeUnit.NANOSECONDS.toMillis(nanos)
+        : 0;
 
-    try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
       if (response.getCode() >= 300) {
         EntityUtils.consumeQuietly(response.getEntity());
-        throw new IOException(
-          "HTTP error fetching file: " +
-          response.getCode() +
-          " " +
-          response.getReasonPhrase()
+        recorder.responseReceived(
+          connectMillis,
+          TimeUnit.NANOSECONDS.toMillis(firstByte - start),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstByte),
+          response.getCode(),
+          headersOfInterest(response),
+          0
         );
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        throw new HttpStatusException(
+          response.getCode(),
+          response.getReasonPhrase(),
+          RetryPolicy.parseRetryAfter(
+            retryAfter != null ? retryAfter.getValue() : null
+          )
+        );
+      }
+      HttpEntity entity = response.getEntity();
+      InputStream content = entity.getContent();
+      BodyReader.Body body;
+      try {
+        body = bodyReader.read(content, entity.getContentLength());
+      } catch (BodyTooLargeException e) {
+        // Closing the stream would drain the rest of a body that may never end, so the
+        // connection is aborted instead
+        httpGet.cancel();
+        throw e;
       }
-      String content = EntityUtils.toString(response.getEntity());
-      return new ByteArrayInputStream(content.getBytes());
+      content.close();
+      recorder.responseReceived(
+        connectMillis,
+        TimeUnit.NANOSECONDS.toMillis(firstByte - start),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstByte),
+        response.getCode(),
+        headersOfInterest(response),
+        body.size()
+      );
+      return body.contents();
+    } finally {
+      metrics.requestCompleted(
+        getRoute(
+          httpGet.getScheme(),
+          httpGet.getAuthority().getHostName(),
+          httpGet.getAuthority().getPort()
+        ),
+        statusCode,
+        System.nanoTime() - start
+      );
     }
   }
 
-  private String fetchOAuthToken(
-    String tokenUrl,
-    String clientId,
-    String clientSecret
+  private static Map<String, String> headersOfInterest(HttpResponse response) {
+    Map<String, String> headers = new LinkedHashMap<>();
+    for (String name : HEADERS_OF_INTEREST) {
+      Header header = response.getFirstHeader(name);
+      if (header != null) {
+        headers.put(name, header.getValue());
+      }
+    }
+    return headers;
+  }
+
+  /**
+   * The body of a successful hedged request, with the stats of that request.
+   */
+  private record HedgedResponse(InputStream contents, FetchRecorder recorder) {}
+
+  /**
+   * Sends the request, and once it has been outstanding for longer than the host's p95
+   * latency sends a second one. The first successful response wins and the other request is
+   * cancelled. Both requests count as attempts, but only the stats of the response that is
+   * used are recorded. The first request uses the fetch's slot with the host scheduler, and
+   * the second is queued for a slot of its own, so hedging never exceeds the host's limits.
+   */
+  private InputStream executeHedgedGet(
+    URI fileURI,
+    AuthSession session,
+    FetchRecorder recorder
+  ) throws IOException, ParseException {
+    HttpGet primaryGet = newHttpGet(fileURI, session);
+    FetchRecorder primaryRecorder = new FetchRecorder(0);
+    CompletableFuture<HedgedResponse> primary = executeGetAsync(
+      primaryGet,
+      recorder,
+      primaryRecorder
+    );
+
+    long p95Millis = latencyTracker.p95Millis(fileURI.getHost());
+    HedgedResponse response = null;
+    try {
+      if (p95Millis < 0) {
+        response = await(primary);
+      } else {
+        response =
+          awaitHedged(
+            fileURI,
+            session,
+            recorder,
+            primaryGet,
+            primary,
+            p95Millis
+          );
+      }
+      return response.contents();
+    } finally {
+      // A failure is reported with the stats of the primary request, as is its exception
+      recorder.responseFrom(
+        response != null ? response.recorder() : primaryRecorder
+      );
+    }
+  }
+
+  private HedgedResponse awaitHedged(
+    URI fileURI,
+    AuthSession session,
+    FetchRecorder recorder,
+    HttpGet primaryGet,
+    CompletableFuture<HedgedResponse> primary,
+    long p95Millis
   ) throws IOException, ParseException {
-    HttpPost tokenRequest = new HttpPost(tokenUrl);
+    try {
+      return primary.get(
+        Math.max(p95Millis, retryPolicy.getMinHedgeDelayMillis()),
+        TimeUnit.MILLISECONDS
+      );
+    } catch (TimeoutException e) {
+      HttpGet hedgeGet = newHttpGet(fileURI, session);
+      CompletableFuture<HedgedResponse> firstSuccess =
+        new CompletableFuture<>();
+      // Set once the hedge is either sent or abandoned. A failed first request abandons a
+      // hedge still waiting for a slot, which may be the slot the first request holds.
+      AtomicBoolean hedgeDecided = new AtomicBoolean();
+      CompletableFuture<HedgedResponse> hedge = hostScheduler.submitAsync(
+        fileURI.getHost(),
+        () ->
+          firstSuccess.isDone() || !hedgeDecided.compareAndSet(false, true)
+            ? CompletableFuture.failedFuture(new CancellationException())
+            : executeGetAsync(hedgeGet, recorder, new FetchRecorder(0))
+      );
+
+      hedge.thenAccept(hedgeResponse -> offer(firstSuccess, hedgeResponse));
+      primary.whenComplete((primaryResponse, primaryFailure) -> {
+        if (primaryFailure == null) {
+          offer(firstSuccess, primaryResponse);
+        } else if (hedgeDecided.compareAndSet(false, true)) {
+          firstSuccess.completeExceptionally(primaryFailure);
+        } else {
+          hedge.whenComplete((hedgeResponse, hedgeFailure) -> {
+            if (hedgeFailure != null) {
+              firstSuccess.completeExceptionally(primaryFailure);
+            }
+          });
+        }
+      });
+
+      try {
+        return await(firstSuccess);
+      } finally {
+        // Once the caller stops waiting, a response arriving later is closed by offer
+        firstSuccess.cancel(false);
+        primaryGet.cancel();
+        hedgeGet.cancel();
+      }
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      primaryGet.cancel();
+      throw new InterruptedIOException("Interrupted while fetching file");
+    }
+  }
+
+  /**
+   * Hands a response to a hedged fetch. A response arriving after the fetch has been decided
+   * is closed, so its temporary file or mapping is released.
+   */
+  private static void offer(
+    CompletableFuture<HedgedResponse> firstSuccess,
+    HedgedResponse response
+  ) {
+    if (!firstSuccess.complete(response)) {
+      try {
+        response.contents().close();
+      } catch (IOException e) {
+        // Nothing is left to read from the losing response
+      }
+    }
+  }
+
+  private CompletableFuture<HedgedResponse> executeGetAsync(
+    HttpGet httpGet,
+    FetchRecorder recorder,
+    FetchRecorder requestRecorder
+  ) {
+    recorder.attemptStarted();
+    return CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return new HedgedResponse(
+            executeGet(httpGet, requestRecorder),
+            requestRecorder
+          );
+        } catch (IOException | ParseException e) {
+          throw new CompletionException(e);
+        }
+      },
+      hedgeExecutor
+    );
+  }
+
+  private static <T> T await(CompletableFuture<T> future)
+    throws IOException, ParseException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching file");
+    }
+  }
+
+  /**
+   * Unwraps the failure of an asynchronous fetch. Parse errors are rethrown, and I/O errors are
+   * returned for the caller to throw.
+   */
+  static IOException unwrap(Throwable cause) throws ParseException {
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof ParseException parseException) {
+      throw parseException;
+    }
+    if (cause instanceof IOException ioException) {
+      return ioException;
+    }
+    return new IOException(cause);
+  }
+
+  /**
+   * Resolves the authentication of a load into the headers and query parameters sent with
+   * each of its requests. Token requests are sent right away with the loader's HTTP client.
+   */
+  private AuthSession resolveSession(Authentication auth) throws IOException {
+    return AuthSession.resolve(auth, customHeaders, this::postForm);
+  }
+
+  private static LoadedFile authenticationFailed(URI fileURI, IOException e) {
+    List<LoaderError> errors = new ArrayList<>();
+    errors.add(new LoaderError("CONNECTION_ERROR", e.getMessage()));
+    return new LoadedFile(
+      getFileName(fileURI),
+      fileURI.toString(),
+      null,
+      null,
+      errors
+    );
+  }
+
+  private String postForm(String url, String formBody) throws IOException {
+    HttpPost tokenRequest = new HttpPost(url);
     tokenRequest.setHeader("Content-Type", "application/x-www-form-urlencoded");
-    String body =
-      "grant_type=client_credentials&client_id=" +
-      clientId +
-      "&client_secret=" +
-      clientSecret;
-    tokenRequest.setEntity(new StringEntity(body));
+    tokenRequest.setEntity(new StringEntity(formBody));
 
     try (CloseableHttpResponse response = httpClient.execute(tokenRequest)) {
       if (response.getCode() >= 300) {
         EntityUtils.consumeQuietly(response.getEntity());
         throw new IOException(
-          "OAuth token request failed: " +
+          "Token request failed: " +
           response.getCode() +
           " " +
           response.getReasonPhrase()
         );
       }
-      String responseString = EntityUtils.toString(response.getEntity());
-      JSONObject jsonResponse = new JSONObject(responseString);
-      if (!jsonResponse.has("access_token")) {
-        throw new IOException(
-          "OAuth token response did not contain access_token"
-        );
-      }
-      return jsonResponse.getString("access_token");
+      return EntityUtils.toString(response.getEntity());
+    } catch (ParseException e) {
+      throw new IOException(e.getMessage(), e);
     }
   }
 
@@ -438,6 +1376,12 @@ public class Loader {
    * @throws IOException if an error occurs closing the HTTP client
    */
   public void close() throws IOException {
+    hostScheduler.shutdown();
+    if (hedgeExecutor != null) {
+      hedgeExecutor.shutdownNow();
+    }
+    listenerExecutor.shutdown();
+
     if (httpClient != null) {
       httpClient.close();
     }
@@ -0,0 +1,54 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Receives measurements of the Loader's HTTP requests, for instance to publish them to a
+ * metrics registry. Requests are identified by their route, the scheme, host and port they are
+ * sent to such as https://gbfs.example.com:443, which is also how the connection pool statistics
+ * of {@link Loader#getConnectionPoolStatsPerRoute()} are keyed.
+ * Methods are called concurrently from the Loader's threads. The default implementations
+ * ignore the measurements.
+ */
+public interface LoaderMetrics {
+  /**
+   * Called when an HTTP request completes, including retries and hedged requests.
+   *
+   * @param route the route the request was sent to
+   * @param statusCode the response status, or 0 if no response was received
+   * @param durationNanos time from sending the request until the body was read or the request
+   *     failed
+   */
+  default void requestCompleted(
+    String route,
+    int statusCode,
+    long durationNanos
+  ) {}
+
+  /**
+   * Called for every loader error reported for a file fetched over HTTP.
+   *
+   * @param route the route the file was requested from
+   * @param error the loader error type, such as CONNECTION_ERROR or CIRCUIT_OPEN
+   */
+  default void fileFailed(String route, String error) {}
+}
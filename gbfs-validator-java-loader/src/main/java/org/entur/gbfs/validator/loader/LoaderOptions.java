@@ -0,0 +1,187 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optional Loader settings beyond connection pool sizing and timeouts.
+ */
+public class LoaderOptions {
+
+  private ExecutionMode executionMode = ExecutionMode.THREAD_POOL;
+  private int maxConcurrentRequests = 0;
+  private int maxConcurrentRequestsPerHost = 0;
+  private int listenerThreads = 0;
+  private double maxRequestsPerSecondPerHost = 0;
+  private Map<String, HostLimits> hostLimits = new HashMap<>();
+  private RetryPolicy retryPolicy = new RetryPolicy();
+  private CircuitBreakerPolicy circuitBreaker = new CircuitBreakerPolicy();
+  private boolean coalesceRequests = false;
+  private long maxBodySizeBytes = 0;
+  private long spillThresholdBytes = 0;
+  private LoaderMetrics metrics;
+
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  public void setExecutionMode(ExecutionMode executionMode) {
+    this.executionMode = executionMode;
+  }
+
+  /**
+   * Maximum number of HTTP requests in flight across all hosts. Zero or less means the limit
+   * follows the connection pool's max total connections.
+   */
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Maximum number of HTTP requests in flight against a single host. Zero or less means the
+   * limit follows the connection pool's max connections per route.
+   */
+  public int getMaxConcurrentRequestsPerHost() {
+    return maxConcurrentRequestsPerHost;
+  }
+
+  public void setMaxConcurrentRequestsPerHost(
+    int maxConcurrentRequestsPerHost
+  ) {
+    this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+  }
+
+  /**
+   * Number of threads passing loaded files to a {@link LoadListener}, which may validate them.
+   * Listeners run on these threads rather than on the threads fetching files, so that
+   * processing files never holds up fetches. Zero or less means one per available processor.
+   */
+  public int getListenerThreads() {
+    return listenerThreads;
+  }
+
+  public void setListenerThreads(int listenerThreads) {
+    this.listenerThreads = listenerThreads;
+  }
+
+  /**
+   * Maximum number of HTTP requests started per second against a single host, spreading
+   * requests out so that rate-limited publishers do not answer with 429 Too Many Requests.
+   * Zero or less means no rate limit.
+   */
+  public double getMaxRequestsPerSecondPerHost() {
+    return maxRequestsPerSecondPerHost;
+  }
+
+  public void setMaxRequestsPerSecondPerHost(
+    double maxRequestsPerSecondPerHost
+  ) {
+    this.maxRequestsPerSecondPerHost = maxRequestsPerSecondPerHost;
+  }
+
+  /**
+   * Per-host overrides of the concurrency and rate limits, keyed by host name.
+   */
+  public Map<String, HostLimits> getHostLimits() {
+    return hostLimits;
+  }
+
+  public void setHostLimits(Map<String, HostLimits> hostLimits) {
+    this.hostLimits = hostLimits;
+  }
+
+  /**
+   * Retry and hedging policy for HTTP requests. The default makes a single attempt.
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Per-host circuit breaker policy. The default never opens the circuit.
+   */
+  public CircuitBreakerPolicy getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void setCircuitBreaker(CircuitBreakerPolicy circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * When enabled, concurrent loads of the same URL with the same authentication share a single
+   * HTTP request, and each receives its own copy of the response body.
+   */
+  public boolean isCoalesceRequests() {
+    return coalesceRequests;
+  }
+
+  public void setCoalesceRequests(boolean coalesceRequests) {
+    this.coalesceRequests = coalesceRequests;
+  }
+
+  /**
+   * Maximum size of a response body. Larger files are aborted and reported with a
+   * BODY_TOO_LARGE error. Zero or less means no limit.
+   */
+  public long getMaxBodySizeBytes() {
+    return maxBodySizeBytes;
+  }
+
+  public void setMaxBodySizeBytes(long maxBodySizeBytes) {
+    this.maxBodySizeBytes = maxBodySizeBytes;
+  }
+
+  /**
+   * Response bodies larger than this are written to a temporary file and read back
+   * memory-mapped instead of being buffered on the heap. Zero or less means bodies are always
+   * buffered on the heap.
+   */
+  public long getSpillThresholdBytes() {
+    return spillThresholdBytes;
+  }
+
+  public void setSpillThresholdBytes(long spillThresholdBytes) {
+    this.spillThresholdBytes = spillThresholdBytes;
+  }
+
+  /**
+   * Receives request latencies and loader errors. Null means they are not measured.
+   */
+  public LoaderMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(LoaderMetrics metrics) {
+    this.metrics = metrics;
+  }
+}
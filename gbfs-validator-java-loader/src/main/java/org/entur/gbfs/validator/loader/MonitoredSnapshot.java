@@ -0,0 +1,45 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The files of a monitored system from a single load, as handed to the validator by
+ * {@link MonitoringScheduler}. File contents are buffered in memory.
+ *
+ * @param systemId the id the system was registered with
+ * @param discoveryUrl the URL of the system's discovery file
+ * @param files the loaded files, the discovery file first
+ * @param scheduledAt when the load was due
+ * @param loadedAt when the load completed
+ * @param ttlSeconds the smallest ttl found in the files, or -1 if none had one
+ */
+public record MonitoredSnapshot(
+  String systemId,
+  String discoveryUrl,
+  List<LoadedFile> files,
+  Instant scheduledAt,
+  Instant loadedAt,
+  long ttlSeconds
+) {}
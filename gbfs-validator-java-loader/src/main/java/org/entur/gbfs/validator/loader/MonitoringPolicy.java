@@ -0,0 +1,117 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Controls how {@link MonitoringScheduler} reloads registered systems. Each system is reloaded
+ * after the smallest ttl found in its files, bounded by the minimum and maximum interval.
+ */
+public class MonitoringPolicy {
+
+  private long defaultTtlSeconds = 60;
+  private long minIntervalSeconds = 10;
+  private long maxIntervalSeconds = 3600;
+  private long spreadSeconds = 60;
+  private int maxConcurrentLoads = 8;
+  private int queueCapacity = 16;
+  private int validationThreads = 1;
+
+  /**
+   * Reload interval used when a system's files could not be loaded or carry no ttl.
+   */
+  public long getDefaultTtlSeconds() {
+    return defaultTtlSeconds;
+  }
+
+  public void setDefaultTtlSeconds(long defaultTtlSeconds) {
+    this.defaultTtlSeconds = defaultTtlSeconds;
+  }
+
+  /**
+   * Shortest reload interval, so that feeds with a ttl of zero are not reloaded continuously.
+   */
+  public long getMinIntervalSeconds() {
+    return minIntervalSeconds;
+  }
+
+  public void setMinIntervalSeconds(long minIntervalSeconds) {
+    this.minIntervalSeconds = minIntervalSeconds;
+  }
+
+  /**
+   * Longest reload interval, however long the ttl of a system's files.
+   */
+  public long getMaxIntervalSeconds() {
+    return maxIntervalSeconds;
+  }
+
+  public void setMaxIntervalSeconds(long maxIntervalSeconds) {
+    this.maxIntervalSeconds = maxIntervalSeconds;
+  }
+
+  /**
+   * Window over which the first loads of newly registered systems are spread, each system
+   * getting a fixed offset derived from its id. Zero loads every system as soon as it is
+   * registered.
+   */
+  public long getSpreadSeconds() {
+    return spreadSeconds;
+  }
+
+  public void setSpreadSeconds(long spreadSeconds) {
+    this.spreadSeconds = spreadSeconds;
+  }
+
+  /**
+   * Maximum number of systems being loaded at once.
+   */
+  public int getMaxConcurrentLoads() {
+    return maxConcurrentLoads;
+  }
+
+  public void setMaxConcurrentLoads(int maxConcurrentLoads) {
+    this.maxConcurrentLoads = maxConcurrentLoads;
+  }
+
+  /**
+   * Maximum number of loaded snapshots waiting for validation. When the queue is full, loads
+   * wait for room before their system is rescheduled.
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Number of threads passing queued snapshots to the validator.
+   */
+  public int getValidationThreads() {
+    return validationThreads;
+  }
+
+  public void setValidationThreads(int validationThreads) {
+    this.validationThreads = validationThreads;
+  }
+}
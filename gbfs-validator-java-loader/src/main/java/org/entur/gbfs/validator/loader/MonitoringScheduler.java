@@ -0,0 +1,427 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.entur.gbfs.validator.loader.auth.Authentication;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Continuously reloads a registry of systems with a {@link Loader} and hands every loaded
+ * snapshot to a validator.
+ * A system is due again once the smallest ttl of its files has passed. Its first load is offset
+ * within the spread window by a hash of its id, and later due times keep that phase, so a large
+ * registry is loaded evenly over time instead of in bursts. Loaded snapshots pass through a
+ * bounded queue: when validation falls behind, loads wait for room in the queue, and the
+ * systems due meanwhile are loaded late, which shows as scheduling lag in {@link #getStats()}.
+ * Thread-safe. The loader is not closed by the scheduler.
+ */
+public class MonitoringScheduler {
+
+  private final Loader loader;
+  private final MonitoringPolicy policy;
+  private final Consumer<MonitoredSnapshot> validator;
+  private final BlockingQueue<MonitoredSnapshot> snapshots;
+  private final Semaphore loadPermits;
+  private final ExecutorService loadExecutor;
+
+  private final AtomicInteger loadsInFlight = new AtomicInteger();
+  private final AtomicLong loadsCompleted = new AtomicLong();
+  private final AtomicLong snapshotsValidated = new AtomicLong();
+  private final AtomicLong validationFailures = new AtomicLong();
+  private final AtomicLong backpressureWaits = new AtomicLong();
+  private final AtomicLong maxSchedulingLagNanos = new AtomicLong();
+
+  // All fields below are guarded by this
+  private final Map<String, MonitoredSystem> systems = new HashMap<>();
+  private final PriorityQueue<MonitoredSystem> dueSystems =
+    new PriorityQueue<>(Comparator.comparingLong(system -> system.dueNanos));
+  private final List<Thread> threads = new ArrayList<>();
+  private boolean running;
+  private boolean closed;
+
+  /**
+   * @param loader the loader used to load the systems
+   * @param policy reload intervals, concurrency and queue capacity
+   * @param validator receives every loaded snapshot, called from the scheduler's validation
+   *                  threads
+   */
+  public MonitoringScheduler(
+    Loader loader,
+    MonitoringPolicy policy,
+    Consumer<MonitoredSnapshot> validator
+  ) {
+    this.loader = loader;
+    this.policy = policy;
+    this.validator = validator;
+    this.snapshots =
+      new ArrayBlockingQueue<>(Math.max(1, policy.getQueueCapacity()));
+    int maxConcurrentLoads = Math.max(1, policy.getMaxConcurrentLoads());
+    this.loadPermits = new Semaphore(maxConcurrentLoads);
+    this.loadExecutor =
+      Executors.newFixedThreadPool(
+        maxConcurrentLoads,
+        runnable -> {
+          Thread thread = new Thread(runnable, "gbfs-monitoring-load");
+          thread.setDaemon(true);
+          return thread;
+        }
+      );
+  }
+
+  /**
+   * Adds a system to the registry, or replaces the system registered with the same id.
+   *
+   * @param systemId a unique id for the system
+   * @param discoveryUrl URL or file path to the system's discovery file
+   * @param auth authentication credentials for protected feeds, or null for public feeds
+   */
+  public synchronized void register(
+    String systemId,
+    String discoveryUrl,
+    Authentication auth
+  ) {
+    MonitoredSystem previous = systems.get(systemId);
+    if (previous != null) {
+      dueSystems.remove(previous);
+    }
+    MonitoredSystem system = new MonitoredSystem(
+      systemId,
+      discoveryUrl,
+      auth,
+      System.nanoTime() + initialOffsetNanos(systemId)
+    );
+    systems.put(systemId, system);
+    dueSystems.add(system);
+    notifyAll();
+  }
+
+  /**
+   * Removes a system from the registry. A load of the system already in progress still hands
+   * its snapshot to the validator.
+   *
+   * @param systemId the id the system was registered with
+   * @return true if the system was registered
+   */
+  public synchronized boolean unregister(String systemId) {
+    MonitoredSystem system = systems.remove(systemId);
+    if (system == null) {
+      return false;
+    }
+    dueSystems.remove(system);
+    return true;
+  }
+
+  /**
+   * Starts loading the registered systems as they become due.
+   */
+  public synchronized void start() {
+    if (closed) {
+      throw new IllegalStateException("Monitoring scheduler is closed");
+    }
+    if (running) {
+      return;
+    }
+    running = true;
+    startThread("gbfs-monitoring-scheduler", this::dispatchLoop);
+    for (int i = 0; i < Math.max(1, policy.getValidationThreads()); i++) {
+      startThread("gbfs-monitoring-validator-" + i, this::validationLoop);
+    }
+  }
+
+  public MonitoringStats getStats() {
+    int registeredSystems;
+    long schedulingLagNanos = 0;
+    synchronized (this) {
+      registeredSystems = systems.size();
+      MonitoredSystem next = dueSystems.peek();
+      if (next != null) {
+        schedulingLagNanos = Math.max(0, System.nanoTime() - next.dueNanos);
+      }
+    }
+    return new MonitoringStats(
+      registeredSystems,
+      loadsInFlight.get(),
+      snapshots.size(),
+      snapshots.size() + snapshots.remainingCapacity(),
+      loadsCompleted.get(),
+      snapshotsValidated.get(),
+      validationFailures.get(),
+      backpressureWaits.get(),
+      TimeUnit.NANOSECONDS.toMillis(schedulingLagNanos),
+      TimeUnit.NANOSECONDS.toMillis(maxSchedulingLagNanos.get())
+    );
+  }
+
+  /**
+   * Stops loading and validating. Loads and validations in progress are interrupted, and queued
+   * snapshots are dropped.
+   */
+  public synchronized void close() {
+    running = false;
+    closed = true;
+    threads.forEach(Thread::interrupt);
+    loadExecutor.shutdownNow();
+    notifyAll();
+  }
+
+  private void startThread(String name, Runnable runnable) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+    threads.add(thread);
+  }
+
+  private void dispatchLoop() {
+    try {
+      while (true) {
+        loadPermits.acquire();
+        MonitoredSystem system = takeDueSystem();
+        if (system == null) {
+          return;
+        }
+        loadsInFlight.incrementAndGet();
+        loadExecutor.execute(() -> {
+          try {
+            load(system);
+          } finally {
+            loadsInFlight.decrementAndGet();
+            loadPermits.release();
+          }
+        });
+      }
+    } catch (InterruptedException | RejectedExecutionException e) {
+      // The scheduler is closing
+    }
+  }
+
+  private synchronized MonitoredSystem takeDueSystem()
+    throws InterruptedException {
+    while (running) {
+      MonitoredSystem next = dueSystems.peek();
+      if (next == null) {
+        wait();
+        continue;
+      }
+      long delayNanos = next.dueNanos - System.nanoTime();
+      if (delayNanos > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, delayNanos);
+        continue;
+      }
+      return dueSystems.poll();
+    }
+    return null;
+  }
+
+  private void load(MonitoredSystem system) {
+    long lagNanos = Math.max(0, System.nanoTime() - system.dueNanos);
+    maxSchedulingLagNanos.accumulateAndGet(lagNanos, Math::max);
+    Instant scheduledAt = Instant.now().minusNanos(lagNanos);
+
+    long ttlSeconds = -1;
+    try {
+      List<LoadedFile> files = new ArrayList<>();
+      try {
+        for (LoadedFile file : loader.load(system.discoveryUrl, system.auth)) {
+          LoadedFile buffered = buffer(file);
+          files.add(buffered);
+          ttlSeconds = minTtl(ttlSeconds, ttlSeconds(buffered));
+        }
+      } catch (IOException e) {
+        files.add(loadFailed(system.discoveryUrl, e));
+      }
+      loadsCompleted.incrementAndGet();
+
+      MonitoredSnapshot snapshot = new MonitoredSnapshot(
+        system.systemId,
+        system.discoveryUrl,
+        files,
+        scheduledAt,
+        Instant.now(),
+        ttlSeconds
+      );
+      if (!snapshots.offer(snapshot)) {
+        backpressureWaits.incrementAndGet();
+        snapshots.put(snapshot);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      reschedule(system, intervalNanos(ttlSeconds));
+    }
+  }
+
+  private synchronized void reschedule(
+    MonitoredSystem system,
+    long intervalNanos
+  ) {
+    if (!running || systems.get(system.systemId) != system) {
+      return;
+    }
+    // Keep the phase of the first load, unless the system has fallen a whole interval behind
+    system.dueNanos =
+      Math.max(system.dueNanos + intervalNanos, System.nanoTime());
+    dueSystems.add(system);
+    notifyAll();
+  }
+
+  private void validationLoop() {
+    try {
+      while (true) {
+        MonitoredSnapshot snapshot = snapshots.take();
+        snapshotsValidated.incrementAndGet();
+        try {
+          validator.accept(snapshot);
+        } catch (RuntimeException e) {
+          validationFailures.incrementAndGet();
+        }
+      }
+    } catch (InterruptedException e) {
+      // The scheduler is closing
+    }
+  }
+
+  /**
+   * Spreads first loads over the spread window with Fibonacci hashing of the system id, which
+   * also spreads ids that differ in a single character.
+   */
+  private long initialOffsetNanos(String systemId) {
+    long spreadNanos = TimeUnit.SECONDS.toNanos(policy.getSpreadSeconds());
+    if (spreadNanos <= 0) {
+      return 0;
+    }
+    long hash = Integer.toUnsignedLong(systemId.hashCode() * 0x9E3779B9);
+    return (long) (spreadNanos * (hash / 4294967296.0));
+  }
+
+  private long intervalNanos(long ttlSeconds) {
+    long seconds = ttlSeconds >= 0 ? ttlSeconds : policy.getDefaultTtlSeconds();
+    seconds = Math.min(seconds, policy.getMaxIntervalSeconds());
+    seconds = Math.max(seconds, policy.getMinIntervalSeconds());
+    return TimeUnit.SECONDS.toNanos(Math.max(1, seconds));
+  }
+
+  private static long minTtl(long ttlSeconds, long fileTtlSeconds) {
+    if (fileTtlSeconds < 0) {
+      return ttlSeconds;
+    }
+    return ttlSeconds < 0
+      ? fileTtlSeconds
+      : Math.min(ttlSeconds, fileTtlSeconds);
+  }
+
+  private static long ttlSeconds(LoadedFile file) {
+    if (file.fileContents() == null) {
+      return -1;
+    }
+    try {
+      JSONObject json = new JSONObject(new JSONTokener(file.fileContents()));
+      file.fileContents().reset();
+      return json.optLong("ttl", -1);
+    } catch (JSONException | IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads a file's contents into memory, so that it can be both inspected for its ttl and
+   * validated after the load's connections have been released.
+   */
+  private static LoadedFile buffer(LoadedFile file) {
+    if (file.fileContents() == null) {
+      return file;
+    }
+    List<LoaderError> errors = file.loaderErrors();
+    InputStream contents;
+    try (InputStream in = file.fileContents()) {
+      contents = new ByteArrayInputStream(in.readAllBytes());
+    } catch (IOException e) {
+      errors = new ArrayList<>(errors);
+      errors.add(new LoaderError("CONNECTION_ERROR", e.getMessage()));
+      contents = null;
+    }
+    return new LoadedFile(
+      file.fileName(),
+      file.url(),
+      contents,
+      file.language(),
+      errors,
+      file.attempts(),
+      file.fetchStats()
+    );
+  }
+
+  private static LoadedFile loadFailed(String discoveryUrl, IOException e) {
+    List<LoaderError> errors = new ArrayList<>();
+    errors.add(new LoaderError("CONNECTION_ERROR", e.getMessage()));
+    return new LoadedFile(
+      Loader.getFileName(URI.create(discoveryUrl)),
+      discoveryUrl,
+      null,
+      null,
+      errors
+    );
+  }
+
+  private static class MonitoredSystem {
+
+    private final String systemId;
+    private final String discoveryUrl;
+    private final Authentication auth;
+    // Guarded by the scheduler while queued, owned by the loading thread otherwise
+    private long dueNanos;
+
+    private MonitoredSystem(
+      String systemId,
+      String discoveryUrl,
+      Authentication auth,
+      long dueNanos
+    ) {
+      this.systemId = systemId;
+      this.discoveryUrl = discoveryUrl;
+      this.auth = auth;
+      this.dueNanos = dueNanos;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+/**
+ * Point-in-time counters of a {@link MonitoringScheduler}.
+ *
+ * @param registeredSystems number of systems being monitored
+ * @param loadsInFlight number of systems being loaded, including loads waiting for room in the
+ *                      validation queue
+ * @param queuedSnapshots number of snapshots waiting for validation
+ * @param queueCapacity maximum number of snapshots waiting for validation
+ * @param loadsCompleted number of loads completed since the scheduler started
+ * @param snapshotsValidated number of snapshots passed to the validator
+ * @param validationFailures number of snapshots the validator threw an exception for
+ * @param backpressureWaits number of loads that had to wait for room in the validation queue
+ * @param schedulingLagMillis how long the most overdue system has been waiting to be loaded
+ * @param maxSchedulingLagMillis the longest any load started after its due time
+ */
+public record MonitoringStats(
+  int registeredSystems,
+  int loadsInFlight,
+  int queuedSnapshots,
+  int queueCapacity,
+  long loadsCompleted,
+  long snapshotsValidated,
+  long validationFailures,
+  long backpressureWaits,
+  long schedulingLagMillis,
+  long maxSchedulingLagMillis
+) {}
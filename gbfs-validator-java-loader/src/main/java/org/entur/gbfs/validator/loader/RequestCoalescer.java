@@ -0,0 +1,112 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.apache.hc.core5.http.ParseException;
+
+/**
+ * Lets concurrent fetches of the same file share a single HTTP request. The first caller for a
+ * key performs the fetch, and callers arriving while it is in flight wait for its result. Every
+ * caller gets its own stream over the shared body, which is not copied when it is
+ * memory-mapped.
+ */
+class RequestCoalescer {
+
+  @FunctionalInterface
+  interface Fetch {
+    InputStream get() throws IOException, ParseException;
+  }
+
+  private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+  /**
+   * @param key identifies the request, e.g. the URL and the caller's authentication identity
+   * @param recorder takes over the attempts and response stats of a shared fetch
+   * @param fetch performs the request when no identical one is in flight
+   * @return a stream over the response body
+   */
+  InputStream fetch(String key, FetchRecorder recorder, Fetch fetch)
+    throws IOException, ParseException {
+    Flight flight = new Flight(recorder);
+    Flight inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      return await(inFlight, recorder);
+    }
+
+    try (InputStream stream = fetch.get()) {
+      Supplier<InputStream> body = shareable(stream);
+      flight.body.complete(body);
+      return body.get();
+    } catch (IOException | ParseException | RuntimeException e) {
+      flight.body.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  /**
+   * Memory-mapped bodies are shared as they are, other bodies are read into memory once.
+   */
+  private static Supplier<InputStream> shareable(InputStream stream)
+    throws IOException {
+    if (stream instanceof ByteBufferInputStream mapped) {
+      return mapped::copy;
+    }
+    byte[] body = stream.readAllBytes();
+    return () -> new ByteArrayInputStream(body);
+  }
+
+  private static InputStream await(Flight flight, FetchRecorder recorder)
+    throws IOException, ParseException {
+    try {
+      return flight.body.get().get();
+    } catch (ExecutionException e) {
+      throw Loader.unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching file");
+    } finally {
+      recorder.copyFrom(flight.recorder);
+    }
+  }
+
+  private static class Flight {
+
+    private final CompletableFuture<Supplier<InputStream>> body =
+      new CompletableFuture<>();
+    private final FetchRecorder recorder;
+
+    private Flight(FetchRecorder recorder) {
+      this.recorder = recorder;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the Loader's request measurements in memory, per route: a latency histogram and the
+ * counts of response statuses and loader errors. Meant for one-off runs such as the CLI, where
+ * there is no metrics registry to publish to.
+ */
+public class RequestStatistics implements LoaderMetrics {
+
+  /**
+   * Upper bounds of the latency histogram buckets. Slower requests fall in a last bucket
+   * bounded by {@link Long#MAX_VALUE}.
+   */
+  static final long[] BUCKET_BOUNDS_MILLIS = {
+    10,
+    25,
+    50,
+    100,
+    250,
+    500,
+    1000,
+    2500,
+    5000,
+    10000,
+  };
+
+  // Guarded by this
+  private final Map<String, RouteCounters> routes = new TreeMap<>();
+
+  @Override
+  public synchronized void requestCompleted(
+    String route,
+    int statusCode,
+    long durationNanos
+  ) {
+    RouteCounters counters = routes.computeIfAbsent(
+      route,
+      r -> new RouteCounters()
+    );
+    long millis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    int bucket = 0;
+    while (
+      bucket < BUCKET_BOUNDS_MILLIS.length &&
+      millis > BUCKET_BOUNDS_MILLIS[bucket]
+    ) {
+      bucket++;
+    }
+    counters.buckets[bucket]++;
+    counters.requests++;
+    counters.maxMillis = Math.max(counters.maxMillis, millis);
+    counters.statusCodes.merge(statusCode, 1L, Long::sum);
+  }
+
+  @Override
+  public synchronized void fileFailed(String route, String error) {
+    routes
+      .computeIfAbsent(route, r -> new RouteCounters())
+      .errors.merge(error, 1L, Long::sum);
+  }
+
+  /**
+   * @return the statistics collected so far, keyed by route
+   */
+  public synchronized Map<String, RouteStatistics> snapshot() {
+    Map<String, RouteStatistics> snapshot = new TreeMap<>();
+    routes.forEach((route, counters) -> {
+      Map<Long, Long> histogram = new TreeMap<>();
+      for (int i = 0; i < counters.buckets.length; i++) {
+        histogram.put(
+          i < BUCKET_BOUNDS_MILLIS.length
+            ? BUCKET_BOUNDS_MILLIS[i]
+            : Long.MAX_VALUE,
+          counters.buckets[i]
+        );
+      }
+      snapshot.put(
+        route,
+        new RouteStatistics(
+          counters.requests,
+          counters.maxMillis,
+          Collections.unmodifiableMap(histogram),
+          Collections.unmodifiableMap(new TreeMap<>(counters.statusCodes)),
+          Collections.unmodifiableMap(new TreeMap<>(counters.errors))
+        )
+      );
+    });
+    return snapshot;
+  }
+
+  /**
+   * Request statistics of a single route.
+   *
+   * @param requests number of HTTP requests sent, including retries and hedged requests
+   * @param maxMillis duration of the slowest request
+   * @param latencyHistogram number of requests per latency bucket, keyed by the bucket's upper
+   *     bound in milliseconds
+   * @param statusCodes number of responses per status code, with 0 counting requests that got
+   *     no response
+   * @param errors number of files per loader error type
+   */
+  public record RouteStatistics(
+    long requests,
+    long maxMillis,
+    Map<Long, Long> latencyHistogram,
+    Map<Integer, Long> statusCodes,
+    Map<String, Long> errors
+  ) {
+    /**
+     * Estimates a latency percentile from the histogram.
+     *
+     * @param percentile the percentile between 0 and 1, such as 0.95
+     * @return the upper bound of the bucket the percentile falls in, or the slowest request if
+     *     that is faster
+     */
+    public long percentileMillis(double percentile) {
+      long rank = (long) Math.ceil(percentile * requests);
+      long seen = 0;
+      for (Map.Entry<Long, Long> bucket : latencyHistogram.entrySet()) {
+        seen += bucket.getValue();
+        if (seen >= rank && bucket.getValue() > 0) {
+          return Math.min(bucket.getKey(), maxMillis);
+        }
+      }
+      return maxMillis;
+    }
+  }
+
+  private static class RouteCounters {
+
+    private final long[] buckets = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final Map<Integer, Long> statusCodes = new TreeMap<>();
+    private final Map<String, Long> errors = new TreeMap<>();
+    private long requests;
+    private long maxMillis;
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.NoHttpResponseException;
+
+/**
+ * Controls how the Loader retries failed GET requests and whether it hedges slow ones.
+ * Connect errors, timeouts, 5xx responses and 429 Too Many Requests are retried with
+ * exponential backoff and full jitter, honouring the Retry-After header when present.
+ * The default policy makes a single attempt and never hedges.
+ */
+public class RetryPolicy {
+
+  private int maxAttempts = 1;
+  private long initialBackoffMillis = 200;
+  private long maxBackoffMillis = 5000;
+  private double backoffMultiplier = 2.0;
+  private boolean hedgingEnabled = false;
+  private long minHedgeDelayMillis = 50;
+
+  /**
+   * Maximum number of attempts per file, including the first one. One disables retries.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  public long getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  public void setInitialBackoffMillis(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  /**
+   * Upper bound for a single backoff. A Retry-After longer than this is not waited for, and
+   * the failure is reported instead.
+   */
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  public void setMaxBackoffMillis(long maxBackoffMillis) {
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  public double getBackoffMultiplier() {
+    return backoffMultiplier;
+  }
+
+  public void setBackoffMultiplier(double backoffMultiplier) {
+    this.backoffMultiplier = backoffMultiplier;
+  }
+
+  /**
+   * When enabled, a second request for the same file is sent once the first one has been
+   * running longer than the host's observed p95 latency, and whichever answers first is used.
+   */
+  public boolean isHedgingEnabled() {
+    return hedgingEnabled;
+  }
+
+  public void setHedgingEnabled(boolean hedgingEnabled) {
+    this.hedgingEnabled = hedgingEnabled;
+  }
+
+  /**
+   * Lower bound for the hedge delay, so hosts with very low latency are not hedged on noise.
+   */
+  public long getMinHedgeDelayMillis() {
+    return minHedgeDelayMillis;
+  }
+
+  public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+    this.minHedgeDelayMillis = minHedgeDelayMillis;
+  }
+
+  /**
+   * @param e the failure of the latest attempt
+   * @param attempts number of attempts made so far
+   * @return milliseconds to wait before the next attempt, or -1 if the failure is final
+   */
+  long retryDelayMillis(IOException e, int attempts) {
+    if (attempts >= maxAttempts || !isRetryable(e)) {
+      return -1;
+    }
+
+    double ceiling = Math.min(
+      maxBackoffMillis,
+      initialBackoffMillis * Math.pow(backoffMultiplier, attempts - 1)
+    );
+    long backoff = ThreadLocalRandom.current().nextLong((long) ceiling + 1);
+
+    if (
+      e instanceof HttpStatusException statusException &&
+      statusException.getRetryAfterMillis() >= 0
+    ) {
+      if (statusException.getRetryAfterMillis() > maxBackoffMillis) {
+        return -1;
+      }
+      return Math.max(backoff, statusException.getRetryAfterMillis());
+    }
+    return backoff;
+  }
+
+  /**
+   * Runs asynchronous attempts until one succeeds or a failure is final. Backoffs are waited
+   * out on a timer, so no thread and no host scheduler slot is held in between attempts.
+   * A retry skipped because the host's circuit opened reports the failure that led to it.
+   *
+   * @param attempt starts an attempt
+   * @param executor runs the next attempt once its backoff has passed
+   * @return a future completing with the result of the first successful attempt
+   */
+  <T> CompletableFuture<T> retry(
+    Supplier<CompletableFuture<T>> attempt,
+    Executor executor
+  ) {
+    return retry(attempt, executor, 1, null);
+  }
+
+  private <T> CompletableFuture<T> retry(
+    Supplier<CompletableFuture<T>> attempt,
+    Executor executor,
+    int tries,
+    IOException previousFailure
+  ) {
+    return attempt
+      .get()
+      .handle((result, throwable) -> {
+        if (throwable == null) {
+          return CompletableFuture.completedFuture(result);
+        }
+        Throwable cause = throwable instanceof CompletionException &&
+          throwable.getCause() != null
+          ? throwable.getCause()
+          : throwable;
+        if (cause instanceof CircuitOpenException && previousFailure != null) {
+          return CompletableFuture.<T>failedFuture(previousFailure);
+        }
+        if (!(cause instanceof IOException failure)) {
+          return CompletableFuture.<T>failedFuture(cause);
+        }
+        long delayMillis = retryDelayMillis(failure, tries);
+        if (delayMillis < 0) {
+          return CompletableFuture.<T>failedFuture(failure);
+        }
+        Executor afterBackoff = CompletableFuture.delayedExecutor(
+          delayMillis,
+          TimeUnit.MILLISECONDS,
+          command -> {
+            try {
+              executor.execute(command);
+            } catch (RejectedExecutionException e) {
+              // The loader is closing, run the attempt here so its future still completes
+              command.run();
+            }
+          }
+        );
+        return CompletableFuture
+          .runAsync(() -> {}, afterBackoff)
+          .thenCompose(ignored -> retry(attempt, executor, tries + 1, failure));
+      })
+      .thenCompose(next -> next);
+  }
+
+  private static boolean isRetryable(IOException e) {
+    if (e instanceof HttpStatusException statusException) {
+      int status = statusException.getStatusCode();
+      return status == 429 || status >= 500;
+    }
+    return (
+      e instanceof ConnectException ||
+      e instanceof ConnectTimeoutException ||
+      e instanceof SocketTimeoutException ||
+      e instanceof HttpTimeoutException ||
+      e instanceof NoHttpResponseException
+    );
+  }
+
+  /**
+   * Parses a Retry-After header, given either as delay seconds or as an HTTP date.
+   *
+   * @return the delay in milliseconds, or -1 if the header is missing or malformed
+   */
+  static long parseRetryAfter(String value) {
+    if (value == null || value.isBlank()) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Long.parseLong(value.trim())) * 1000;
+    } catch (NumberFormatException e) {
+      Instant date = DateUtils.parseStandardDate(value.trim());
+      if (date == null) {
+        return -1;
+      }
+      return Math.max(0, Duration.between(Instant.now(), date).toMillis());
+    }
+  }
+}
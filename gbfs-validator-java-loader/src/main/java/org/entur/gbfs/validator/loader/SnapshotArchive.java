@@ -0,0 +1,190 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Format of the snapshot archives written by {@link SnapshotRecorder}: a ZIP file with one
+ * compressed entry per file body, and a manifest.json entry listing the files in load order
+ * with their URL, language, loader errors, attempts and fetch stats.
+ */
+final class SnapshotArchive {
+
+  static final String SCHEME = "archive";
+  static final String MANIFEST_ENTRY = "manifest.json";
+  static final int FORMAT_VERSION = 1;
+
+  private SnapshotArchive() {}
+
+  /**
+   * @param archiveURI an archive: URI, e.g. archive:/snapshots/oslobysykkel.zip
+   * @return the path of the archive file
+   */
+  static Path path(URI archiveURI) {
+    return Path.of(
+      archiveURI.getPath() != null
+        ? archiveURI.getPath()
+        : archiveURI.getSchemeSpecificPart()
+    );
+  }
+
+  /**
+   * Reads all files of an archive, the discovery file first. Only the central directory and
+   * the entries themselves are read, so replaying does not scan the whole archive.
+   */
+  static List<LoadedFile> read(Path archive) throws IOException {
+    try (ZipFile zip = new ZipFile(archive.toFile())) {
+      ZipEntry manifestEntry = zip.getEntry(MANIFEST_ENTRY);
+      if (manifestEntry == null) {
+        throw new IOException(archive + " is not a snapshot archive");
+      }
+      JSONObject manifest;
+      try (InputStream manifestStream = zip.getInputStream(manifestEntry)) {
+        manifest = new JSONObject(new JSONTokener(manifestStream));
+      }
+      if (manifest.optInt("formatVersion") != FORMAT_VERSION) {
+        throw new IOException(
+          "Unsupported snapshot format version: " +
+          manifest.opt("formatVersion")
+        );
+      }
+
+      List<LoadedFile> files = new ArrayList<>();
+      JSONArray fileEntries = manifest.getJSONArray("files");
+      for (int i = 0; i < fileEntries.length(); i++) {
+        files.add(readFile(zip, fileEntries.getJSONObject(i)));
+      }
+      return files;
+    }
+  }
+
+  private static LoadedFile readFile(ZipFile zip, JSONObject fileEntry)
+    throws IOException {
+    InputStream contents = null;
+    String entryName = fileEntry.optString("entry", null);
+    if (entryName != null) {
+      ZipEntry entry = zip.getEntry(entryName);
+      if (entry == null) {
+        throw new IOException("Missing snapshot entry: " + entryName);
+      }
+      try (InputStream entryStream = zip.getInputStream(entry)) {
+        contents = new ByteArrayInputStream(entryStream.readAllBytes());
+      }
+    }
+
+    List<LoaderError> errors = new ArrayList<>();
+    JSONArray errorEntries = fileEntry.optJSONArray("errors");
+    if (errorEntries != null) {
+      for (int i = 0; i < errorEntries.length(); i++) {
+        JSONObject error = errorEntries.getJSONObject(i);
+        errors.add(
+          new LoaderError(error.getString("error"), error.optString("message"))
+        );
+      }
+    }
+
+    return new LoadedFile(
+      fileEntry.getString("name"),
+      fileEntry.getString("url"),
+      contents,
+      fileEntry.optString("language", null),
+      errors,
+      fileEntry.optInt("attempts", 1),
+      readFetchStats(fileEntry.optJSONObject("fetchStats"))
+    );
+  }
+
+  static JSONObject toJson(LoadedFile file, String entryName) {
+    JSONObject fileEntry = new JSONObject();
+    fileEntry.put("name", file.fileName());
+    fileEntry.put("url", file.url());
+    fileEntry.putOpt("language", file.language());
+    fileEntry.putOpt("entry", entryName);
+    fileEntry.put("attempts", file.attempts());
+
+    JSONArray errors = new JSONArray();
+    if (file.loaderErrors() != null) {
+      file
+        .loaderErrors()
+        .forEach(error ->
+          errors.put(
+            new JSONObject()
+              .put("error", error.error())
+              .putOpt("message", error.message())
+          )
+        );
+    }
+    fileEntry.put("errors", errors);
+
+    FetchStats stats = file.fetchStats();
+    if (stats != null) {
+      fileEntry.put(
+        "fetchStats",
+        new JSONObject()
+          .put("queueWaitMillis", stats.queueWaitMillis())
+          .put("connectMillis", stats.connectMillis())
+          .put("timeToFirstByteMillis", stats.timeToFirstByteMillis())
+          .put("downloadMillis", stats.downloadMillis())
+          .put("statusCode", stats.statusCode())
+          .put("headers", new JSONObject(stats.headers()))
+          .put("bytes", stats.bytes())
+      );
+    }
+    return fileEntry;
+  }
+
+  private static FetchStats readFetchStats(JSONObject stats) {
+    if (stats == null) {
+      return null;
+    }
+    Map<String, String> headers = new LinkedHashMap<>();
+    JSONObject headerEntries = stats.optJSONObject("headers");
+    if (headerEntries != null) {
+      headerEntries
+        .keySet()
+        .forEach(name -> headers.put(name, headerEntries.getString(name)));
+    }
+    return new FetchStats(
+      stats.optLong("queueWaitMillis"),
+      stats.optLong("connectMillis"),
+      stats.optLong("timeToFirstByteMillis"),
+      stats.optLong("downloadMillis"),
+      stats.optInt("statusCode"),
+      headers,
+      stats.optLong("bytes")
+    );
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+
+package org.entur.gbfs.validator.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Records everything a load fetched into a single compressed snapshot archive, which can be
+ * replayed later without network access by loading an archive: URI, e.g.
+ * archive:/snapshots/oslobysykkel.zip.
+ * Pass the recorder as the {@link LoadListener} of {@link Loader#load(String,
+ * org.entur.gbfs.validator.loader.auth.Authentication, LoadListener)}. Files are written as
+ * they arrive and passed on to the delegate listener with their contents intact. The archive is
+ * complete once the recorder is closed.
+ */
+public class SnapshotRecorder implements LoadListener, Closeable {
+
+  private final ZipOutputStream zip;
+  private final LoadListener delegate;
+
+  // Guarded by this
+  private final List<RecordedFile> files = new ArrayList<>();
+  private final Map<String, Integer> feedOrder = new HashMap<>();
+
+  /**
+   * @param archive the archive file to write, replaced if it exists
+   * @param delegate listener receiving the discovered feeds and loaded files after recording
+   */
+  public SnapshotRecorder(Path archive, LoadListener delegate)
+    throws IOException {
+    this.zip = new ZipOutputStream(Files.newOutputStream(archive));
+    this.delegate = delegate;
+  }
+
+  /**
+   * @param archive the archive file to write, replaced if it exists
+   */
+  public SnapshotRecorder(Path archive) throws IOException {
+    this(archive, file -> {});
+  }
+
+  @Override
+  public void onFeedsDiscovered(List<FeedReference> feeds) {
+    synchronized (this) {
+      for (int i = 0; i < feeds.size(); i++) {
+        feedOrder.putIfAbsent(feedKey(feeds.get(i)), i);
+      }
+    }
+    delegate.onFeedsDiscovered(feeds);
+  }
+
+  @Override
+  public void onFileLoaded(LoadedFile file) {
+    LoadedFile recorded;
+    try {
+      recorded = record(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to record " + file.url(), e);
+    }
+    delegate.onFileLoaded(recorded);
+  }
+
+  private LoadedFile record(LoadedFile file) throws IOException {
+    byte[] contents = null;
+    if (file.fileContents() != null) {
+      try (InputStream stream = file.fileContents()) {
+        contents = stream.readAllBytes();
+      }
+    }
+
+    synchronized (this) {
+      String entryName = null;
+      if (contents != null) {
+        entryName = "files/" + files.size() + ".json";
+        zip.putNextEntry(new ZipEntry(entryName));
+        zip.write(contents);
+        zip.closeEntry();
+      }
+      files.add(new RecordedFile(file, entryName, files.size()));
+    }
+
+    return new LoadedFile(
+      file.fileName(),
+      file.url(),
+      contents != null ? new ByteArrayInputStream(contents) : null,
+      file.language(),
+      file.loaderErrors(),
+      file.attempts(),
+      file.fetchStats()
+    );
+  }
+
+  /**
+   * Writes the manifest, listing the discovery file first and the feeds in the order of the
+   * discovery file, and closes the archive.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    JSONArray manifestFiles = new JSONArray();
+    files
+      .stream()
+      .sorted(
+        Comparator
+          .comparingInt(this::manifestPosition)
+          .thenComparingInt(RecordedFile::arrival)
+      )
+      .forEach(recorded ->
+        manifestFiles.put(
+          SnapshotArchive.toJson(recorded.file(), recorded.entryName())
+        )
+      );
+
+    JSONObject manifest = new JSONObject()
+      .put("formatVersion", SnapshotArchive.FORMAT_VERSION)
+      .put("recordedAt", Instant.now().toString())
+      .put("files", manifestFiles);
+
+    zip.putNextEntry(new ZipEntry(SnapshotArchive.MANIFEST_ENTRY));
+    zip.write(manifest.toString(2).getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+    zip.close();
+  }
+
+  private int manifestPosition(RecordedFile recorded) {
+    // The loader always passes the discovery file first
+    return recorded.arrival() == 0
+      ? -1
+      : feedOrder.getOrDefault(feedKey(recorded.file()), Integer.MAX_VALUE);
+  }
+
+  private static String feedKey(FeedReference feed) {
+    return feed.name() + "/" + feed.language();
+  }
+
+  private static String feedKey(LoadedFile file) {
+    return file.fileName() + "/" + file.language();
+  }
+
+  private record RecordedFile(LoadedFile file, String entryName, int arrival) {}
+}
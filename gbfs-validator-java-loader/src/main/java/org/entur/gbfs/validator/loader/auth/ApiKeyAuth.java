@@ -0,0 +1,71 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.loader.auth;
+
+/**
+ * An API key sent with every request, either as a header or as a query parameter.
+ */
+public class ApiKeyAuth implements Authentication {
+
+  /**
+   * Where the API key is sent.
+   */
+  public enum Location {
+    HEADER,
+    QUERY,
+  }
+
+  private final String name;
+  private final String value;
+  private final Location location;
+
+  /**
+   * @param name the header or query parameter name, e.g. X-API-Key or api_key
+   * @param value the API key
+   * @param location whether the key is sent as a header or as a query parameter
+   */
+  public ApiKeyAuth(String name, String value, Location location) {
+    this.name = name;
+    this.value = value;
+    this.location = location;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public Location getLocation() {
+    return location;
+  }
+
+  @Override
+  public void authenticate(AuthSession.Builder session) {
+    if (location == Location.QUERY) {
+      session.queryParameter(name, value);
+    } else {
+      session.header(name, value);
+    }
+  }
+}
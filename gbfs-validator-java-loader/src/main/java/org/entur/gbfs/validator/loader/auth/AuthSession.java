@@ -0,0 +1,210 @@
+/*
+ *
+ *  *
+ *  *
+ *  *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  *  * You may not use this work except in compliance with the Licence.
+ *  *  * You may obtain a copy of the Licence at:
+ *  *  *
+ *  *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the Licence for the specific language governing permissions and
+ *  *  * limitations under the Licence.
+ *  *
+ *
+ */
+
+package org.entur.gbfs.validator.loader.auth;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The headers and query parameters sent with every request of a load, resolved once from the
+ * load's {@link Authentication} and the loader's custom headers.
+ */
+public final class AuthSession {
+
+  private final Map<String, String> headers;
+  private final Map<String, String> queryParameters;
+  private final String query;
+  private final String fingerprint;
+
+  private AuthSession(
+    Map<String, String> headers,
+    Map<String, String> queryParameters
+  ) {
+    this.headers = Collections.unmodifiableMap(headers);
+    this.queryParameters = Collections.unmodifiableMap(queryParameters);
+    this.query = encodeQuery(queryParameters);
+    this.fingerprint = computeFingerprint(headers, queryParameters);
+  }
+
+  /**
+   * Resolves a session.
+   *
+   * @param auth the credentials of the load, or null for public feeds
+   * @param defaultHeaders headers sent with every request; the authentication may override them
+   * @param tokenClient sends the token requests of authentications that need them
+   * @return the resolved session
+   * @throws IOException if the credentials cannot be acquired
+   */
+  public static AuthSession resolve(
+    Authentication auth,
+    Map<String, String> defaultHeaders,
+    TokenClient tokenClient
+  ) throws IOException {
+    Builder builder = new Builder(tokenClient);
+    builder.headers.putAll(defaultHeaders);
+    if (auth != null) {
+      auth.authenticate(builder);
+    }
+    return new AuthSession(builder.headers, builder.queryParameters);
+  }
+
+  /**
+   * @return the headers to set on every request
+   */
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * @return the query parameters to add to every request
+   */
+  public Map<String, String> getQueryParameters() {
+    return queryParameters;
+  }
+
+  /**
+   * @return the URI with the session's query parameters added
+   */
+  public URI apply(URI uri) {
+    if (query.isEmpty()) {
+      return uri;
+    }
+    String uriString = uri.toString();
+    int fragment = uriString.indexOf('#');
+    String base = fragment >= 0 ? uriString.substring(0, fragment) : uriString;
+    String separator = uri.getRawQuery() == null ? "?" : "&";
+    return URI.create(
+      base +
+      separator +
+      query +
+      (fragment >= 0 ? uriString.substring(fragment) : "")
+    );
+  }
+
+  /**
+   * Identifies what the session sends without exposing it, so requests made with the same
+   * credentials can be recognised.
+   *
+   * @return a SHA-256 hash of the headers and query parameters
+   */
+  public String fingerprint() {
+    return fingerprint;
+  }
+
+  private static String encodeQuery(Map<String, String> queryParameters) {
+    StringBuilder query = new StringBuilder();
+    queryParameters.forEach((name, value) -> {
+      if (query.length() > 0) {
+        query.append('&');
+      }
+      query
+        .append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+        .append('=')
+        .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    });
+    return query.toString();
+  }
+
+  private static String computeFingerprint(
+    Map<String, String> headers,
+    Map<String, String> queryParameters
+  ) {
+    String identity =
+      new TreeMap<>(headers) + " " + new TreeMap<>(queryParameters);
+    try {
+      return HexFormat
+        .of()
+        .formatHex(
+          MessageDigest
+            .getInstance("SHA-256")
+            .digest(identity.getBytes(StandardCharsets.UTF_8))
+        );
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Sends the token requests of authentications that acquire credentials over HTTP, using the
+   * loader's HTTP client.
+   */
+  @FunctionalInterface
+  public interface TokenClient {
+    /**
+     * Posts a form to a URL.
+     *
+     * @param url the URL to post to
+     * @param formBody the application/x-www-form-urlencoded request body
+     * @return the response body
+     * @throws IOException if the request fails or is answered with a non-success status
+     */
+    String postForm(String url, String formBody) throws IOException;
+  }
+
+  /**
+   * Collects what an {@link Authentication} sends with the requests of a session.
+   */
+  public static final class Builder {
+
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private final Map<String, String> queryParameters = new LinkedHashMap<>();
+    private final TokenClient tokenClient;
+
+    private Builder(TokenClient tokenClient) {
+      this.tokenClient = tokenClient;
+    }
+
+    /**
+     * Sets a header on every request of the session.
+     */
+    public Builder header(String name, String value) {
+      headers.put(name, value);
+      return this;
+    }
+
+    /**
+     * Adds a query parameter to every request of the session.
+     */
+    public Builder queryParameter(String name, String value) {
+      queryParameters.put(name, value);
+      return this;
+    }
+
+    /**
+     * Posts a form with the loader's HTTP client, e.g. to request a token.
+     *
+     * @see TokenClient#postForm(String, String)
+     */
+    public String postForm(String url, String formBody) throws IOException {
+      return tokenClient.postForm(url, formBody);
+    }
+  }
+}
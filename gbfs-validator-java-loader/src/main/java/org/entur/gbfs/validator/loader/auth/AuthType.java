@@ -24,4 +24,5 @@ public enum AuthType {
   BASIC,
   BEARER_TOKEN,
   OAUTH_CLIENT_CREDENTIALS,
+  API_KEY,
 }
@@ -20,4 +20,20 @@
 
 package org.entur.gbfs.validator.loader.auth;
 
-public interface Authentication {}
+import java.io.IOException;
+
+/**
+ * Credentials for protected feeds. New kinds of authentication are added by implementing
+ * {@link #authenticate(AuthSession.Builder)}; the loaders only send the resulting session.
+ */
+public interface Authentication {
+  /**
+   * Resolves the credentials into the headers and query parameters sent with every request of
+   * a load. Called once per load, so credentials that have to be acquired, such as OAuth
+   * tokens, are shared by all files of the load.
+   *
+   * @param session collects the headers and query parameters, and sends token requests
+   * @throws IOException if the credentials cannot be acquired
+   */
+  void authenticate(AuthSession.Builder session) throws IOException;
+}
@@ -20,6 +20,9 @@
 
 package org.entur.gbfs.validator.loader.auth;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
 public class BasicAuth implements Authentication {
 
   private final String username;
@@ -37,4 +40,17 @@ public class BasicAuth implements Authentication {
   public String getPassword() {
     return password;
   }
+
+  @Override
+  public void authenticate(AuthSession.Builder session) {
+    session.header(
+      "Authorization",
+      "Basic " +
+      Base64
+        .getEncoder()
+        .encodeToString(
+          (username + ":" + password).getBytes(StandardCharsets.UTF_8)
+        )
+    );
+  }
 }
@@ -31,4 +31,9 @@ public class BearerTokenAuth implements Authentication {
   public String getToken() {
     return token;
   }
+
+  @Override
+  public void authenticate(AuthSession.Builder session) {
+    session.header("Authorization", "Bearer " + token);
+  }
 }
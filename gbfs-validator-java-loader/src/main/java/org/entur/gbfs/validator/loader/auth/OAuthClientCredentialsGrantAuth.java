@@ -20,6 +20,11 @@
 
 package org.entur.gbfs.validator.loader.auth;
 
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONObject;
+
 public class OAuthClientCredentialsGrantAuth implements Authentication {
 
   private final String clientId;
@@ -47,4 +52,32 @@ public class OAuthClientCredentialsGrantAuth implements Authentication {
   public String getTokenUrl() {
     return tokenUrl;
   }
+
+  /**
+   * Fetches an access token with the client credentials grant and sends it as a bearer token.
+   */
+  @Override
+  public void authenticate(AuthSession.Builder session) throws IOException {
+    String accessToken;
+    try {
+      JSONObject tokenResponse = new JSONObject(
+        session.postForm(
+          tokenUrl,
+          "grant_type=client_credentials&client_id=" +
+          URLEncoder.encode(clientId, StandardCharsets.UTF_8) +
+          "&client_secret=" +
+          URLEncoder.encode(clientSecret, StandardCharsets.UTF_8)
+        )
+      );
+      if (!tokenResponse.has("access_token")) {
+        throw new IOException(
+          "OAuth token response did not contain access_token"
+        );
+      }
+      accessToken = tokenResponse.getString("access_token");
+    } catch (Exception e) {
+      throw new IOException("OAuth token fetch failed: " + e.getMessage(), e);
+    }
+    session.header("Authorization", "Bearer " + accessToken);
+  }
 }
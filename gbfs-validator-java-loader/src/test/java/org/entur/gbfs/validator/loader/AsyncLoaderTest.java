@@ -0,0 +1,290 @@
+package org.entur.gbfs.validator.loader;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.entur.gbfs.validator.loader.auth.OAuthClientCredentialsGrantAuth;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncLoaderTest {
+
+  private WireMockServer wireMockServer;
+  private AsyncLoader loader;
+
+  private String systemInformationJson =
+    "{\"system_id\": \"test-system\", \"language\": \"en\", \"name\": \"Test System\"}";
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+    wireMockServer.start();
+    WireMock.configureFor("localhost", wireMockServer.port());
+    loader = new AsyncLoader();
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMockServer.stop();
+    loader.close();
+  }
+
+  private String getBaseUrl() {
+    return "http://localhost:" + wireMockServer.port();
+  }
+
+  private String readContents(LoadedFile file) throws IOException {
+    try (InputStream is = file.fileContents()) {
+      return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  void testLoad_PreV3_LoadsFeedsPerLanguage() throws Exception {
+    String discovery = String.format(
+      "{\"version\": \"2.3\", \"data\": {\"en\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json")).willReturn(aResponse().withBody(discovery))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    List<LoadedFile> files = loader.load(getBaseUrl() + "/gbfs.json").get();
+
+    assertEquals(2, files.size());
+    assertEquals("gbfs", files.get(0).fileName());
+    assertNull(files.get(0).language());
+    assertEquals(discovery, readContents(files.get(0)));
+
+    LoadedFile systemInformation = files.get(1);
+    assertEquals("system_information", systemInformation.fileName());
+    assertEquals("en", systemInformation.language());
+    assertTrue(systemInformation.loaderErrors().isEmpty());
+    assertEquals(systemInformationJson, readContents(systemInformation));
+  }
+
+  @Test
+  void testLoad_HttpError_ReportsConnectionError() throws Exception {
+    stubFor(
+      get(urlEqualTo("/gbfs.json")).willReturn(aResponse().withStatus(404))
+    );
+
+    List<LoadedFile> files = loader.load(getBaseUrl() + "/gbfs.json").get();
+
+    assertEquals(1, files.size());
+    assertNull(files.get(0).fileContents());
+    LoaderError error = files.get(0).loaderErrors().get(0);
+    assertEquals("CONNECTION_ERROR", error.error());
+    assertEquals("HTTP error fetching file: 404 Not Found", error.message());
+  }
+
+  @Test
+  void testLoad_OAuthClientCredentials_FetchesTokenOncePerLoad()
+    throws Exception {
+    String discovery = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%1$s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%1$s/vehicle_types.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      post(urlEqualTo("/oauth/token"))
+        .willReturn(aResponse().withBody("{\"access_token\": \"token\"}"))
+    );
+    stubFor(
+      get(urlMatching("/.*\\.json"))
+        .withHeader(HttpHeaders.AUTHORIZATION, equalTo("Bearer token"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .withHeader(HttpHeaders.AUTHORIZATION, equalTo("Bearer token"))
+        .willReturn(aResponse().withBody(discovery))
+    );
+
+    List<LoadedFile> files = loader
+      .load(
+        getBaseUrl() + "/gbfs.json",
+        new OAuthClientCredentialsGrantAuth(
+          "client",
+          "secret",
+          getBaseUrl() + "/oauth/token"
+        )
+      )
+      .get();
+
+    assertEquals(3, files.size());
+    files.forEach(file -> assertTrue(file.loaderErrors().isEmpty()));
+    wireMockServer.verify(1, postRequestedFor(urlEqualTo("/oauth/token")));
+  }
+
+  @Test
+  void testLoad_OAuthTokenFetchFailure_ReportsConnectionError()
+    throws Exception {
+    stubFor(
+      post(urlEqualTo("/oauth/token")).willReturn(aResponse().withStatus(500))
+    );
+
+    List<LoadedFile> files = loader
+      .load(
+        getBaseUrl() + "/gbfs.json",
+        new OAuthClientCredentialsGrantAuth(
+          "client",
+          "secret",
+          getBaseUrl() + "/oauth/token"
+        )
+      )
+      .get();
+
+    assertEquals(1, files.size());
+    LoaderError error = files.get(0).loaderErrors().get(0);
+    assertEquals("CONNECTION_ERROR", error.error());
+    assertTrue(error.message().contains("OAuth token fetch failed"));
+    wireMockServer.verify(0, getRequestedFor(urlEqualTo("/gbfs.json")));
+  }
+
+  @Test
+  void testLoad_RetryPolicy_RetriesServerErrorsAndRecordsFetchStats()
+    throws Exception {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("retry")
+        .whenScenarioStateIs(STARTED)
+        .willReturn(aResponse().withStatus(503))
+        .willSetStateTo("recovered")
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("retry")
+        .whenScenarioStateIs("recovered")
+        .willReturn(
+          aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .withBody(systemInformationJson)
+        )
+    );
+
+    RetryPolicy retryPolicy = new RetryPolicy();
+    retryPolicy.setMaxAttempts(3);
+    retryPolicy.setInitialBackoffMillis(10);
+    LoaderOptions options = new LoaderOptions();
+    options.setRetryPolicy(retryPolicy);
+    AsyncLoader retryingLoader = new AsyncLoader(
+      5,
+      5,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      LoadedFile discoveryFile = retryingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get()
+        .get(0);
+
+      assertTrue(discoveryFile.loaderErrors().isEmpty());
+      assertEquals(2, discoveryFile.attempts());
+      FetchStats stats = discoveryFile.fetchStats();
+      assertEquals(200, stats.statusCode());
+      assertEquals(systemInformationJson.length(), stats.bytes());
+      assertEquals("application/json", stats.headers().get("Content-Type"));
+    } finally {
+      retryingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_CircuitBreaker_SkipsHostAfterConsecutiveFailures()
+    throws Exception {
+    String discovery = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%1$s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%1$s/vehicle_types.json\"}, {\"name\": \"station_information\", \"url\": \"%1$s/station_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json")).willReturn(aResponse().withBody(discovery))
+    );
+    stubFor(
+      get(urlMatching("/(?!gbfs).*\\.json"))
+        .willReturn(aResponse().withStatus(503))
+    );
+
+    LoaderOptions options = new LoaderOptions();
+    options.getCircuitBreaker().setFailureThreshold(2);
+    // One request at a time, so the files are fetched in discovery order
+    options.setMaxConcurrentRequestsPerHost(1);
+    AsyncLoader circuitBreakingLoader = new AsyncLoader(
+      5,
+      5,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      List<LoadedFile> files = circuitBreakingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get();
+
+      assertEquals(4, files.size());
+      assertEquals(
+        "CONNECTION_ERROR",
+        files.get(1).loaderErrors().get(0).error()
+      );
+      assertEquals(
+        "CONNECTION_ERROR",
+        files.get(2).loaderErrors().get(0).error()
+      );
+      assertEquals("CIRCUIT_OPEN", files.get(3).loaderErrors().get(0).error());
+      assertEquals(0, files.get(3).attempts());
+      wireMockServer.verify(
+        0,
+        getRequestedFor(urlEqualTo("/station_information.json"))
+      );
+    } finally {
+      circuitBreakingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_MaxBodySize_ReportsBodyTooLarge() throws Exception {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    LoaderOptions options = new LoaderOptions();
+    options.setMaxBodySizeBytes(10);
+    AsyncLoader boundedLoader = new AsyncLoader(
+      5,
+      5,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      LoadedFile discoveryFile = boundedLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get()
+        .get(0);
+
+      assertNull(discoveryFile.fileContents());
+      LoaderError error = discoveryFile.loaderErrors().get(0);
+      assertEquals("BODY_TOO_LARGE", error.error());
+      assertEquals(
+        "File exceeds the maximum size of 10 bytes",
+        error.message()
+      );
+    } finally {
+      boundedLoader.close();
+    }
+  }
+}
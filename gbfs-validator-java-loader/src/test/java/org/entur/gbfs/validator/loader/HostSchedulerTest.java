@@ -0,0 +1,110 @@
+package org.entur.gbfs.validator.loader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HostSchedulerTest {
+
+  private ExecutorService executor;
+  private HostScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newCachedThreadPool();
+    scheduler =
+      new HostScheduler(
+        executor,
+        4,
+        new HostLimits(2, 0),
+        Map.of(
+          "slow.example.com",
+          new HostLimits(1, 0),
+          "limited.example.com",
+          new HostLimits(0, 10)
+        )
+      );
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdown();
+    executor.shutdown();
+  }
+
+  @Test
+  void testSubmit_RespectsPerHostConcurrencyAndOverrides() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger runningSlow = new AtomicInteger();
+    AtomicInteger maxRunningSlow = new AtomicInteger();
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(
+        scheduler.submit("example.com", () -> track(running, maxRunning))
+      );
+      futures.add(
+        scheduler.submit(
+          "slow.example.com",
+          () -> track(runningSlow, maxRunningSlow)
+        )
+      );
+    }
+    futures.forEach(CompletableFuture::join);
+
+    assertEquals(2, maxRunning.get());
+    assertEquals(1, maxRunningSlow.get());
+  }
+
+  @Test
+  void testSubmit_SpacesRequestsToRateLimitedHost() {
+    long start = System.nanoTime();
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(scheduler.submit("limited.example.com", () -> 1));
+    }
+    futures.forEach(CompletableFuture::join);
+
+    // 10 requests per second, so the sixth request starts after at least 500 ms
+    assertTrue((System.nanoTime() - start) / 1_000_000 >= 450);
+  }
+
+  @Test
+  void testSubmit_FailedTaskReleasesPermit() {
+    CompletableFuture<Integer> failed = scheduler.submit(
+      "slow.example.com",
+      () -> {
+        throw new IllegalStateException("failed");
+      }
+    );
+
+    assertThrows(CompletionException.class, failed::join);
+    assertEquals(
+      1,
+      scheduler.submit("slow.example.com", () -> 1).join().intValue()
+    );
+  }
+
+  private Void track(AtomicInteger running, AtomicInteger maxRunning) {
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      running.decrementAndGet();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,158 @@
+package org.entur.gbfs.validator.loader;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the fixed thread pool against the virtual thread execution mode by running many
+ * concurrent loads against a local stub server with a fixed response delay.
+ *
+ * Run with: mvn test -Dtest=LoaderBenchmarkTest -Dloader.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "loader.benchmark", matches = "true")
+public class LoaderBenchmarkTest {
+
+  private static final int FEEDS_PER_SYSTEM = 15;
+  private static final int CONCURRENT_LOADS = 20;
+  private static final int RESPONSE_DELAY_MILLIS = 100;
+  private static final int ROUNDS = 3;
+
+  private WireMockServer wireMockServer;
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer =
+      new WireMockServer(
+        wireMockConfig().dynamicPort().containerThreads(400).jettyAcceptors(4)
+      );
+    wireMockServer.start();
+
+    StringBuilder feeds = new StringBuilder();
+    for (int i = 0; i < FEEDS_PER_SYSTEM; i++) {
+      if (i > 0) {
+        feeds.append(",");
+      }
+      feeds.append(
+        String.format(
+          "{\"name\": \"feed_%d\", \"url\": \"%s/feed_%d.json\"}",
+          i,
+          wireMockServer.baseUrl(),
+          i
+        )
+      );
+    }
+
+    wireMockServer.stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(
+          aResponse()
+            .withHeader("Content-Type", "application/json")
+            .withBody(
+              "{\"version\": \"3.0\", \"data\": {\"feeds\": [" + feeds + "]}}"
+            )
+        )
+    );
+    wireMockServer.stubFor(
+      get(urlMatching("/feed_\\d+\\.json"))
+        .willReturn(
+          aResponse()
+            .withHeader("Content-Type", "application/json")
+            .withBody("{\"data\": {}}")
+            .withFixedDelay(RESPONSE_DELAY_MILLIS)
+        )
+    );
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMockServer.stop();
+  }
+
+  @Test
+  void compareThreadPoolAndVirtualThreads() throws Exception {
+    LoaderOptions threadPoolOptions = new LoaderOptions();
+    threadPoolOptions.setExecutionMode(ExecutionMode.THREAD_POOL);
+
+    LoaderOptions virtualThreadOptions = new LoaderOptions();
+    virtualThreadOptions.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+
+    long threadPoolMillis = benchmark(threadPoolOptions);
+    long virtualThreadMillis = benchmark(virtualThreadOptions);
+
+    System.out.printf(
+      "%d concurrent loads of %d feeds (%d ms per response), best of %d rounds:%n" +
+      "  THREAD_POOL:     %d ms%n" +
+      "  VIRTUAL_THREADS: %d ms%n",
+      CONCURRENT_LOADS,
+      FEEDS_PER_SYSTEM,
+      RESPONSE_DELAY_MILLIS,
+      ROUNDS,
+      threadPoolMillis,
+      virtualThreadMillis
+    );
+  }
+
+  private long benchmark(LoaderOptions options) throws Exception {
+    // Same connection pool for both modes, so only the execution model differs
+    Loader loader = new Loader(
+      400,
+      400,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+    ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_LOADS);
+    long best = Long.MAX_VALUE;
+
+    try {
+      // Warm up connections and JIT before measuring
+      assertLoaded(loader.load(wireMockServer.baseUrl() + "/gbfs.json"));
+
+      for (int round = 0; round < ROUNDS; round++) {
+        List<Future<List<LoadedFile>>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_LOADS; i++) {
+          futures.add(
+            clients.submit(() ->
+              loader.load(wireMockServer.baseUrl() + "/gbfs.json")
+            )
+          );
+        }
+        for (Future<List<LoadedFile>> future : futures) {
+          assertLoaded(future.get());
+        }
+        best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+      }
+    } finally {
+      clients.shutdown();
+      loader.close();
+    }
+
+    return best;
+  }
+
+  private void assertLoaded(List<LoadedFile> files) throws IOException {
+    assertEquals(FEEDS_PER_SYSTEM + 1, files.size());
+    for (LoadedFile file : files) {
+      assertTrue(file.loaderErrors().isEmpty(), file.loaderErrors().toString());
+      assertNotNull(file.fileContents());
+      file.fileContents().close();
+    }
+  }
+}
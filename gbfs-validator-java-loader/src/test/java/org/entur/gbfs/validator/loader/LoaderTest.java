@@ -2,6 +2,7 @@ package org.entur.gbfs.validator.loader;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
@@ -9,9 +10,19 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.hc.core5.http.HttpHeaders;
+import org.entur.gbfs.validator.loader.auth.ApiKeyAuth;
 import org.entur.gbfs.validator.loader.auth.BasicAuth;
 import org.entur.gbfs.validator.loader.auth.BearerTokenAuth;
 import org.entur.gbfs.validator.loader.auth.OAuthClientCredentialsGrantAuth;
@@ -19,6 +30,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
@@ -303,6 +315,73 @@ public class LoaderTest {
     wireMockServer.verify(0, getRequestedFor(urlEqualTo(gbfsUrl))); // GBFS endpoint should not be called
   }
 
+  @Test
+  void testLoad_OAuthClientCredentials_FetchesTokenOncePerLoad()
+    throws IOException {
+    String discoveryContent = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%1$s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%1$s/vehicle_types.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      post(urlEqualTo("/oauth/token"))
+        .willReturn(aResponse().withBody("{\"access_token\": \"token\"}"))
+    );
+    stubFor(
+      get(urlMatching("/.*\\.json"))
+        .withHeader(HttpHeaders.AUTHORIZATION, equalTo("Bearer token"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .withHeader(HttpHeaders.AUTHORIZATION, equalTo("Bearer token"))
+        .willReturn(aResponse().withBody(discoveryContent))
+    );
+
+    List<LoadedFile> files = loader.load(
+      getBaseUrl() + "/gbfs.json",
+      new OAuthClientCredentialsGrantAuth(
+        "client",
+        "secret",
+        getBaseUrl() + "/oauth/token"
+      )
+    );
+
+    assertEquals(3, files.size());
+    files.forEach(file -> assertTrue(file.loaderErrors().isEmpty()));
+    wireMockServer.verify(1, postRequestedFor(urlEqualTo("/oauth/token")));
+  }
+
+  @Test
+  void testLoad_ApiKeyAuth_SendsKeyAsHeaderOrQueryParameter()
+    throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .withHeader("X-API-Key", equalTo("secret"))
+        .willReturn(aResponse().withBody(gbfsDiscoveryJson))
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json?api_key=s%26cret"))
+        .willReturn(aResponse().withBody(gbfsDiscoveryJson))
+    );
+
+    List<LoadedFile> headerFiles = loader.load(
+      getBaseUrl() + "/gbfs.json",
+      new ApiKeyAuth("X-API-Key", "secret", ApiKeyAuth.Location.HEADER)
+    );
+    List<LoadedFile> queryFiles = loader.load(
+      getBaseUrl() + "/gbfs.json",
+      new ApiKeyAuth("api_key", "s&cret", ApiKeyAuth.Location.QUERY)
+    );
+
+    assertTrue(headerFiles.get(0).loaderErrors().isEmpty());
+    assertTrue(queryFiles.get(0).loaderErrors().isEmpty());
+    assertEquals(
+      getBaseUrl() + "/gbfs.json",
+      queryFiles.get(0).url(),
+      "The API key should not leak into the reported URL"
+    );
+  }
+
   @Test
   void testLoad_WithDiscoveryFileAndFeed_V3_WithAuth() throws IOException {
     String token = "test_token_v3";
@@ -394,4 +473,837 @@ public class LoaderTest {
         .withHeader(HttpHeaders.AUTHORIZATION, equalTo(expectedAuthHeader))
     );
   }
+
+  @Test
+  void testLoad_VirtualThreads_WithDiscoveryFileAndFeed() throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    LoaderOptions options = new LoaderOptions();
+    options.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+    options.setMaxConcurrentRequests(1);
+    options.setMaxConcurrentRequestsPerHost(1);
+    Loader virtualThreadLoader = new Loader(
+      50,
+      20,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+
+    try {
+      List<LoadedFile> files = virtualThreadLoader.load(
+        getBaseUrl() + "/gbfs.json"
+      );
+
+      assertEquals(2, files.size());
+      assertTrue(files.get(1).loaderErrors().isEmpty());
+      assertEquals(
+        systemInformationJson,
+        convertStreamToString(files.get(1).fileContents())
+      );
+    } finally {
+      virtualThreadLoader.close();
+    }
+  }
+
+  private Loader newRetryingLoader() {
+    RetryPolicy retryPolicy = new RetryPolicy();
+    retryPolicy.setMaxAttempts(3);
+    retryPolicy.setInitialBackoffMillis(10);
+    LoaderOptions options = new LoaderOptions();
+    options.setRetryPolicy(retryPolicy);
+    return new Loader(50, 20, 5, 5, 20, Collections.emptyMap(), options);
+  }
+
+  @Test
+  void testLoad_RetryPolicy_RetriesServerErrors() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("retry")
+        .whenScenarioStateIs(STARTED)
+        .willReturn(aResponse().withStatus(503))
+        .willSetStateTo("recovered")
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("retry")
+        .whenScenarioStateIs("recovered")
+        .willReturn(aResponse().withBody(gbfsDiscoveryJson))
+    );
+
+    Loader retryingLoader = newRetryingLoader();
+    try {
+      LoadedFile discoveryFile = retryingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      assertTrue(discoveryFile.loaderErrors().isEmpty());
+      assertEquals(2, discoveryFile.attempts());
+      assertEquals(
+        gbfsDiscoveryJson,
+        convertStreamToString(discoveryFile.fileContents())
+      );
+    } finally {
+      retryingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_RetryPolicy_HonoursRetryAfter() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("rate-limited")
+        .whenScenarioStateIs(STARTED)
+        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "1"))
+        .willSetStateTo("allowed")
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("rate-limited")
+        .whenScenarioStateIs("allowed")
+        .willReturn(aResponse().withBody(gbfsDiscoveryJson))
+    );
+
+    Loader retryingLoader = newRetryingLoader();
+    try {
+      long start = System.nanoTime();
+      LoadedFile discoveryFile = retryingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      assertTrue(discoveryFile.loaderErrors().isEmpty());
+      assertEquals(2, discoveryFile.attempts());
+      assertTrue((System.nanoTime() - start) / 1_000_000 >= 1000);
+    } finally {
+      retryingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_RetryPolicy_ReleasesHostWhileBackingOff() throws IOException {
+    String discoveryContentWithFeeds = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%1$s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%1$s/vehicle_types.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeeds))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .inScenario("backoff")
+        .whenScenarioStateIs(STARTED)
+        .willReturn(aResponse().withStatus(503).withHeader("Retry-After", "1"))
+        .willSetStateTo("recovered")
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .inScenario("backoff")
+        .whenScenarioStateIs("recovered")
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+    stubFor(
+      get(urlEqualTo("/vehicle_types.json"))
+        .willReturn(aResponse().withBody("{}"))
+    );
+
+    RetryPolicy retryPolicy = new RetryPolicy();
+    retryPolicy.setMaxAttempts(3);
+    LoaderOptions options = new LoaderOptions();
+    options.setRetryPolicy(retryPolicy);
+    // One request at a time, so the files are fetched in discovery order
+    Loader retryingLoader = new Loader(
+      50,
+      1,
+      5,
+      5,
+      1,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      List<LoadedFile> files = retryingLoader.load(
+        getBaseUrl() + "/gbfs.json"
+      );
+
+      assertTrue(files.get(1).loaderErrors().isEmpty());
+      assertEquals(2, files.get(1).attempts());
+      // The second feed is fetched while the first one backs off
+      assertTrue(files.get(2).fetchStats().queueWaitMillis() < 1000);
+    } finally {
+      retryingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_RetryPolicy_DoesNotRetryClientErrors() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json")).willReturn(aResponse().withStatus(404))
+    );
+
+    Loader retryingLoader = newRetryingLoader();
+    try {
+      LoadedFile discoveryFile = retryingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      assertEquals(1, discoveryFile.attempts());
+      assertEquals(
+        "HTTP error fetching file: 404 Not Found",
+        discoveryFile.loaderErrors().get(0).message()
+      );
+      wireMockServer.verify(1, getRequestedFor(urlEqualTo("/gbfs.json")));
+    } finally {
+      retryingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_Hedging_RecordsStatsOfWinningRequest() throws IOException {
+    stubFor(
+      get(urlEqualTo("/warmup.json")).willReturn(aResponse().withBody("{}"))
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("hedged")
+        .whenScenarioStateIs(STARTED)
+        .willReturn(
+          aResponse()
+            .withHeader(HttpHeaders.CACHE_CONTROL, "max-age=1")
+            .withBody(gbfsDiscoveryJson)
+            .withFixedDelay(2000)
+        )
+        .willSetStateTo("hedge sent")
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .inScenario("hedged")
+        .whenScenarioStateIs("hedge sent")
+        .willReturn(
+          aResponse()
+            .withHeader(HttpHeaders.CACHE_CONTROL, "max-age=2")
+            .withBody(gbfsDiscoveryJson)
+        )
+    );
+
+    RetryPolicy retryPolicy = new RetryPolicy();
+    retryPolicy.setHedgingEnabled(true);
+    LoaderOptions options = new LoaderOptions();
+    options.setRetryPolicy(retryPolicy);
+    Loader hedgingLoader = new Loader(
+      50,
+      20,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      // Enough fast responses for the host's p95 latency to be known
+      for (int i = 0; i < 20; i++) {
+        hedgingLoader.load(getBaseUrl() + "/warmup.json");
+      }
+
+      long start = System.nanoTime();
+      LoadedFile discoveryFile = hedgingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+      assertTrue(discoveryFile.loaderErrors().isEmpty());
+      assertEquals(2, discoveryFile.attempts());
+      assertEquals(
+        "max-age=2",
+        discoveryFile.fetchStats().headers().get("Cache-Control")
+      );
+      assertEquals(
+        gbfsDiscoveryJson,
+        convertStreamToString(discoveryFile.fileContents())
+      );
+    } finally {
+      hedgingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_Hedging_RespectsPerHostLimit() throws IOException {
+    stubFor(
+      get(urlEqualTo("/warmup.json")).willReturn(aResponse().withBody("{}"))
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(
+          aResponse().withBody(gbfsDiscoveryJson).withFixedDelay(500)
+        )
+    );
+
+    RetryPolicy retryPolicy = new RetryPolicy();
+    retryPolicy.setHedgingEnabled(true);
+    LoaderOptions options = new LoaderOptions();
+    options.setRetryPolicy(retryPolicy);
+    options.setMaxConcurrentRequestsPerHost(1);
+    Loader hedgingLoader = new Loader(
+      50,
+      20,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      for (int i = 0; i < 20; i++) {
+        hedgingLoader.load(getBaseUrl() + "/warmup.json");
+      }
+
+      LoadedFile discoveryFile = hedgingLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      // The hedge waits for the host's only slot, which the first request holds until done
+      assertTrue(discoveryFile.loaderErrors().isEmpty());
+      assertEquals(1, discoveryFile.attempts());
+      wireMockServer.verify(1, getRequestedFor(urlEqualTo("/gbfs.json")));
+    } finally {
+      hedgingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_RecordsFetchStats() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(
+          aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            // Not an ETag, which WireMock rewrites when it gzips the response
+            .withHeader(
+              HttpHeaders.LAST_MODIFIED,
+              "Wed, 21 Oct 2015 07:28:00 GMT"
+            )
+            .withHeader("X-Not-Of-Interest", "ignored")
+            .withBody(systemInformationJson)
+            .withFixedDelay(100)
+        )
+    );
+
+    LoadedFile discoveryFile = loader.load(getBaseUrl() + "/gbfs.json").get(0);
+    FetchStats stats = discoveryFile.fetchStats();
+
+    assertEquals(200, stats.statusCode());
+    assertEquals(systemInformationJson.length(), stats.bytes());
+    assertTrue(stats.timeToFirstByteMillis() >= 100);
+    assertTrue(stats.connectMillis() <= stats.timeToFirstByteMillis());
+    assertEquals("application/json", stats.headers().get("Content-Type"));
+    assertEquals(
+      "Wed, 21 Oct 2015 07:28:00 GMT",
+      stats.headers().get("Last-Modified")
+    );
+    assertFalse(stats.headers().containsKey("X-Not-Of-Interest"));
+  }
+
+  @Test
+  void testLoad_HttpError_RecordsStatusCode() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json")).willReturn(aResponse().withStatus(500))
+    );
+
+    LoadedFile discoveryFile = loader.load(getBaseUrl() + "/gbfs.json").get(0);
+
+    assertEquals(500, discoveryFile.fetchStats().statusCode());
+    assertEquals(0, discoveryFile.fetchStats().bytes());
+  }
+
+  private Loader newBoundedLoader(long maxBodySize, long spillThreshold) {
+    LoaderOptions options = new LoaderOptions();
+    options.setMaxBodySizeBytes(maxBodySize);
+    options.setSpillThresholdBytes(spillThreshold);
+    return new Loader(50, 20, 5, 5, 20, Collections.emptyMap(), options);
+  }
+
+  @Test
+  void testLoad_MaxBodySize_ReportsBodyTooLarge() throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    Loader boundedLoader = newBoundedLoader(10, 0);
+    try {
+      LoadedFile discoveryFile = boundedLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(0);
+
+      assertNull(discoveryFile.fileContents());
+      LoaderError error = discoveryFile.loaderErrors().get(0);
+      assertEquals("BODY_TOO_LARGE", error.error());
+      assertEquals(
+        "File exceeds the maximum size of 10 bytes",
+        error.message()
+      );
+    } finally {
+      boundedLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_SpillThreshold_SpillsLargeBodiesToDisk() throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    Loader boundedLoader = newBoundedLoader(0, 10);
+    try {
+      LoadedFile systemInformation = boundedLoader
+        .load(getBaseUrl() + "/gbfs.json")
+        .get(1);
+
+      assertTrue(systemInformation.loaderErrors().isEmpty());
+      assertEquals(
+        systemInformationJson,
+        convertStreamToString(systemInformation.fileContents())
+      );
+      assertEquals(
+        systemInformationJson.length(),
+        systemInformation.fetchStats().bytes()
+      );
+    } finally {
+      boundedLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_SnapshotDirectory_LoadsListedFeedsPerLanguage(
+    @TempDir Path snapshot
+  ) throws IOException {
+    String discovery =
+      "{\"version\": \"2.3\", \"data\": {\"en\": {\"feeds\": [{\"name\": \"gbfs_versions\", \"url\": \"https://example.com/gbfs_versions.json\"}, {\"name\": \"system_information\", \"url\": \"https://example.com/en/system_information.json\"}, {\"name\": \"station_information\", \"url\": \"https://example.com/en/station_information.json\"}]}}}";
+    Files.writeString(snapshot.resolve("gbfs.json"), discovery);
+    Files.writeString(snapshot.resolve("gbfs_versions.json"), "{}");
+    Files.writeString(snapshot.resolve("stray.json"), "{}");
+    Files.writeString(snapshot.resolve("notes.txt"), "not a feed");
+    Files.createDirectory(snapshot.resolve("en"));
+    Files.writeString(
+      snapshot.resolve("en").resolve("system_information.json"),
+      systemInformationJson
+    );
+
+    List<LoadedFile> files = loader.load(snapshot.toUri().toString());
+
+    assertEquals(4, files.size());
+    assertEquals("gbfs", files.get(0).fileName());
+    assertEquals(discovery, convertStreamToString(files.get(0).fileContents()));
+    assertEquals("gbfs_versions", files.get(1).fileName());
+    assertEquals("{}", convertStreamToString(files.get(1).fileContents()));
+    LoadedFile systemInformation = files.get(2);
+    assertEquals("system_information", systemInformation.fileName());
+    assertEquals("en", systemInformation.language());
+    assertEquals(
+      systemInformationJson,
+      convertStreamToString(systemInformation.fileContents())
+    );
+    LoadedFile stationInformation = files.get(3);
+    assertEquals("station_information", stationInformation.fileName());
+    assertNull(stationInformation.fileContents());
+    assertEquals(
+      "FILE_NOT_FOUND",
+      stationInformation.loaderErrors().get(0).error()
+    );
+  }
+
+  @Test
+  void testLoad_RecordedSnapshot_ReplaysWithoutNetwork(@TempDir Path tempDir)
+    throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%s/vehicle_types.json\"}]}}",
+      getBaseUrl(),
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+    stubFor(
+      get(urlEqualTo("/vehicle_types.json"))
+        .willReturn(aResponse().withStatus(404))
+    );
+
+    Path archive = tempDir.resolve("snapshot.zip");
+    List<String> passedOn = Collections.synchronizedList(new ArrayList<>());
+    try (
+      SnapshotRecorder recorder = new SnapshotRecorder(
+        archive,
+        file -> {
+          try {
+            passedOn.add(convertStreamToString(file.fileContents()));
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      )
+    ) {
+      loader.load(getBaseUrl() + "/gbfs.json", null, recorder);
+    }
+    assertTrue(passedOn.contains(systemInformationJson));
+
+    wireMockServer.resetAll();
+    List<LoadedFile> replayed = loader.load("archive:" + archive);
+
+    assertEquals(3, replayed.size());
+    assertEquals("gbfs", replayed.get(0).fileName());
+    assertEquals(
+      discoveryContentWithFeed,
+      convertStreamToString(replayed.get(0).fileContents())
+    );
+
+    LoadedFile systemInformation = replayed.get(1);
+    assertEquals("system_information", systemInformation.fileName());
+    assertEquals(
+      getBaseUrl() + "/system_information.json",
+      systemInformation.url()
+    );
+    assertEquals(
+      systemInformationJson,
+      convertStreamToString(systemInformation.fileContents())
+    );
+    assertEquals(200, systemInformation.fetchStats().statusCode());
+
+    LoadedFile vehicleTypes = replayed.get(2);
+    assertNull(vehicleTypes.fileContents());
+    assertEquals(
+      "HTTP error fetching file: 404 Not Found",
+      vehicleTypes.loaderErrors().get(0).message()
+    );
+    assertEquals(0, wireMockServer.getAllServeEvents().size());
+  }
+
+  @Test
+  void testLoad_CoalesceRequests_SharesConcurrentFetches() throws Exception {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(
+          aResponse().withBody(gbfsDiscoveryJson).withFixedDelay(500)
+        )
+    );
+
+    LoaderOptions options = new LoaderOptions();
+    options.setCoalesceRequests(true);
+    Loader coalescingLoader = new Loader(
+      50,
+      20,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+    ExecutorService clients = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<List<LoadedFile>>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+          clients.submit(() ->
+            coalescingLoader.load(getBaseUrl() + "/gbfs.json")
+          )
+        );
+      }
+
+      for (Future<List<LoadedFile>> future : futures) {
+        assertEquals(
+          gbfsDiscoveryJson,
+          convertStreamToString(future.get().get(0).fileContents())
+        );
+      }
+      wireMockServer.verify(1, getRequestedFor(urlEqualTo("/gbfs.json")));
+    } finally {
+      clients.shutdown();
+      coalescingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_CircuitBreaker_SkipsHostAfterConsecutiveFailures()
+    throws IOException {
+    String discoveryContentWithFeeds = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%1$s/system_information.json\"}, {\"name\": \"vehicle_types\", \"url\": \"%1$s/vehicle_types.json\"}, {\"name\": \"station_information\", \"url\": \"%1$s/station_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeeds))
+    );
+    stubFor(
+      get(urlMatching("/(?!gbfs).*\\.json"))
+        .willReturn(aResponse().withStatus(503))
+    );
+
+    LoaderOptions options = new LoaderOptions();
+    options.getCircuitBreaker().setFailureThreshold(2);
+    // One request at a time, so the files are fetched in discovery order
+    Loader circuitBreakingLoader = new Loader(
+      50,
+      1,
+      5,
+      5,
+      1,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      List<LoadedFile> files = circuitBreakingLoader.load(
+        getBaseUrl() + "/gbfs.json"
+      );
+
+      assertEquals(4, files.size());
+      assertEquals(
+        "CONNECTION_ERROR",
+        files.get(1).loaderErrors().get(0).error()
+      );
+      assertEquals(
+        "CONNECTION_ERROR",
+        files.get(2).loaderErrors().get(0).error()
+      );
+      LoaderError skipped = files.get(3).loaderErrors().get(0);
+      assertEquals("CIRCUIT_OPEN", skipped.error());
+      assertTrue(skipped.message().contains("host localhost "));
+      assertEquals(0, files.get(3).attempts());
+      wireMockServer.verify(
+        0,
+        getRequestedFor(urlEqualTo("/station_information.json"))
+      );
+    } finally {
+      circuitBreakingLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_Metrics_RecordsRequestsErrorsAndPoolUsage()
+    throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withStatus(404))
+    );
+
+    RequestStatistics statistics = new RequestStatistics();
+    LoaderOptions options = new LoaderOptions();
+    options.setMetrics(statistics);
+    Loader measuredLoader = new Loader(
+      50,
+      20,
+      5,
+      5,
+      20,
+      Collections.emptyMap(),
+      options
+    );
+    try {
+      measuredLoader.load(getBaseUrl() + "/gbfs.json");
+
+      String route = "http://localhost:" + wireMockServer.port();
+      RequestStatistics.RouteStatistics routeStatistics = statistics
+        .snapshot()
+        .get(route);
+      assertEquals(2, routeStatistics.requests());
+      assertEquals(Map.of(200, 1L, 404, 1L), routeStatistics.statusCodes());
+      assertEquals(Map.of("CONNECTION_ERROR", 1L), routeStatistics.errors());
+      assertEquals(
+        2,
+        routeStatistics
+          .latencyHistogram()
+          .values()
+          .stream()
+          .mapToLong(Long::longValue)
+          .sum()
+      );
+
+      assertEquals(50, measuredLoader.getConnectionPoolStats().max());
+      ConnectionPoolStats routePool = measuredLoader
+        .getConnectionPoolStatsPerRoute()
+        .get(route);
+      assertEquals(0, routePool.leased());
+      assertEquals(20, routePool.max());
+    } finally {
+      measuredLoader.close();
+    }
+  }
+
+  @Test
+  void testLoad_WithListener_ReceivesFilesAsTheyLoad() throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    List<FeedReference> discoveredFeeds = new ArrayList<>();
+    List<String> loadedFileNames = Collections.synchronizedList(
+      new ArrayList<>()
+    );
+    List<LoadedFile> files = loader.load(
+      getBaseUrl() + "/gbfs.json",
+      null,
+      new LoadListener() {
+        @Override
+        public void onFeedsDiscovered(List<FeedReference> feeds) {
+          assertTrue(loadedFileNames.isEmpty());
+          discoveredFeeds.addAll(feeds);
+        }
+
+        @Override
+        public void onFileLoaded(LoadedFile file) {
+          loadedFileNames.add(file.fileName());
+        }
+      }
+    );
+
+    assertEquals(2, files.size());
+    assertEquals(1, discoveredFeeds.size());
+    assertEquals("system_information", discoveredFeeds.get(0).name());
+    assertEquals(List.of("gbfs", "system_information"), loadedFileNames);
+  }
+
+  @Test
+  void testLoad_WithListener_PassesFeedFilesOnListenerThreads()
+    throws IOException {
+    String discoveryContentWithFeed = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(discoveryContentWithFeed))
+    );
+    stubFor(
+      get(urlEqualTo("/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    Map<String, String> listenerThreads = new ConcurrentHashMap<>();
+    loader.load(
+      getBaseUrl() + "/gbfs.json",
+      null,
+      file ->
+        listenerThreads.put(file.fileName(), Thread.currentThread().getName())
+    );
+
+    assertTrue(
+      listenerThreads
+        .get("system_information")
+        .startsWith("gbfs-loader-listener-")
+    );
+  }
+
+  @Test
+  void testLoadAllVersions_LoadsEveryVersionInGbfsVersions()
+    throws IOException {
+    String v3Discovery = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"gbfs_versions\", \"url\": \"%1$s/v3/gbfs_versions.json\"}, {\"name\": \"system_information\", \"url\": \"%1$s/v3/system_information.json\"}]}}",
+      getBaseUrl()
+    );
+    String v2Discovery = String.format(
+      "{\"version\": \"2.3\", \"data\": {\"en\": {\"feeds\": [{\"name\": \"system_information\", \"url\": \"%s/v2/system_information.json\"}]}}}",
+      getBaseUrl()
+    );
+    String gbfsVersions = String.format(
+      "{\"version\": \"3.0\", \"data\": {\"versions\": [{\"version\": \"2.3\", \"url\": \"%1$s/v2/gbfs.json\"}, {\"version\": \"3.0\", \"url\": \"%1$s/v3/gbfs.json\"}]}}",
+      getBaseUrl()
+    );
+    stubFor(
+      get(urlEqualTo("/v3/gbfs.json"))
+        .willReturn(aResponse().withBody(v3Discovery))
+    );
+    stubFor(
+      get(urlEqualTo("/v3/gbfs_versions.json"))
+        .willReturn(aResponse().withBody(gbfsVersions))
+    );
+    stubFor(
+      get(urlEqualTo("/v2/gbfs.json"))
+        .willReturn(aResponse().withBody(v2Discovery))
+    );
+    stubFor(
+      get(urlMatching("/v[23]/system_information.json"))
+        .willReturn(aResponse().withBody(systemInformationJson))
+    );
+
+    Map<String, List<LoadedFile>> versions = loader.loadAllVersions(
+      getBaseUrl() + "/v3/gbfs.json",
+      null
+    );
+
+    assertEquals(List.of("2.3", "3.0"), new ArrayList<>(versions.keySet()));
+    assertEquals(
+      List.of("gbfs", "system_information"),
+      versions.get("2.3").stream().map(LoadedFile::fileName).toList()
+    );
+    assertEquals(
+      List.of("gbfs", "gbfs_versions", "system_information"),
+      versions.get("3.0").stream().map(LoadedFile::fileName).toList()
+    );
+    versions
+      .values()
+      .forEach(files ->
+        files.forEach(file -> assertTrue(file.loaderErrors().isEmpty()))
+      );
+    wireMockServer.verify(1, getRequestedFor(urlEqualTo("/v3/gbfs.json")));
+  }
+
+  @Test
+  void testLoadAllVersions_WithoutGbfsVersions_LoadsGivenVersion()
+    throws IOException {
+    stubFor(
+      get(urlEqualTo("/gbfs.json"))
+        .willReturn(aResponse().withBody(gbfsDiscoveryJson))
+    );
+
+    Map<String, List<LoadedFile>> versions = loader.loadAllVersions(
+      getBaseUrl() + "/gbfs.json",
+      null
+    );
+
+    assertEquals(1, versions.size());
+    assertEquals(1, versions.get("3.0").size());
+  }
 }
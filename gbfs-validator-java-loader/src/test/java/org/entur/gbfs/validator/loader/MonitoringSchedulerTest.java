@@ -0,0 +1,171 @@
+package org.entur.gbfs.validator.loader;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MonitoringSchedulerTest {
+
+  private WireMockServer wireMockServer;
+  private Loader loader;
+  private MonitoringScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+    wireMockServer.start();
+    WireMock.configureFor("localhost", wireMockServer.port());
+    loader = new Loader();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (scheduler != null) {
+      scheduler.close();
+    }
+    loader.close();
+    wireMockServer.stop();
+  }
+
+  private String getBaseUrl() {
+    return "http://localhost:" + wireMockServer.port();
+  }
+
+  private void stubSystem(String path, int feedTtl) {
+    String discovery = String.format(
+      "{\"ttl\": 3600, \"version\": \"3.0\", \"data\": {\"feeds\": [{\"name\": \"vehicle_status\", \"url\": \"%s%s/vehicle_status.json\"}]}}",
+      getBaseUrl(),
+      path
+    );
+    stubFor(
+      get(urlEqualTo(path + "/gbfs.json"))
+        .willReturn(aResponse().withBody(discovery))
+    );
+    stubFor(
+      get(urlEqualTo(path + "/vehicle_status.json"))
+        .willReturn(
+          aResponse()
+            .withBody(
+              "{\"ttl\": " + feedTtl + ", \"data\": {\"vehicles\": []}}"
+            )
+        )
+    );
+  }
+
+  private MonitoringPolicy testPolicy() {
+    MonitoringPolicy policy = new MonitoringPolicy();
+    policy.setMinIntervalSeconds(1);
+    policy.setSpreadSeconds(0);
+    return policy;
+  }
+
+  @Test
+  void testScheduler_ReloadsSystemsAfterSmallestTtl() throws Exception {
+    stubSystem("/a", 1);
+    stubSystem("/b", 3600);
+
+    BlockingQueue<MonitoredSnapshot> validated = new LinkedBlockingQueue<>();
+    scheduler = new MonitoringScheduler(loader, testPolicy(), validated::add);
+    scheduler.register("a", getBaseUrl() + "/a/gbfs.json", null);
+    scheduler.register("b", getBaseUrl() + "/b/gbfs.json", null);
+    scheduler.start();
+
+    int loadsOfA = 0;
+    int loadsOfB = 0;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (loadsOfA < 2 && System.nanoTime() < deadline) {
+      MonitoredSnapshot snapshot = validated.poll(1, TimeUnit.SECONDS);
+      if (snapshot == null) {
+        continue;
+      }
+      assertEquals(2, snapshot.files().size());
+      snapshot
+        .files()
+        .forEach(file -> assertTrue(file.loaderErrors().isEmpty()));
+      if (snapshot.systemId().equals("a")) {
+        assertEquals(1, snapshot.ttlSeconds());
+        loadsOfA++;
+      } else {
+        assertEquals(3600, snapshot.ttlSeconds());
+        loadsOfB++;
+      }
+    }
+
+    assertEquals(2, loadsOfA, "System a should be reloaded after its ttl");
+    assertEquals(1, loadsOfB, "System b should not be due again yet");
+    assertEquals(2, scheduler.getStats().registeredSystems());
+  }
+
+  @Test
+  void testScheduler_FullQueueAppliesBackpressure() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      stubSystem("/system" + i, 3600);
+    }
+
+    MonitoringPolicy policy = testPolicy();
+    policy.setQueueCapacity(1);
+    CountDownLatch release = new CountDownLatch(1);
+    scheduler =
+      new MonitoringScheduler(
+        loader,
+        policy,
+        snapshot -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      );
+    for (int i = 0; i < 4; i++) {
+      scheduler.register(
+        "system" + i,
+        getBaseUrl() + "/system" + i + "/gbfs.json",
+        null
+      );
+    }
+    scheduler.start();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    MonitoringStats stats = scheduler.getStats();
+    while (
+      (
+        stats.loadsCompleted() < 4 ||
+        stats.snapshotsValidated() < 1 ||
+        stats.queuedSnapshots() < 1 ||
+        stats.loadsInFlight() > 2
+      ) &&
+      System.nanoTime() < deadline
+    ) {
+      Thread.sleep(50);
+      stats = scheduler.getStats();
+    }
+
+    // One snapshot is being validated, one is queued and two loads wait for room
+    assertEquals(4, stats.loadsCompleted());
+    assertEquals(1, stats.snapshotsValidated());
+    assertEquals(1, stats.queuedSnapshots());
+    assertEquals(2, stats.loadsInFlight());
+    assertTrue(stats.backpressureWaits() >= 2);
+
+    release.countDown();
+    while (
+      scheduler.getStats().snapshotsValidated() < 4 &&
+      System.nanoTime() < deadline
+    ) {
+      Thread.sleep(50);
+    }
+    assertEquals(4, scheduler.getStats().snapshotsValidated());
+  }
+}
@@ -20,6 +20,9 @@ package org.entur.gbfs.validation;
 
 import java.io.InputStream;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import org.entur.gbfs.validation.model.FileValidationResult;
 import org.entur.gbfs.validation.model.ValidationResult;
 
@@ -43,4 +46,48 @@ public interface GbfsValidator {
    * @return
    */
   FileValidationResult validateFile(String fileName, InputStream file);
+
+  /**
+   * Start a validation that receives files one at a time, validating each file as soon as the files
+   * its custom rules depend on have been received. The result is the same as validating all the
+   * files at once with {@link #validate(Map)}
+   * @param expectedFiles the names of the files that will be passed in, e.g. from the discovery file
+   * @return
+   */
+  default IncrementalValidation startValidation(Set<String> expectedFiles) {
+    return startValidation(expectedFiles, fileValidationResult -> {});
+  }
+
+  /**
+   * Start a validation like {@link #startValidation(Set)}, additionally passing the result of
+   * each received file to the given consumer as soon as that file has been validated. The
+   * consumer is called from the thread validating the file, possibly from several threads at
+   * once, and for the last time before {@link IncrementalValidation#finish()} returns.
+   * The default implementation collects the files and validates all of them with
+   * {@link #validate(Map)} when the validation finishes
+   * @param expectedFiles the names of the files that will be passed in, e.g. from the discovery file
+   * @param onFileValidated receives the result of each received file once it has been validated
+   * @return
+   */
+  default IncrementalValidation startValidation(
+    Set<String> expectedFiles,
+    Consumer<FileValidationResult> onFileValidated
+  ) {
+    Map<String, InputStream> files = new ConcurrentHashMap<>();
+    return new IncrementalValidation() {
+      @Override
+      public void accept(String fileName, InputStream file) {
+        if (file != null) {
+          files.put(fileName, file);
+        }
+      }
+
+      @Override
+      public ValidationResult finish() {
+        ValidationResult result = validate(files);
+        result.files().values().forEach(onFileValidated);
+        return result;
+      }
+    };
+  }
 }
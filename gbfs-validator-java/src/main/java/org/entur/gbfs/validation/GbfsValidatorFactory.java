@@ -33,4 +33,15 @@ public class GbfsValidatorFactory {
   public static GbfsValidator getGbfsJsonValidator() {
     return new GbfsJsonValidator();
   }
+
+  /**
+   * Get a GbfsValidator instance, leaving the text of each file and of its schema out of file
+   * results unless asked for
+   * @param withSchemasAndContents whether file results include the text of their schema and file
+   */
+  public static GbfsValidator getGbfsJsonValidator(
+    boolean withSchemasAndContents
+  ) {
+    return new GbfsJsonValidator(withSchemasAndContents);
+  }
 }
@@ -0,0 +1,44 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+package org.entur.gbfs.validation;
+
+import java.io.InputStream;
+import org.entur.gbfs.validation.model.ValidationResult;
+
+/**
+ * A validation that receives its GBFS files one at a time, e.g. as they are downloaded. Each file is
+ * validated as soon as it and the files its custom rules depend on have been received, so validation
+ * overlaps with loading instead of waiting for the slowest file.
+ * Implementations are thread-safe, files may be passed in from several threads at once.
+ */
+public interface IncrementalValidation {
+  /**
+   * Pass in a file of the validation. Files the validation is not expecting are accepted, but
+   * nothing waits for them
+   * @param fileName the name of the file, e.g. station_status
+   * @param file the file contents, or null if the file could not be loaded
+   */
+  void accept(String fileName, InputStream file);
+
+  /**
+   * Validates remaining files and returns the combined result. Expected files that were never
+   * passed in are treated as missing. No more files can be passed in afterwards
+   * @return
+   */
+  ValidationResult finish();
+}
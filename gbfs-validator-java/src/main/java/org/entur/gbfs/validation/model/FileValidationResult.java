@@ -29,8 +29,8 @@ import java.util.stream.IntStream;
  * @param required Whether the file is required in the given version of GBFS
  * @param exists Whether the file existed in the validation input
  * @param errorsCount The number of errors found while validating the file
- * @param schema The schema used to validate the file
- * @param fileContents The contents of the file
+ * @param schema The schema used to validate the file, or null if the validator leaves it out
+ * @param fileContents The contents of the file, or null if the validator leaves them out
  * @param version The version of the file
  * @param errors A list of errors encountered while validating the file
  * @param validatorErrors A list of system errors encountered while trying to load or process the file
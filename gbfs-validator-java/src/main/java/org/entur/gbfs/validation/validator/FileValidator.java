@@ -21,6 +21,7 @@ package org.entur.gbfs.validation.validator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.entur.gbfs.validation.model.FileValidationError;
 import org.entur.gbfs.validation.model.FileValidationResult;
@@ -59,6 +60,18 @@ public class FileValidator {
   public FileValidationResult validate(
     String feedName,
     Map<String, JSONObject> feedMap
+  ) {
+    return validate(feedName, feedMap, true);
+  }
+
+  /**
+   * @param withSchemaAndContents whether the result includes the text of the schema and of the
+   *                              file, which are expensive to build for large files
+   */
+  public FileValidationResult validate(
+    String feedName,
+    Map<String, JSONObject> feedMap,
+    boolean withSchemaAndContents
   ) {
     if (version.getFileNames().contains(feedName)) {
       JSONObject feed = feedMap.get(feedName);
@@ -82,8 +95,10 @@ public class FileValidator {
         isRequired(feedName),
         feed != null,
         errorsCount,
-        schema.toString(),
-        Optional.ofNullable(feed).map(JSONObject::toString).orElse(null),
+        withSchemaAndContents ? schema.toString() : null,
+        withSchemaAndContents
+          ? Optional.ofNullable(feed).map(JSONObject::toString).orElse(null)
+          : null,
         version.getVersionString(),
         validationErrors,
         java.util.Collections.emptyList() // Added for systemErrors
@@ -98,6 +113,13 @@ public class FileValidator {
     return null;
   }
 
+  /**
+   * The names of the files the custom rules for the given feed depend on
+   */
+  public Set<String> getRequiredFeeds(String feedName) {
+    return version.getRequiredFeeds(feedName);
+  }
+
   List<FileValidationError> mapToValidationErrors(
     ValidationException validationException
   ) {
@@ -125,13 +147,23 @@ public class FileValidator {
   }
 
   public FileValidationResult validateMissingFile(String file) {
+    return validateMissingFile(file, true);
+  }
+
+  /**
+   * @param withSchema whether the result includes the text of the schema
+   */
+  public FileValidationResult validateMissingFile(
+    String file,
+    boolean withSchema
+  ) {
     var isRequired = version.isFileRequired(file);
     return new FileValidationResult(
       file,
       isRequired,
       false,
       isRequired ? 1 : 0,
-      version.getSchema(file).toString(),
+      withSchema ? version.getSchema(file).toString() : null,
       null,
       version.getVersionString(),
       List.of(),
@@ -27,13 +27,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.entur.gbfs.validation.GbfsValidator;
+import org.entur.gbfs.validation.IncrementalValidation;
 import org.entur.gbfs.validation.model.FileValidationResult;
 import org.entur.gbfs.validation.model.ValidationResult;
 import org.entur.gbfs.validation.model.ValidationSummary;
@@ -42,6 +47,7 @@ import org.entur.gbfs.validation.validator.versions.Version;
 import org.entur.gbfs.validation.validator.versions.VersionFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,12 +92,29 @@ public class GbfsJsonValidator implements GbfsValidator {
     "geofencing_zones"
   );
 
+  private final boolean withSchemasAndContents;
+
+  public GbfsJsonValidator() {
+    this(true);
+  }
+
+  /**
+   * @param withSchemasAndContents whether file results include the text of their schema and of
+   *                               the file. Building them is expensive for large files, so
+   *                               callers that do not report them can leave them out
+   */
+  public GbfsJsonValidator(boolean withSchemasAndContents) {
+    this.withSchemasAndContents = withSchemasAndContents;
+  }
+
   @Override
   public ValidationResult validate(Map<String, InputStream> rawFeeds) {
     Map<String, ParsedFeedContainer> parsedFeedsMap = parseFeeds(rawFeeds);
     Map<String, JSONObject> feedMap = parsedFeedsMap
       .entrySet()
       .stream()
+      // Files that failed to read or parse are reported apart, see parseFailureResult
+      .filter(entry -> entry.getValue().jsonObject() != null)
       .collect(
         Collectors.toMap(
           Map.Entry::getKey,
@@ -111,18 +134,10 @@ public class GbfsJsonValidator implements GbfsValidator {
 
       if (parsedContainer.jsonObject() == null) {
         // Parsing failed or stream read error
-        FileValidationResult result = new FileValidationResult(
+        fileValidations.put(
           feedName,
-          version.isFileRequired(feedName),
-          true,
-          0,
-          version.getSchema(feedName).toString(),
-          parsedContainer.originalContent(),
-          null,
-          Collections.emptyList(),
-          parsedContainer.parsingErrors()
+          parseFailureResult(feedName, parsedContainer, version)
         );
-        fileValidations.put(feedName, result);
       } else {
         FileValidationResult validationResult = validateFile(feedName, feedMap);
         if (validationResult != null) {
@@ -131,9 +146,41 @@ public class GbfsJsonValidator implements GbfsValidator {
       }
     }
 
+    return buildResult(fileValidations);
+  }
+
+  @Override
+  public IncrementalValidation startValidation(
+    Set<String> expectedFiles,
+    Consumer<FileValidationResult> onFileValidated
+  ) {
+    return new IncrementalJsonValidation(expectedFiles, onFileValidated);
+  }
+
+  private FileValidationResult parseFailureResult(
+    String feedName,
+    ParsedFeedContainer parsedContainer,
+    Version version
+  ) {
+    return new FileValidationResult(
+      feedName,
+      version.isFileRequired(feedName),
+      true,
+      0,
+      withSchemasAndContents ? version.getSchema(feedName).toString() : null,
+      withSchemasAndContents ? parsedContainer.originalContent() : null,
+      null,
+      Collections.emptyList(),
+      parsedContainer.parsingErrors()
+    );
+  }
+
+  private ValidationResult buildResult(
+    Map<String, FileValidationResult> fileValidations
+  ) {
     // Re-evaluate version based on all successfully validated files, if necessary, or stick to initial.
     // For now, the initial version detection is used for missing file checks.
-    version = findVersion(fileValidations); // This uses validated files' versions
+    Version version = findVersion(fileValidations); // This uses validated files' versions
 
     List<String> missingFiles = findMissingFiles(version, fileValidations);
     handleMissingFiles(fileValidations, missingFiles, version); // This creates FVRs for missing files
@@ -191,8 +238,10 @@ public class GbfsJsonValidator implements GbfsValidator {
         tempVersion.isFileRequired(fileName),
         true, // File was provided
         0,
-        tempVersion.getSchema(fileName).toString(),
-        parsedContainer.originalContent(),
+        withSchemasAndContents
+          ? tempVersion.getSchema(fileName).toString()
+          : null,
+        withSchemasAndContents ? parsedContainer.originalContent() : null,
         null, // File specific version unknown
         Collections.emptyList(),
         parsedContainer.parsingErrors()
@@ -215,7 +264,8 @@ public class GbfsJsonValidator implements GbfsValidator {
     );
     missingFiles.forEach(file -> {
       FileValidationResult missingResult = fileValidator.validateMissingFile(
-        file
+        file,
+        withSchemasAndContents
       );
       fileValidations.put(file, missingResult);
     });
@@ -287,13 +337,15 @@ public class GbfsJsonValidator implements GbfsValidator {
       return null;
     }
 
+    return getFileValidator(feed)
+      .validate(feedName, feedMap, withSchemasAndContents);
+  }
+
+  private static FileValidator getFileValidator(JSONObject feed) {
     String detectedVersion = feed.has("version")
       ? feed.getString("version")
       : "1.0";
-    FileValidator fileValidator = FileValidator.getFileValidator(
-      detectedVersion
-    );
-    return fileValidator.validate(feedName, feedMap);
+    return FileValidator.getFileValidator(detectedVersion);
   }
 
   private Map<String, ParsedFeedContainer> parseFeeds(
@@ -305,13 +357,26 @@ public class GbfsJsonValidator implements GbfsValidator {
     return feedMap;
   }
 
+  /**
+   * Parses a feed straight from its stream, without reading it into a string first. Only when
+   * parsing fails are the contents read as a string, to be reported with the parse error, so
+   * streams that cannot be reset to read them again are read into a string up front.
+   */
   private ParsedFeedContainer parseFeed(String name, InputStream raw) {
-    String asString;
-    try (
-      BufferedReader reader = new BufferedReader(new InputStreamReader(raw))
-    ) {
-      asString =
-        reader.lines().collect(Collectors.joining(System.lineSeparator()));
+    try (InputStream in = raw) {
+      if (in.markSupported()) {
+        in.mark(Integer.MAX_VALUE);
+        try {
+          return new ParsedFeedContainer(
+            name,
+            new JSONObject(new JSONTokener(new InputStreamReader(in))),
+            null
+          );
+        } catch (JSONException e) {
+          in.reset();
+        }
+      }
+      return parseFeed(name, readContents(in));
     } catch (IOException | UncheckedIOException e) {
       LOG.warn(
         "IOException while reading feed name={}: {}",
@@ -331,7 +396,14 @@ public class GbfsJsonValidator implements GbfsValidator {
         null
       );
     }
+  }
 
+  private static String readContents(InputStream in) {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+    return reader.lines().collect(Collectors.joining(System.lineSeparator()));
+  }
+
+  private ParsedFeedContainer parseFeed(String name, String asString) {
     try {
       return new ParsedFeedContainer(name, new JSONObject(asString), asString);
     } catch (JSONException e) {
@@ -350,4 +422,160 @@ public class GbfsJsonValidator implements GbfsValidator {
       );
     }
   }
+
+  /**
+   * Validates files as they are received. A file is validated once it has been received together
+   * with every expected file its custom rules read, or when the validation is finished. Validation
+   * runs on the thread that passed in the last of those files.
+   */
+  private class IncrementalJsonValidation implements IncrementalValidation {
+
+    private final Set<String> expectedFiles;
+    private final Consumer<FileValidationResult> onFileValidated;
+    private final Set<String> receivedFiles = new HashSet<>();
+    private final Map<String, ParsedFeedContainer> parsedFeeds =
+      new HashMap<>();
+    private final Set<String> pendingFeeds = new HashSet<>();
+    private final Map<String, FileValidationResult> fileValidations =
+      new ConcurrentHashMap<>();
+    private int validationsInProgress;
+    private boolean finished;
+
+    private IncrementalJsonValidation(
+      Set<String> expectedFiles,
+      Consumer<FileValidationResult> onFileValidated
+    ) {
+      this.expectedFiles = Set.copyOf(expectedFiles);
+      this.onFileValidated = onFileValidated;
+    }
+
+    @Override
+    public void accept(String fileName, InputStream file) {
+      ParsedFeedContainer parsedContainer = file != null
+        ? parseFeed(fileName, file)
+        : null;
+
+      Map<String, Map<String, JSONObject>> ready;
+      synchronized (this) {
+        if (finished) {
+          throw new IllegalStateException("Validation is already finished");
+        }
+        receivedFiles.add(fileName);
+        if (parsedContainer != null) {
+          parsedFeeds.put(fileName, parsedContainer);
+          if (
+            parsedContainer.jsonObject() != null && FEEDS.contains(fileName)
+          ) {
+            pendingFeeds.add(fileName);
+          }
+        }
+        ready = takeReadyFeeds(false);
+      }
+
+      validateReadyFeeds(ready);
+    }
+
+    @Override
+    public ValidationResult finish() {
+      Map<String, Map<String, JSONObject>> ready;
+      synchronized (this) {
+        if (finished) {
+          throw new IllegalStateException("Validation is already finished");
+        }
+        finished = true;
+        ready = takeReadyFeeds(true);
+      }
+
+      validateReadyFeeds(ready);
+
+      Map<String, ParsedFeedContainer> parsedFeedsSnapshot;
+      synchronized (this) {
+        while (validationsInProgress > 0) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+              "Interrupted while waiting for validation",
+              e
+            );
+          }
+        }
+        parsedFeedsSnapshot = new HashMap<>(parsedFeeds);
+      }
+
+      Version version = detectVersionFromParsedFeeds(parsedFeedsSnapshot);
+      parsedFeedsSnapshot.forEach((feedName, parsedContainer) -> {
+        if (parsedContainer.jsonObject() == null && FEEDS.contains(feedName)) {
+          FileValidationResult parseFailure = parseFailureResult(
+            feedName,
+            parsedContainer,
+            version
+          );
+          fileValidations.put(feedName, parseFailure);
+          onFileValidated.accept(parseFailure);
+        }
+      });
+
+      return buildResult(new HashMap<>(fileValidations));
+    }
+
+    /**
+     * Removes the pending feeds whose inputs have all been received, or every pending feed if no
+     * more files will arrive, and collects the feeds each of them needs for validation.
+     */
+    private Map<String, Map<String, JSONObject>> takeReadyFeeds(
+      boolean all
+    ) {
+      Map<String, Map<String, JSONObject>> ready = new HashMap<>();
+      Iterator<String> pending = pendingFeeds.iterator();
+      while (pending.hasNext()) {
+        String feedName = pending.next();
+        JSONObject feed = parsedFeeds.get(feedName).jsonObject();
+        Set<String> requiredFeeds = getFileValidator(feed)
+          .getRequiredFeeds(feedName);
+
+        boolean inputsReceived = requiredFeeds
+          .stream()
+          .filter(expectedFiles::contains)
+          .allMatch(receivedFiles::contains);
+        if (all || inputsReceived) {
+          Map<String, JSONObject> feedMap = new HashMap<>();
+          feedMap.put(feedName, feed);
+          requiredFeeds.forEach(requiredFeed -> {
+            ParsedFeedContainer input = parsedFeeds.get(requiredFeed);
+            if (input != null && input.jsonObject() != null) {
+              feedMap.put(requiredFeed, input.jsonObject());
+            }
+          });
+          ready.put(feedName, feedMap);
+          pending.remove();
+        }
+      }
+      validationsInProgress += ready.size();
+      return ready;
+    }
+
+    private void validateReadyFeeds(
+      Map<String, Map<String, JSONObject>> ready
+    ) {
+      ready.forEach((feedName, feedMap) -> {
+        try {
+          FileValidationResult validationResult = validateFile(
+            feedName,
+            feedMap
+          );
+          if (validationResult != null) {
+            fileValidations.put(feedName, validationResult);
+            onFileValidated.accept(validationResult);
+          }
+        } finally {
+          synchronized (this) {
+            validationsInProgress--;
+            notifyAll();
+          }
+        }
+      });
+    }
+  }
 }
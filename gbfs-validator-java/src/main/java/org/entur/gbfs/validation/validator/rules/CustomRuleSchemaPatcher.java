@@ -22,6 +22,7 @@ package org.entur.gbfs.validation.validator.rules;
 
 import com.jayway.jsonpath.DocumentContext;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONObject;
 
 /**
@@ -39,4 +40,13 @@ public interface CustomRuleSchemaPatcher {
     DocumentContext rawSchemaDocumentContext,
     Map<String, JSONObject> feeds
   );
+
+  /**
+   * The names of the files this rule reads data from when patching the schema. By default a
+   * rule reads from no file other than the one it patches
+   * @return
+   */
+  default Set<String> getRequiredFeeds() {
+    return Set.of();
+  }
 }
@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -69,4 +70,9 @@ public class NoInvalidReferenceToPricingPlansInVehicleStatus
 
     return rawSchemaDocumentContext.set(requiredPath, pricingPlanIdSchema);
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("system_pricing_plans");
+  }
 }
@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -63,4 +64,9 @@ public class NoInvalidReferenceToPricingPlansInVehicleTypes
       .set(DEFAULT_PRICING_PLAN_ID_SCHEMA_PATH, defaultPricingPlanIdSchema)
       .set(PRICING_PLAN_IDS_SCHEMA_PATH, pricingPlanIdsSchema);
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("system_pricing_plans");
+  }
 }
@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -56,4 +57,9 @@ public class NoInvalidReferenceToRegionInStationInformation
 
     return rawSchemaDocumentContext.set(REGION_IDS_SCHEMA_PATH, regionIdSchema);
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("system_regions");
+  }
 }
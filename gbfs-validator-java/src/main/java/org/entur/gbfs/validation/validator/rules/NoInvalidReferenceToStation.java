@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -67,4 +68,9 @@ public class NoInvalidReferenceToStation implements CustomRuleSchemaPatcher {
       stationIdSchema
     );
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of(stationReferenceFileName);
+  }
 }
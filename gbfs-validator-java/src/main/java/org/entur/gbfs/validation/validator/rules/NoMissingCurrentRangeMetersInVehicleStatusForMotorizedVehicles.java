@@ -27,6 +27,7 @@ import com.jayway.jsonpath.Filter;
 import com.jayway.jsonpath.JsonPath;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -117,4 +118,9 @@ public class NoMissingCurrentRangeMetersInVehicleStatusForMotorizedVehicles
 
     return rawSchemaDocumentContext.set(schemaPath, bikeItemsSchema);
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("vehicle_types");
+  }
 }
@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -74,4 +75,9 @@ public class NoMissingOrInvalidVehicleTypeIdInVehicleStatusWhenVehicleTypesExist
       .put("enum", vehicleTypeIds);
     return rawSchemaDocumentContext.set(requiredPath, vehicleItemsSchema);
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("vehicle_types");
+  }
 }
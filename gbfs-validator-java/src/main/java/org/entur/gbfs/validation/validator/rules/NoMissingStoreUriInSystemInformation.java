@@ -23,6 +23,7 @@ package org.entur.gbfs.validation.validator.rules;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -127,4 +128,9 @@ public class NoMissingStoreUriInSystemInformation
 
     return rawSchemaDocumentContext;
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of(vehicleStatusFileName, "station_information");
+  }
 }
@@ -22,6 +22,7 @@ package org.entur.gbfs.validation.validator.rules;
 
 import com.jayway.jsonpath.DocumentContext;
 import java.util.Map;
+import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -54,4 +55,9 @@ public class NoMissingVehicleTypesAvailableWhenVehicleTypesExists
       stationItemsRequiredSchema
     );
   }
+
+  @Override
+  public Set<String> getRequiredFeeds() {
+    return Set.of("vehicle_types");
+  }
 }
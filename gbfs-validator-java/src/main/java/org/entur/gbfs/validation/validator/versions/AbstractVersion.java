@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.entur.gbfs.validation.validator.FileValidator;
 import org.entur.gbfs.validation.validator.URIFormatValidator;
 import org.entur.gbfs.validation.validator.rules.CustomRuleSchemaPatcher;
@@ -144,6 +145,14 @@ public abstract class AbstractVersion implements Version {
       );
   }
 
+  @Override
+  public Set<String> getRequiredFeeds(String fileName) {
+    return getCustomRules(fileName)
+      .stream()
+      .flatMap(patcher -> patcher.getRequiredFeeds().stream())
+      .collect(Collectors.toSet());
+  }
+
   private List<CustomRuleSchemaPatcher> getCustomRules(String fileName) {
     return Optional
       .ofNullable(customRules.get(fileName))
@@ -20,6 +20,7 @@ package org.entur.gbfs.validation.validator.versions;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.ValidationException;
 import org.json.JSONObject;
@@ -72,4 +73,14 @@ public interface Version {
    */
   void validate(String fileName, Map<String, JSONObject> feedMap)
     throws ValidationException;
+
+  /**
+   * The names of the files the custom rules for the file with the given name read data from.
+   * By default no other files are required
+   * @param fileName
+   * @return
+   */
+  default Set<String> getRequiredFeeds(String fileName) {
+    return Set.of();
+  }
 }
@@ -26,8 +26,12 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.entur.gbfs.validation.IncrementalValidation;
 import org.entur.gbfs.validation.model.FileValidationResult;
 import org.entur.gbfs.validation.model.ValidationResult;
 import org.entur.gbfs.validation.model.ValidatorError;
@@ -71,6 +75,51 @@ class GbfsJsonValidatorTest {
     Assertions.assertEquals(0, result.summary().errorsCount());
   }
 
+  @Test
+  void testValidationReportsUnparsableFile() {
+    GbfsJsonValidator validator = new GbfsJsonValidator();
+
+    Map<String, InputStream> deliveryMap = new HashMap<>();
+    deliveryMap.put("gbfs", getFixture("fixtures/v1.0/gbfs.json"));
+    deliveryMap.put(
+      "system_information",
+      getFixture("fixtures/v1.0/system_information.json")
+    );
+    deliveryMap.put("system_hours", new ByteArrayInputStream(new byte[0]));
+
+    ValidationResult result = validator.validate(deliveryMap);
+
+    Assertions.assertEquals(
+      "PARSE_ERROR",
+      result.files().get("system_hours").validatorErrors().get(0).error()
+    );
+  }
+
+  @Test
+  void testValidationWithoutSchemasAndContents() {
+    GbfsJsonValidator validator = new GbfsJsonValidator(false);
+
+    Map<String, InputStream> deliveryMap = new HashMap<>();
+    deliveryMap.put("gbfs", getFixture("fixtures/v1.0/gbfs.json"));
+    deliveryMap.put(
+      "system_information",
+      getFixture("fixtures/v1.0/system_information.json")
+    );
+
+    ValidationResult result = validator.validate(deliveryMap);
+
+    Assertions.assertEquals("1.0", result.summary().version());
+    Assertions.assertEquals(0, result.summary().errorsCount());
+    Assertions.assertFalse(result.files().get("station_status").exists());
+    result
+      .files()
+      .values()
+      .forEach(file -> {
+        Assertions.assertNull(file.schema());
+        Assertions.assertNull(file.fileContents());
+      });
+  }
+
   @Test
   void testSuccessfulV1_1Validation() {
     GbfsJsonValidator validator = new GbfsJsonValidator();
@@ -366,6 +415,90 @@ class GbfsJsonValidatorTest {
     Assertions.assertEquals(0, result.summary().errorsCount());
   }
 
+  @Test
+  void testIncrementalV3_0Validation() {
+    GbfsJsonValidator validator = new GbfsJsonValidator();
+    // Files that other files depend on arrive last, so validation has to wait for them
+    List<String> arrivalOrder = List.of(
+      "station_status",
+      "vehicle_status",
+      "vehicle_types",
+      "system_information",
+      "station_information",
+      "gbfs",
+      "gbfs_versions",
+      "manifest",
+      "system_alerts",
+      "geofencing_zones",
+      "system_regions",
+      "system_pricing_plans"
+    );
+
+    IncrementalValidation validation = validator.startValidation(
+      Set.copyOf(arrivalOrder)
+    );
+    arrivalOrder.forEach(fileName ->
+      validation.accept(
+        fileName,
+        getFixture("fixtures/v3.0/" + fileName + ".json")
+      )
+    );
+    ValidationResult result = validation.finish();
+
+    printErrors("3.0", result);
+
+    Assertions.assertEquals("3.0", result.summary().version());
+    Assertions.assertEquals(0, result.summary().errorsCount());
+    Assertions.assertTrue(result.files().get("station_status").exists());
+  }
+
+  @Test
+  void testIncrementalValidationMissingExpectedFile() {
+    GbfsJsonValidator validator = new GbfsJsonValidator();
+
+    IncrementalValidation validation = validator.startValidation(
+      Set.of("gbfs", "system_information")
+    );
+    validation.accept("gbfs", getFixture("fixtures/v2.2/gbfs.json"));
+    validation.accept("system_information", null);
+    ValidationResult result = validation.finish();
+
+    Assertions.assertFalse(result.files().get("system_information").exists());
+    Assertions.assertEquals(1, result.summary().errorsCount());
+    Assertions.assertThrows(
+      IllegalStateException.class,
+      () -> validation.accept("system_hours", null)
+    );
+  }
+
+  @Test
+  void testIncrementalValidationReportsEachFileOnceValidated() {
+    GbfsJsonValidator validator = new GbfsJsonValidator();
+    List<String> validatedFiles = new ArrayList<>();
+
+    IncrementalValidation validation = validator.startValidation(
+      Set.of("gbfs", "system_information", "vehicle_types"),
+      fileValidationResult -> validatedFiles.add(fileValidationResult.file())
+    );
+    validation.accept("gbfs", getFixture("fixtures/v2.2/gbfs.json"));
+    Assertions.assertEquals(List.of("gbfs"), validatedFiles);
+
+    validation.accept(
+      "system_information",
+      new ByteArrayInputStream("{".getBytes(StandardCharsets.UTF_8))
+    );
+    validation.accept("vehicle_types", null);
+    ValidationResult result = validation.finish();
+
+    Assertions.assertEquals(
+      List.of("gbfs", "system_information"),
+      validatedFiles
+    );
+    Assertions.assertFalse(
+      result.files().get("system_information").validatorErrors().isEmpty()
+    );
+  }
+
   @Test
   void testFailed2_3Validation() {
     GbfsJsonValidator validator = new GbfsJsonValidator();